@@ -0,0 +1,193 @@
+/**
+ * AllocationProbe measures the bytes a simulation tick allocates, in each engine mode, and fails when a mode
+ * allocates more than its budget, so garbage that causes frame hitches is caught before it ships.
+ * Run it with "java --add-modules jdk.incubator.vector robot_simulator.AllocationProbe [ticks] [budget] [saved.dat]";
+ * it exits with status 1 when a mode is over budget.
+ */
+package robot_simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.Random;
+
+/**
+ * Class for the allocation probe - a plain main, like KernelBenchmark, that builds a world once per mode, runs
+ * warm-up ticks so the JIT and the reusable buffers settle, then reads the thread's allocation counter around the
+ * measured ticks, in a few windows of which the lowest counts. Only the simulation tick is measured; drawing is
+ * left to the FX thread.
+ * <p>
+ * Each mode runs twice: bare, where the event engine may skip quiet stretches, and recorded, with telemetry
+ * written every tick and snapshots published to a server, so the per-tick loops those add are measured too.
+ */
+public final class AllocationProbe {
+    static final String[] MODES = {"per-object", "scalar", "vector", "events", "swept", "flow"}; // Engine modes measured
+    static final double DEFAULT_BUDGET = 16; // Bytes per tick allowed on average, for a list that still has to grow
+    static final int DEFAULT_TICKS = 500; // Ticks measured per window
+    static final int MIN_TICKS = 200; // Fewest ticks per window, so one list growth is not read as a per-tick cost
+    static final int WINDOWS = 3; // Windows measured one after another, the lowest counts
+    static final int WARM_UP = 1000; // Ticks run first, whatever is measured; the vector kernels need over 300
+    static final double WIDTH = 3000, HEIGHT = 2000; // Size of the built world
+    static final int ROBOTS_PER_TYPE = 500; // 2000 robots in the built world, a quarter of each type
+    static final int OBSTACLES_PER_TYPE = 60; // Circle and line obstacles in the built world
+    static final long SEED = 45; // Seed for the built world's places and directions
+
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Creates a probe for the current thread.
+     *
+     * @throws UnsupportedOperationException If the JVM cannot count allocated bytes per thread.
+     */
+    public AllocationProbe() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("This JVM does not count allocated bytes per thread");
+        }
+        threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread since it started.
+     */
+    public long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Runs an arena for some warm-up ticks, then measures windows of ticks one after another and returns the lowest
+     * average bytes allocated per tick. A one-off allocation, such as a buffer growing or the JIT deoptimising, falls
+     * in one window only, while garbage made every tick shows in all of them.
+     *
+     * @param arena   The arena to run.
+     * @param warmUp  Ticks run before measuring.
+     * @param ticks   Ticks measured per window.
+     * @param windows Windows measured.
+     * @return Bytes allocated per measured tick, in the lowest window.
+     */
+    public double bytesPerTick(Arena arena, int warmUp, int ticks, int windows) {
+        for (int i = 0; i < warmUp; i++) {
+            arena.tick();
+        }
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int w = 0; w < windows; w++) {
+            long start = allocatedBytes();
+            for (int i = 0; i < ticks; i++) {
+                arena.tick();
+            }
+            lowest = Math.min(lowest, (allocatedBytes() - start) / (double) ticks);
+        }
+        return lowest;
+    }
+
+    /**
+     * Builds the probe's world without a window: ROBOTS_PER_TYPE robots of each type, with the editor's sizes,
+     * speeds and colours, and OBSTACLES_PER_TYPE circle and line obstacles. Places and directions come from a
+     * fixed seed, so every run measures the same world.
+     *
+     * @return The arena, with every object added.
+     */
+    static Arena buildWorld() {
+        Arena arena = new Arena(WIDTH, HEIGHT);
+        Random random = new Random(SEED);
+        for (int i = 0; i < OBSTACLES_PER_TYPE; i++) {
+            arena.insert(new Obstacle(place(random, WIDTH), place(random, HEIGHT), 30));
+            double x = place(random, WIDTH);
+            double y = place(random, HEIGHT);
+            arena.insert(new LineObstacle(x, y, x + Arena.LINE_DX, y + Arena.LINE_DY));
+        }
+        for (int i = 0; i < ROBOTS_PER_TYPE; i++) {
+            arena.insert(aim(new NormalRobot(place(random, WIDTH), place(random, HEIGHT), 10, 2), "BLACK", random));
+            arena.insert(aim(new WeakRobot(place(random, WIDTH), place(random, HEIGHT), 10, 3), "GREY", random));
+            arena.insert(aim(new AvoiderRobot(place(random, WIDTH), place(random, HEIGHT), 10, 3), "BLUE", random));
+            arena.insert(aim(new BeamRobot(place(random, WIDTH), place(random, HEIGHT), 10, 0.75), "CORAL", random));
+        }
+        return arena;
+    }
+
+    /**
+     * Returns a coordinate at least 50 units inside the arena, as the editor places objects.
+     */
+    private static double place(Random random, double size) {
+        return 50 + random.nextInt((int) size - 100);
+    }
+
+    /**
+     * Colours a robot and points it in a seeded direction.
+     */
+    private static Robot aim(Robot robot, String colour, Random random) {
+        robot.setColor(colour);
+        robot.direction = Direction.values()[random.nextInt(Direction.values().length)];
+        robot.heading = Heading.fromDirection(robot.direction);
+        return robot;
+    }
+
+    /**
+     * Sets an arena up to run in one of the MODES.
+     */
+    static void configure(Arena arena, String mode) {
+        arena.setKernels(mode.equals("scalar") || mode.equals("vector") ? mode : "off");
+        arena.setEventDriven(mode.equals("events"));
+        arena.setTimeStep(mode.equals("swept") ? 5 : 1);
+        arena.setAvoidanceMode(mode.equals("flow") ? AvoidanceMode.FLOW_FIELD : AvoidanceMode.REACTIVE);
+    }
+
+    /**
+     * Measures one mode, bare or recorded, and prints the result.
+     *
+     * @return True if the mode was within the budget.
+     */
+    private boolean measure(String saved, String mode, boolean recorded, int ticks, double budget)
+            throws IOException, ClassNotFoundException {
+        Arena arena = saved == null ? buildWorld() : Arena.readFile(saved);
+        configure(arena, mode);
+        File file = null;
+        TelemetrySink telemetry = null;
+        SnapshotServer server = null;
+        try {
+            if (recorded) {
+                file = File.createTempFile("allocation-probe", ".bin");
+                telemetry = new TelemetrySink(file.getAbsolutePath(), TelemetrySink.Format.BINARY,
+                        TelemetrySink.Backpressure.DROP, 1, 1 << 16);
+                arena.setTelemetry(telemetry);
+                server = new SnapshotServer(InetAddress.getLoopbackAddress(), 0, 1, SnapshotServer.DEFAULT_QUANTUM);
+                arena.setSnapshotServer(server);
+            }
+            double bytes = bytesPerTick(arena, WARM_UP, ticks, WINDOWS);
+            boolean failed = bytes > budget;
+            System.out.printf("%-10s %-8s %10.1f bytes per tick%s%n", mode, recorded ? "recorded" : "bare", bytes,
+                    failed ? "  OVER BUDGET" : "");
+            return !failed;
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+            if (telemetry != null) {
+                telemetry.close();
+            }
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int ticks = Math.max(MIN_TICKS, args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TICKS);
+        double budget = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_BUDGET;
+        String saved = args.length > 2 ? args[2] : null; // A saved world to probe instead of the built one
+
+        AllocationProbe probe = new AllocationProbe();
+        boolean over = false;
+        for (String mode : MODES) {
+            over |= !probe.measure(saved, mode, false, ticks, budget);
+            over |= !probe.measure(saved, mode, true, ticks, budget);
+        }
+        if (over) {
+            System.out.printf("Allocation over the budget of %.0f bytes per tick%n", budget);
+            System.exit(1);
+        }
+    }
+}
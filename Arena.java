@@ -1,33 +1,97 @@
 package robot_simulator;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.WeakHashMap;
 
 import javafx.scene.Group;
 import javafx.scene.Scene;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 
 public class Arena implements Serializable {
     private static final long serialVersionUID = 1L;
     protected double x, y; // Width and height of the arena
-    private List<Objects> objects; // List for all objects in the arena
-    private Objects selectedObject = null; // Track the currently selected object
-
-    private transient List<Circle> circles; // JavaFX objects (not serializable)
-    private transient List<Line> wheels;
-    private transient List<Line> beams;
+    private List<Objects> objects; // All objects in the arena, a SlotMap so removal and lookup by handle are O(1)
+    private transient SlotMap<Objects> selection; // Selected objects, the first is the primary selection
+    private transient List<Objects> picked; // Reused result list for selection queries
+    private transient Group selectionGroup; // Selection outlines, redrawn on their own when the selection changes
+    private transient Camera camera; // Visible part of the arena, null to draw everything
+    private transient Group labelGroup; // Where robot locations are listed, arenaGroup if null
+    private transient DetailLevel forcedDetail; // Level of detail chosen by the user, null to choose per frame
+    private transient DetailLevel detailLevel = DetailLevel.FULL; // Level of detail of the last frame
+    private transient int detailBias = 0; // Tiers coarser than on-screen size alone calls for
+    private transient boolean detailControlled; // True when a QualityController sets the bias instead
+    private transient int slowFrames, fastFrames; // Consecutive frames over and well under the draw budget
+    private transient int[] heatCounts; // Robots per heatmap cell
+    private transient int[] heatPixels; // ARGB colour per heatmap cell
+    private transient WritableImage heatImage; // Heatmap pixels, one per cell
+    private transient ImageView heatView; // Node showing heatImage, reused so the image keeps a single viewer
+    private transient SpriteAtlas sprites; // Robots pre-rendered at every heading, for the SPRITES detail level
+    private transient SoftwareRenderer spriteFrame; // The view's pixels, sprites are copied into them
+    private transient PixelBuffer<IntBuffer> spriteBuffer; // spriteFrame's pixels as the image shows them
+    private transient ImageView spriteView; // Node showing an image of spriteBuffer
+
+    private transient RobotPaths robotPaths; // Robots merged into a few Path nodes, null for nodes per robot
     public int circle_count, line_count, beam_count = 0;
     protected Direction direction; // Direction the robot is heading
     public transient Canvas canvas;
     private transient Group arenaGroup; // JavaFX visuals (not serializable)
     private boolean simulationRunning = false; // Tracks if the simulation is running
     private transient Scene scene; // Scene is transient and initialized later
+    private long tickCount = 0; // Number of simulation ticks completed
+    private transient TelemetrySink telemetry; // Optional telemetry output, null when disabled
+    private transient FrameExporter frameExporter; // Optional PNG frame output, null when disabled
+    private double rasterCellSize = 0; // Cell size of the obstacle raster, 0 when the raster is disabled
+    private double timeStep = 1; // Simulated time per tick, robots move RobotSpeed * timeStep each tick
+    private transient ObstacleRaster obstacleRaster; // Built on first use from rasterCellSize
+    private AvoidanceMode avoidanceMode = AvoidanceMode.REACTIVE; // How Avoider Robots keep clear of obstacles
+    private transient FlowField flowField; // Shared obstacle distance field, null until needed or after an edit
+    private transient SpatialGrid spatialIndex; // Grid of all objects, rebuilt lazily once per tick
+    private transient boolean spatialIndexValid = false; // False once objects have moved since the last rebuild
+    private transient RobotKernels kernels; // Batched movement and collision loops, null for the per-object path
+    private transient RobotState robotState; // Robot arrays the kernels work on
+    private transient CollisionScheduler scheduler; // Event-driven collision checks, null to check every robot every tick
+    private transient List<RobotBatch> batches; // Robots grouped by behaviour, one batch each, reused every pass
+    private transient List<ContactBatch> contacts; // Contacts found by the checks, one batch per touched behaviour
+    private transient List<Objects> removals; // Robots the checks of a tick remove, reused every tick
+    private transient List<Obstacle> obstacleScratch; // obstacleCollision's obstacles, reused every tick
+    private transient List<Text> labels; // Robot location labels, reused every frame
+    private transient StringBuilder labelText; // Scratch text for a label
+    private transient double[] beamEnds; // End point returned by showBeam, shared by every call
+    private transient CommandQueue commands; // Edits waiting for the next tick boundary
+    private transient SnapshotBuffer snapshots; // World state published for other threads, null until one reads it
+    private transient boolean snapshotEveryTick; // A reader took the buffer from getSnapshots, so publish every tick
+    private transient SnapshotServer snapshotServer; // Streams the snapshots to remote viewers, null when not serving
+
+    static final double FLOW_CELL = 10; // Cell size of the flow field
+    static final double FLOW_CLEARANCE = 30; // Avoider robots closer than this to an obstacle steer away
+    static final double GRID_CELL = 32; // Cell size of the spatial index
+    static final double WALL_CONTACT = 1e-6; // Tolerance for finding the walls a swept move stopped at
+
+    static final double ROBOT_RAD = 10; // Radius given to every robot added from the UI
+    static final double LINE_DX = 40; // Width of an unrotated line obstacle added from the UI
+    static final double LINE_DY = 35; // Height of an unrotated line obstacle added from the UI
+    private static final Map<Objects, double[]> fixedSegments = new WeakHashMap<>(); // Segments of old line obstacles
+    static final double PICK_TOLERANCE = 4; // How close a click must be to a line obstacle to pick it
+    static final int NODE_BUDGET = 20000; // Most robots drawn as nodes, more are drawn as a heatmap
+    static final double DRAW_BUDGET_MS = 12; // Building a frame for longer than this coarsens the detail
+    static final double HEAT_CELL = 6; // Heatmap cell size, in screen pixels
 
     /**
      * Constructor - setting up the arena
@@ -37,20 +101,43 @@ public class Arena implements Serializable {
      * @param arenaGroup (Group for JavaFX visualization)
      */
     public Arena(double x, double y, Group arenaGroup) {
+        this(x, y);
         if (arenaGroup == null) {
             throw new IllegalArgumentException("arenaGroup cannot be null");
         }
+        this.arenaGroup = arenaGroup;
+        this.scene = new Scene(arenaGroup, x, y);
+        this.canvas = new Canvas();
+    }
 
+    /**
+     * Constructor - an arena without a window, for headless runs such as the allocation probe.
+     * Nothing can be drawn until setArenaGroup is called, and no Canvas is made, so JavaFX is not started.
+     *
+     * @param x (width)
+     * @param y (height)
+     */
+    public Arena(double x, double y) {
         this.x = x;
         this.y = y;
-        this.circles = new ArrayList<>();
-        this.wheels = new ArrayList<>();
-        this.beams = new ArrayList<>();
         this.direction = Direction.randomDirection();
-        this.canvas = new Canvas();
-        this.objects = new ArrayList<>();
-        this.arenaGroup = arenaGroup;
-        this.scene = new Scene(arenaGroup, x, y);
+        this.objects = new SlotMap<>();
+        this.commands = new CommandQueue();
+    }
+
+    /**
+     * Restores a saved arena. Files saved before the slot map hold the objects in an ArrayList,
+     * and files saved before time steps run at a step of 1.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (!(objects instanceof SlotMap)) {
+            objects = new SlotMap<>(objects);
+        }
+        if (!(timeStep > 0)) {
+            timeStep = 1;
+        }
+        commands = new CommandQueue();
     }
 
     // Setter for transient arenaGroup
@@ -79,6 +166,24 @@ public class Arena implements Serializable {
         return objects;
     }
 
+    /**
+     * Returns a handle that finds an object in O(1) for as long as it stays in the arena.
+     * @param object the object
+     * @return the handle, or SlotMap.NO_HANDLE if the object is not in the arena
+     */
+    public long getHandle(Objects object) {
+        return ((SlotMap<Objects>) objects).handleOf(object);
+    }
+
+    /**
+     * Returns the object for a handle.
+     * @param handle a handle from getHandle
+     * @return the object, or null if it has been removed since
+     */
+    public Objects getObject(long handle) {
+        return ((SlotMap<Objects>) objects).lookup(handle);
+    }
+
     public Group getArenaGroup() {
         return this.arenaGroup;
     }
@@ -91,112 +196,1107 @@ public class Arena implements Serializable {
         return this.simulationRunning;
     }
 
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public TelemetrySink getTelemetry() {
+        return telemetry;
+    }
+
+    // Setter for transient telemetry, pass null to stop recording
+    public void setTelemetry(TelemetrySink telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * Enables the obstacle occupancy raster used by obstacleCollision.
+     * @param cellSize the raster cell size, or 0 to disable the raster and test every obstacle
+     */
+    public void setObstacleRaster(double cellSize) {
+        this.rasterCellSize = Math.max(0, cellSize);
+        this.obstacleRaster = null; // rebuilt on next use
+    }
+
+    /**
+     * Returns the obstacle raster, building it if it is enabled but not built yet.
+     * @return the raster, or null if it is disabled
+     */
+    ObstacleRaster getObstacleRaster() {
+        if (rasterCellSize <= 0) {
+            return null;
+        }
+        if (obstacleRaster == null) {
+            obstacleRaster = new ObstacleRaster(this.x, this.y, rasterCellSize, ROBOT_RAD);
+            obstacleRaster.rebuild(objects);
+        }
+        return obstacleRaster;
+    }
+
+    public AvoidanceMode getAvoidanceMode() {
+        return avoidanceMode == null ? AvoidanceMode.REACTIVE : avoidanceMode; // null in files saved before the mode existed
+    }
+
+    public void setAvoidanceMode(AvoidanceMode avoidanceMode) {
+        this.avoidanceMode = avoidanceMode;
+    }
+
+    /**
+     * Returns the shared flow field, rebuilding it if an obstacle has changed since it was last built.
+     * @return the flow field for the current obstacles
+     */
+    FlowField getFlowField() {
+        if (flowField == null) {
+            flowField = new FlowField(this.x, this.y, FLOW_CELL, ROBOT_RAD, FLOW_CLEARANCE);
+            // Same limits as the wall checks in CheckRobotAngle
+            flowField.rebuild(objects, ROBOT_RAD, ROBOT_RAD + 65, this.x - ROBOT_RAD, this.y - ROBOT_RAD);
+        }
+        return flowField;
+    }
+
+    /**
+     * Selects the kernels used for robot movement and collision checks.
+     * @param mode "auto", "vector", "scalar" or "off" for the per-object code path
+     */
+    public void setKernels(String mode) {
+        this.kernels = RobotKernels.select(mode);
+        if (kernels != null && robotState == null) {
+            robotState = new RobotState();
+        }
+    }
+
+    public RobotKernels getKernels() {
+        return kernels;
+    }
+
+    /**
+     * Returns the spatial index of all objects, rebuilding it if objects have moved since it was last built.
+     * @return the spatial index at the current positions
+     */
+    SpatialGrid getSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialGrid(this.x, this.y, GRID_CELL);
+        }
+        if (!spatialIndexValid) {
+            spatialIndex.rebuild(objects);
+            spatialIndexValid = true;
+        }
+        return spatialIndex;
+    }
+
+    /**
+     * Marks the spatial index out of date, it is rebuilt on next use.
+     */
+    void invalidateSpatialIndex() {
+        spatialIndexValid = false;
+    }
+
+    /**
+     * Removes a robot destroyed during the tick and reports it.
+     * @param robot the robot being destroyed
+     * @return true if it was still in the arena
+     */
+    boolean removeDestroyed(Objects robot) {
+        if (!objects.remove(robot)) {
+            return false;
+        }
+        ((Robot) robot).destroyed = true;
+        reportDestroyed(robot);
+        invalidateSpatialIndex();
+        return true;
+    }
+
+    /**
+     * Updates the obstacle acceleration structures after an obstacle is added or moved into place.
+     * @param obstacle the obstacle at its new position
+     */
+    private void obstacleAdded(Obstacle obstacle) {
+        if (obstacleRaster != null) {
+            obstacleRaster.add(obstacle);
+        }
+        flowField = null; // rebuilt on next use
+        objectsEdited();
+    }
+
+    /**
+     * Updates the obstacle acceleration structures before an obstacle is moved or deleted.
+     * @param obstacle the obstacle, still at its old position
+     */
+    private void obstacleRemoved(Obstacle obstacle) {
+        if (obstacleRaster != null) {
+            obstacleRaster.remove(obstacle);
+        }
+        flowField = null; // rebuilt on next use
+        objectsEdited();
+    }
+
+    /**
+     * Returns the end points {x1, y1, x2, y2} of a line obstacle.
+     * @param obstacle the line obstacle
+     * @return the segment, shared with the obstacle and not to be changed
+     */
+    static double[] lineSegment(Objects obstacle) {
+        if (obstacle instanceof LineObstacle) {
+            return ((LineObstacle) obstacle).getSegment();
+        }
+        // Any other obstacle of no radius has the fixed shape lines had before they kept their end points. Its
+        // segment is kept per obstacle, and moved with it, so the per-tick tests do not allocate one every call.
+        synchronized (fixedSegments) {
+            double[] seg = fixedSegments.get(obstacle);
+            if (seg == null) {
+                seg = new double[] {Double.NaN, Double.NaN, 0, 0}; // filled below
+                fixedSegments.put(obstacle, seg);
+            }
+            if (seg[0] != obstacle.getX() || seg[1] != obstacle.getY()) {
+                seg[0] = obstacle.getX();
+                seg[1] = obstacle.getY();
+                seg[2] = obstacle.getX() + LINE_DX;
+                seg[3] = obstacle.getY() + LINE_DY;
+            }
+            return seg;
+        }
+    }
+
+    public FrameExporter getFrameExporter() {
+        return frameExporter;
+    }
+
+    /**
+     * Attaches a frame exporter, or detaches it with null. The caller closes the exporter.
+     * @param frameExporter where to send a snapshot every frame interval
+     */
+    public void setFrameExporter(FrameExporter frameExporter) {
+        this.frameExporter = frameExporter;
+        if (frameExporter != null) {
+            snapshotBuffer(); // the exporter's workers read the snapshots published on frame ticks
+        }
+    }
+
+    public SnapshotServer getSnapshotServer() {
+        return snapshotServer;
+    }
+
+    /**
+     * Attaches a snapshot server, or detaches it with null, publishing a snapshot for it and telling it of the new
+     * frame every frame interval. The caller closes the server.
+     * @param snapshotServer the server
+     */
+    public void setSnapshotServer(SnapshotServer snapshotServer) {
+        this.snapshotServer = snapshotServer;
+        if (snapshotServer != null) {
+            snapshotServer.setSnapshots(snapshotBuffer());
+        }
+    }
+
+    /**
+     * Returns the buffer other threads read the world from, and from now on publishes a snapshot to it after every
+     * tick and every applied edit. Call on the simulation thread, then hand the buffer to the readers.
+     * @return the snapshot buffer, already holding the current state
+     */
+    public SnapshotBuffer getSnapshots() {
+        snapshotEveryTick = true;
+        return snapshotBuffer();
+    }
+
+    /**
+     * Returns the snapshot buffer, made and filled if there is none, without asking for a snapshot every tick:
+     * frame export and the snapshot server only need one on their own frame ticks.
+     */
+    private SnapshotBuffer snapshotBuffer() {
+        if (snapshots == null) {
+            snapshots = new SnapshotBuffer();
+            snapshots.publish(this);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Switches between checking every robot every tick and the event-driven collision scheduler.
+     * @param eventDriven true to check robots only when a contact is predicted
+     */
+    public void setEventDriven(boolean eventDriven) {
+        if (eventDriven == (scheduler != null)) {
+            return;
+        }
+        scheduler = eventDriven ? new CollisionScheduler(this) : null;
+        EventLog.info(EventLog.Category.SIMULATION, eventDriven ? "Event-driven collisions." : "Collisions checked every tick.");
+    }
+
+    public boolean isEventDriven() {
+        return scheduler != null;
+    }
+
+    public CollisionScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Sets how much simulated time a tick covers: robots move their speed times the step each tick.
+     * At steps other than 1 robots are moved with swept tests, so a long step stops at the first wall or
+     * obstacle in the robot's path instead of passing through it, and robots that would meet within the
+     * step count as touching. The collision scheduler, which already solves for contact ticks, runs at a step of 1.
+     * @param timeStep the simulated time per tick
+     */
+    public void setTimeStep(double timeStep) {
+        if (!(timeStep > 0)) {
+            throw new IllegalArgumentException("timeStep must be positive");
+        }
+        this.timeStep = timeStep;
+        if (scheduler != null) {
+            scheduler.reset(); // robots moved without it
+        }
+    }
+
+    /**
+     * Advances the simulation by one tick.
+     */
+    public void tick() {
+        applyCommands();
+        if (timeStep != 1) {
+            checkRobotsSwept();
+            adjustRobots();
+            finishTick();
+            return;
+        }
+        if (scheduler != null) {
+            scheduler.check();
+            adjustRobots();
+            scheduler.collideObstacles();
+            scheduler.predict();
+            finishTick();
+            return;
+        }
+        checkRobots();
+        adjustRobots();
+        obstacleCollision();
+        finishTick();
+    }
+
+    /**
+     * Advances the simulation by a number of ticks. With the collision scheduler, stretches where no robot has
+     * anything due are crossed in one step, unless telemetry, frame export or a snapshot server needs every tick.
+     * @param ticks the number of ticks to run
+     */
+    public void advance(long ticks) {
+        long end = tickCount + ticks;
+        while (tickCount < end) {
+            if (skipQuiet(end - tickCount) == 0) {
+                tick();
+            }
+        }
+    }
+
+    /**
+     * Crosses the ticks, from now, in which the collision scheduler has nothing due, in one step.
+     * Nothing is skipped without the scheduler, or while telemetry, frame export or a snapshot server needs every
+     * tick. Other snapshot readers are given the state after the skip, so they never see a stale front.
+     * @param limit the most ticks to skip
+     * @return the number of ticks skipped
+     */
+    public long skipQuiet(long limit) {
+        if (scheduler == null || timeStep != 1 || telemetry != null || frameExporter != null || snapshotServer != null
+                || !commands.isEmpty()) {
+            return 0; // Waiting edits are applied by the next tick, not after the quiet stretch
+        }
+        long quiet = scheduler.quietTicks(limit);
+        if (quiet > 0) {
+            scheduler.skip(quiet);
+            tickCount += quiet;
+            if (snapshots != null) {
+                snapshots.publish(this);
+            }
+        }
+        return quiet;
+    }
+
+    /**
+     * Queues an edit to be applied at the start of the next tick, or by applyCommands while the simulation is
+     * stopped. Safe from any thread; the edit never lands in the middle of a tick.
+     *
+     * @param command The edit.
+     */
+    public void submit(WorldCommand command) {
+        commands.offer(command);
+    }
+
+    /**
+     * Applies the queued edits, in the order they were submitted. Called by tick, and by the UI while the
+     * simulation is stopped - only ever by the thread that runs the ticks.
+     *
+     * @return The number of edits applied.
+     */
+    public int applyCommands() {
+        if (commands.isEmpty()) {
+            return 0;
+        }
+        int applied = commands.drain(this);
+        if (snapshots != null) {
+            snapshots.publish(this); // readers see the edits without waiting for a tick
+        }
+        if (snapshotServer != null) {
+            snapshotServer.frameReady();
+        }
+        return applied;
+    }
+
+    /**
+     * Called after objects are added, moved or deleted outside a tick.
+     */
+    private void objectsEdited() {
+        invalidateSpatialIndex();
+        if (scheduler != null) {
+            scheduler.reset(); // predictions assumed the old layout
+        }
+    }
+
+    /**
+     * Completes a simulation tick - advances the tick counter, records robot state
+     * to the telemetry sink when a state record is due, and publishes a snapshot for readers on other threads
+     * when one needs this tick: every tick for readers of getSnapshots, frame ticks for export and the server.
+     */
+    public void finishTick() {
+        tickCount++;
+        boolean exportDue = frameExporter != null && frameExporter.isFrameTick(tickCount);
+        boolean serveDue = snapshotServer != null && snapshotServer.isFrameTick(tickCount);
+        if (snapshots != null && (snapshotEveryTick || exportDue || serveDue)) {
+            snapshots.publish(this); // the world is only copied on ticks someone reads
+        }
+        if (exportDue) {
+            frameExporter.submit(snapshots.acquire()); // drawn and encoded on a worker, which releases it
+        }
+        if (serveDue) {
+            snapshotServer.frameReady(); // the viewers' senders take the snapshot just published
+        }
+        if (telemetry != null && telemetry.isStateTick(tickCount)) {
+            for (int i = 0; i < objects.size(); i++) { // indexed, so no iterator is made every state tick
+                Objects object = objects.get(i);
+                if (object instanceof Robot) {
+                    telemetry.state(tickCount, (Robot) object);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports a collision to the telemetry sink, if one is attached.
+     * @param robot the robot that made contact
+     * @param other the object it hit, or null for a wall
+     */
+    void reportCollision(Objects robot, Objects other) {
+        if (telemetry != null && robot != null) {
+            telemetry.collision(tickCount, robot, other);
+        }
+        if (robot != null && EventLog.isEnabled(EventLog.Category.COLLISION, EventLog.Level.DEBUG)) {
+            EventLog.debug(EventLog.Category.COLLISION, "Tick " + tickCount + ": " + robot.getType() + " " +
+                    robot.getObjectID() + " hit " + (other == null ? "a wall" : other.getType() + " " + other.getObjectID()));
+        }
+    }
+
+    /**
+     * Reports the destruction of a robot to the telemetry sink, if one is attached.
+     * @param robot the robot being removed
+     */
+    void reportDestroyed(Objects robot) {
+        if (telemetry != null) {
+            telemetry.destroyed(tickCount, robot);
+        }
+        if (EventLog.isEnabled(EventLog.Category.COLLISION, EventLog.Level.DEBUG)) {
+            EventLog.debug(EventLog.Category.COLLISION, "Tick " + tickCount + ": destroyed " + robot.getType() + " " +
+                    robot.getObjectID());
+        }
+    }
+
     public void drawArena() {
         if (arenaGroup == null) {
             throw new IllegalStateException("arenaGroup is not initialized.");
         }
 
+        long start = System.nanoTime();
         arenaGroup.getChildren().clear();
 
-        for (Objects object : objects) {
-            if (object instanceof BeamRobot) {
-                double angle = ((BeamRobot) object).getRadAngle();
-                showBeam(object.getX(), object.getY(), object.getRad(), angle);
+        List<Objects> visible = visibleObjects();
+        int robots = 0;
+        for (Objects object : visible) {
+            if (object instanceof Robot) {
+                robots++;
+            }
+        }
+        double zoom = camera != null ? camera.getZoom() : 1;
+        detailLevel = forcedDetail != null ? forcedDetail
+                : DetailLevel.choose(ROBOT_RAD * zoom, robots, NODE_BUDGET, detailBias);
+        if (robotPaths != null && detailLevel == DetailLevel.SPRITES) {
+            detailLevel = DetailLevel.FULL; // merged paths keep full detail in the scene graph, cheaply enough
+        }
+        if (detailLevel == DetailLevel.HEATMAP) {
+            showHeatmap(visible, zoom);
+        }
+        boolean merge = robotPaths != null && (detailLevel == DetailLevel.FULL || detailLevel == DetailLevel.CIRCLE);
+        if (merge) {
+            robotPaths.begin();
+        }
+
+        for (Objects object : visible) {
+            if (object instanceof Robot && merge) {
+                addToPaths((Robot) object);
+            } else if (object instanceof Robot && detailLevel != DetailLevel.FULL) {
+                if (detailLevel == DetailLevel.SPRITES) {
+                    continue; // copied into one image below, over the obstacles
+                } else if (detailLevel == DetailLevel.CIRCLE) {
+                    showDisc(object);
+                } else if (detailLevel == DetailLevel.POINT) {
+                    showPoint(object, zoom);
+                }
             } else if (object instanceof Robot) {
-                double angle = ((Robot) object).getRadAngle();
-                String color = object.getColor();
-                showCircle(object.getX(), object.getY(), object.getRad(), color, angle);
+                RobotBehaviours.of((Robot) object).draw(this, (Robot) object);
             } else if (object instanceof Obstacle) {
                 if (object.getRad() == 0) {
-                    showObstacle_line(object.getX(), object.getY(), object.getX() + 40, object.getY() + 35, 0);
+                    double[] seg = lineSegment(object);
+                    showObstacle_line(seg[0], seg[1], seg[2], seg[3], 0);
                 } else {
                     showObstacle_circle(object.getX(), object.getY());
                 }
             }
         }
+        if (detailLevel == DetailLevel.SPRITES) {
+            showSprites(visible, zoom);
+        }
+        if (merge) {
+            robotPaths.show(arenaGroup); // over the obstacles
+        }
+        showSelection();
+        adaptDetail((System.nanoTime() - start) / 1e6);
+    }
+
+    public DetailLevel getDetailLevel() {
+        return detailLevel;
+    }
+
+    public boolean isMergedPaths() {
+        return robotPaths != null;
+    }
+
+    /**
+     * Draws robots in a few merged Path nodes - one for the bodies of each colour, one for the wheels and one
+     * for the beams - instead of nodes per robot. Merged paths replace the sprites, so robots stay in the scene graph.
+     * @param merged true for merged paths, false for nodes per robot
+     */
+    public void setMergedPaths(boolean merged) {
+        if (merged != (robotPaths != null)) {
+            robotPaths = merged ? new RobotPaths() : null;
+        }
+    }
+
+    /**
+     * Fixes the level of detail, or lets each frame choose it.
+     * @param level the level, or null to choose from on-screen size, robot count and draw time
+     */
+    public void setDetailLevel(DetailLevel level) {
+        this.forcedDetail = level;
+    }
+
+    /**
+     * Turns the arena's own draw-time adjustment of the detail bias on or off.
+     * @param adaptive false when something else, such as a QualityController, sets the bias
+     */
+    public void setAdaptiveDetail(boolean adaptive) {
+        this.detailControlled = !adaptive;
+    }
+
+    public int getDetailBias() {
+        return detailBias;
+    }
+
+    /**
+     * Sets how many tiers coarser than on-screen size alone the automatic level of detail is.
+     * @param bias 0 to 3
+     */
+    public void setDetailBias(int bias) {
+        this.detailBias = Math.max(0, Math.min(DetailLevel.HEATMAP.ordinal(), bias));
+        slowFrames = 0;
+        fastFrames = 0;
+    }
+
+    /**
+     * Coarsens the automatic level of detail after a few slow frames, and refines it again after many fast ones.
+     * The gap between the two keeps it from flickering between tiers.
+     * @param millis the time taken to build the last frame
+     */
+    private void adaptDetail(double millis) {
+        if (forcedDetail != null || detailControlled) {
+            return;
+        }
+        if (millis > DRAW_BUDGET_MS) {
+            fastFrames = 0;
+            if (++slowFrames >= 3 && detailBias < DetailLevel.HEATMAP.ordinal()) {
+                setDetailBias(detailBias + 1);
+            }
+        } else if (millis < DRAW_BUDGET_MS / 2) {
+            slowFrames = 0;
+            if (++fastFrames >= 60 && detailBias > 0) {
+                setDetailBias(detailBias - 1);
+            }
+        } else {
+            slowFrames = 0;
+            fastFrames = 0;
+        }
+    }
+
+    /**
+     * Adds a robot to the merged paths: its body, and at FULL detail its wheels or beam
+     */
+    private void addToPaths(Robot robot) {
+        double x = robot.getX();
+        double y = robot.getY();
+        if (robot instanceof BeamRobot) {
+            robotPaths.addBody(x, y, robot.getRad(), Color.CORAL);
+            if (detailLevel == DetailLevel.FULL) {
+                double length = ((BeamRobot) robot).getBeamLength();
+                robotPaths.addBeam(x, y, x + length * Heading.cos(robot.getHeading()),
+                        y + length * Heading.sin(robot.getHeading()));
+            }
+        } else {
+            robotPaths.addBody(x, y, robot.getRad(), robotColor(robot.getColor()));
+            if (detailLevel == DetailLevel.FULL) {
+                robotPaths.addWheels(x, y, robot.getRad(), robot.getHeading());
+            }
+        }
+    }
+
+    /**
+     * Draws a robot as a plain filled circle (CIRCLE detail)
+     */
+    private void showDisc(Objects robot) {
+        Circle circle = new Circle(robot.getX(), robot.getY(), robot.getRad(), robotColor(robot.getColor()));
+        arenaGroup.getChildren().add(circle);
+    }
+
+    /**
+     * Draws a robot as a one pixel square (POINT detail)
+     */
+    private void showPoint(Objects robot, double zoom) {
+        double size = 1 / zoom; // one screen pixel in world units
+        Rectangle point = new Rectangle(robot.getX() - size / 2, robot.getY() - size / 2, size, size);
+        point.setFill(robotColor(robot.getColor()));
+        arenaGroup.getChildren().add(point);
+    }
+
+    /**
+     * Draws the robots in view as a density image, one pixel per HEAT_CELL screen pixels.
+     * Counting is linear in the robots in view and the whole map is a single node.
+     */
+    private void showHeatmap(List<Objects> visible, double zoom) {
+        double minX = camera != null ? camera.getMinX() : 0;
+        double minY = camera != null ? camera.getMinY() : 0;
+        double viewW = camera != null ? camera.getViewWidth() : this.x;
+        double viewH = camera != null ? camera.getViewHeight() : this.y;
+        double cell = HEAT_CELL / zoom; // cell size in world units
+        int cols = Math.max(1, (int) Math.ceil(viewW / HEAT_CELL));
+        int rows = Math.max(1, (int) Math.ceil(viewH / HEAT_CELL));
+        if (heatImage == null || (int) heatImage.getWidth() != cols || (int) heatImage.getHeight() != rows) {
+            heatImage = new WritableImage(cols, rows);
+            heatCounts = new int[cols * rows];
+            heatPixels = new int[cols * rows];
+            heatView = new ImageView(heatImage);
+            heatView.setSmooth(false);
+        }
+        Arrays.fill(heatCounts, 0);
+        int most = 1;
+        for (Objects object : visible) {
+            if (!(object instanceof Robot)) {
+                continue;
+            }
+            int cx = (int) Math.floor((object.getX() - minX) / cell);
+            int cy = (int) Math.floor((object.getY() - minY) / cell);
+            if (cx >= 0 && cy >= 0 && cx < cols && cy < rows) {
+                most = Math.max(most, ++heatCounts[cy * cols + cx]);
+            }
+        }
+        double scale = 1 / Math.log1p(most);
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = 0; cx < cols; cx++) {
+                int count = heatCounts[cy * cols + cx];
+                if (count == 0) {
+                    heatPixels[cy * cols + cx] = 0;
+                } else {
+                    double heat = Math.log1p(count) * scale; // log scale so sparse cells stay visible
+                    int alpha = 64 + (int) (191 * heat);
+                    int red = 255;
+                    int green = (int) (200 * (1 - heat));
+                    heatPixels[cy * cols + cx] = alpha << 24 | red << 16 | green << 8;
+                }
+            }
+        }
+        heatImage.getPixelWriter().setPixels(0, 0, cols, rows, PixelFormat.getIntArgbInstance(), heatPixels, 0, cols);
+        heatView.setX(minX);
+        heatView.setY(minY);
+        heatView.setFitWidth(cols * cell);
+        heatView.setFitHeight(rows * cell);
+        arenaGroup.getChildren().add(heatView);
+    }
+
+    /**
+     * Draws the robots in view (SPRITES detail) by copying each one's pre-rendered sprite into an image
+     * of the view, at screen resolution, and drawing the beams into it. The image is shown as one node.
+     */
+    private void showSprites(List<Objects> visible, double zoom) {
+        double minX = camera != null ? camera.getMinX() : 0;
+        double minY = camera != null ? camera.getMinY() : 0;
+        int width = Math.max(1, (int) Math.ceil(camera != null ? camera.getViewWidth() : this.x * zoom));
+        int height = Math.max(1, (int) Math.ceil(camera != null ? camera.getViewHeight() : this.y * zoom));
+        if (spriteFrame == null || spriteFrame.getWidth() != width || spriteFrame.getHeight() != height
+                || spriteFrame.getScale() != zoom) {
+            spriteFrame = new SoftwareRenderer(width, height, zoom);
+            if (spriteBuffer == null || spriteBuffer.getWidth() != width || spriteBuffer.getHeight() != height) {
+                // A direct buffer in the image's own format, so showing a frame is a copy and not a conversion
+                IntBuffer pixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+                spriteBuffer = new PixelBuffer<>(width, height, pixels, PixelFormat.getIntArgbPreInstance());
+                spriteView = new ImageView(new WritableImage(spriteBuffer));
+                spriteView.setSmooth(false);
+            }
+        }
+        if (sprites == null) {
+            sprites = new SpriteAtlas();
+        }
+        sprites.setScale(zoom);
+        spriteFrame.setOrigin(minX, minY);
+        spriteFrame.clear(0);
+        for (int i = 0; i < visible.size(); i++) {
+            Objects object = visible.get(i);
+            if (!(object instanceof Robot)) {
+                continue;
+            }
+            Robot robot = (Robot) object;
+            if (robot instanceof BeamRobot) {
+                double length = ((BeamRobot) robot).getBeamLength();
+                sprites.draw(spriteFrame, robot.getX(), robot.getY(), robot.getRad(), robot.getHeading(),
+                        SoftwareRenderer.argb(Color.CORAL), false);
+                spriteFrame.drawLine(robot.getX(), robot.getY(), robot.getX() + length * Heading.cos(robot.getHeading()),
+                        robot.getY() + length * Heading.sin(robot.getHeading()), SoftwareRenderer.BEAM_WIDTH,
+                        SoftwareRenderer.INK);
+            } else {
+                sprites.draw(spriteFrame, robot.getX(), robot.getY(), robot.getRad(), robot.getHeading(),
+                        SoftwareRenderer.argb(robotColor(robot.getColor())), true);
+            }
+        }
+        spriteBuffer.updateBuffer(buffer -> {
+            IntBuffer pixels = buffer.getBuffer();
+            pixels.clear();
+            pixels.put(spriteFrame.getPixels()); // every pixel is opaque or clear, so already premultiplied
+            pixels.clear();
+            return null; // the whole image changed
+        });
+        spriteView.setX(minX);
+        spriteView.setY(minY);
+        spriteView.setFitWidth(width / zoom);
+        spriteView.setFitHeight(height / zoom);
+        arenaGroup.getChildren().add(spriteView);
+    }
+
+    /**
+     * Returns the fill colour for a robot colour name, as used by showCircle and the beam robots.
+     */
+    static Color robotColor(String colour) {
+        if ("GREY".equals(colour)) {
+            return Color.GREY;
+        } else if ("BLUE".equals(colour)) {
+            return Color.BLUE;
+        } else if ("CORAL".equals(colour)) {
+            return Color.CORAL;
+        }
+        return Color.BLACK;
+    }
+
+    /**
+     * Returns the objects to draw: those in or near the camera's view, or all objects without a camera.
+     * With a camera only the grid cells under the view are visited, so drawing cost follows what is on screen.
+     */
+    private List<Objects> visibleObjects() {
+        if (camera == null) {
+            return objects;
+        }
+        double margin = BeamRobot.BEAM_RANGE + ROBOT_RAD; // beams reach into view from robots just outside it
+        return query(camera.getMinX() - margin, camera.getMinY() - margin,
+                camera.getMaxX() + margin, camera.getMaxY() + margin);
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Sets the camera used to cull drawing. The caller applies camera.getTransform() to the arena group.
+     * @param camera the camera, or null to draw every object
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    /**
+     * Sets the group robot locations are listed in, so the list can sit outside the camera's view.
+     * @param labelGroup the group, or null to list them in the arena group
+     */
+    public void setLabelGroup(Group labelGroup) {
+        this.labelGroup = labelGroup;
+    }
+
+    /**
+     * Outlines every selected object that is still in the arena, replacing the previous outlines.
+     * Changing the selection only redraws these outlines, not the arena.
+     */
+    private void showSelection() {
+        if (selectionGroup == null) {
+            selectionGroup = new Group();
+        }
+        selectionGroup.getChildren().clear();
+        if (!arenaGroup.getChildren().contains(selectionGroup)) {
+            arenaGroup.getChildren().add(selectionGroup); // drawArena cleared it, keep it on top
+        }
+        if (selection == null) {
+            return;
+        }
+        for (Objects object : selection) {
+            if (!objects.contains(object)) {
+                continue; // destroyed while selected
+            }
+            Circle outline = new Circle(anchorX(object), anchorY(object),
+                    object.getRad() == 0 ? lineLength(object) / 2 : object.getRad() + 3);
+            outline.setFill(null);
+            outline.setStroke(Color.DODGERBLUE);
+            outline.getStrokeDashArray().addAll(4.0, 3.0);
+            selectionGroup.getChildren().add(outline);
+        }
+    }
+
+
+
+
+
+    /**
+     * Moves the selection so the primary selected object lands on a new position, then deselects.
+     *
+     * @param newX The new x-coordinate.
+     * @param newY The new y-coordinate.
+     */
+    public void moveSelectedObject(double newX, double newY) {
+        Objects primary = getSelectedObject();
+        if (primary != null) {
+            EventLog.info(EventLog.Category.EDITOR, "Moved " + selection().size() + " object(s), " + primary.getType() +
+                          " with ID: " + primary.getObjectID() + " to: (" + newX + ", " + newY + ")");
+            moveSelection(newX - primary.getX(), newY - primary.getY());
+            clearSelection(); // Deselect after moving
+        } else {
+            EventLog.info(EventLog.Category.EDITOR, "No object selected to move.");
+        }
+    }
+
+    /**
+     * Queues a move of every selected object by the same offset. The objects moved are the ones selected now,
+     * whatever is selected by the time the move is applied. Does not redraw.
+     *
+     * @param dx The x offset.
+     * @param dy The y offset.
+     */
+    public void moveSelection(double dx, double dy) {
+        List<Objects> targets = new ArrayList<>(selection());
+        submit(arena -> arena.moveObjects(targets, dx, dy));
+    }
+
+    /**
+     * Moves objects by the same offset, updating the obstacle structures once per obstacle
+     * and the spatial index once for the whole move. Objects no longer in the arena are skipped.
+     *
+     * @param targets The objects to move.
+     * @param dx      The x offset.
+     * @param dy      The y offset.
+     */
+    private void moveObjects(List<Objects> targets, double dx, double dy) {
+        boolean obstacles = false;
+        for (Objects object : targets) {
+            if (!objects.contains(object)) {
+                continue;
+            }
+            if (object instanceof Obstacle && obstacleRaster != null) {
+                obstacleRaster.remove((Obstacle) object); // clear the old position
+            }
+            object.setXY(object.getX() + dx, object.getY() + dy);
+            if (object instanceof Obstacle) {
+                if (obstacleRaster != null) {
+                    obstacleRaster.add((Obstacle) object);
+                }
+                obstacles = true;
+            }
+        }
+        if (obstacles) {
+            flowField = null; // rebuilt on next use
+        }
+        objectsEdited();
+    }
+
+    // Getter for the primary selected object
+    public Objects getSelectedObject() {
+        return selection == null || selection.isEmpty() ? null : selection.get(0);
+    }
+
+    // Setter for selectedObject (optional, for setting it externally), replaces the selection
+    public void setSelectedObject(Objects selectedObject) {
+        clearSelection();
+        if (selectedObject != null) {
+            selection().add(selectedObject);
+        }
+    }
+
+    /**
+     * Returns the selected objects, the primary selection first.
+     */
+    public List<Objects> getSelection() {
+        return Collections.unmodifiableList(selection());
+    }
+
+    /**
+     * Deselects everything. Does not redraw.
+     */
+    public void clearSelection() {
+        if (selection != null) {
+            selection.clear();
+        }
+    }
+
+    private SlotMap<Objects> selection() {
+        if (selection == null) {
+            selection = new SlotMap<>();
+        }
+        return selection;
+    }
+
+    /**
+     * Finds the object under a point, using the spatial index. Robots are preferred over obstacles.
+     *
+     * @param px The x-coordinate.
+     * @param py The y-coordinate.
+     * @return The object, or null if there is none.
+     */
+    public Objects pickObject(double px, double py) {
+        List<Objects> near = query(px - PICK_TOLERANCE, py - PICK_TOLERANCE, px + PICK_TOLERANCE, py + PICK_TOLERANCE);
+        Objects found = null;
+        for (Objects obj : near) {
+            if (!isUnder(obj, px, py)) {
+                continue;
+            }
+            if (obj instanceof Robot) {
+                return obj;
+            }
+            if (found == null) {
+                found = obj;
+            }
+        }
+        return found;
+    }
+
+ // Fix in handleSelection()
+    public void handleSelection(double mouseX, double mouseY, boolean simulationRunning) {
+        if (simulationRunning) {
+            EventLog.warn(EventLog.Category.EDITOR, "Cannot move robots or obstacles while simulation is running.");
+            return;
+        }
+        selectAt(mouseX, mouseY, false);
+    }
+
+    /**
+     * Selects the object under a point.
+     *
+     * @param px     The x-coordinate.
+     * @param py     The y-coordinate.
+     * @param extend True to add the object to the selection, or remove it if it is already selected.
+     */
+    public void selectAt(double px, double py, boolean extend) {
+        Objects obj = pickObject(px, py);
+        if (!extend) {
+            clearSelection();
+        }
+        if (obj == null) {
+            EventLog.info(EventLog.Category.EDITOR, "No robot or obstacle selected.");
+        } else if (extend && selection().contains(obj)) {
+            selection().remove(obj);
+            EventLog.info(EventLog.Category.EDITOR, "Deselected: " + obj.getType() + " with ID: " + obj.getObjectID());
+        } else {
+            selection().add(obj);
+            EventLog.info(EventLog.Category.EDITOR, "Selected: " + obj.getType() + " with ID: " + obj.getObjectID());
+        }
+        showSelection();
+    }
+
+    /**
+     * Selects every object whose centre lies in a rectangle (rubber-band selection).
+     *
+     * @param x1     One corner x-coordinate.
+     * @param y1     One corner y-coordinate.
+     * @param x2     The opposite corner x-coordinate.
+     * @param y2     The opposite corner y-coordinate.
+     * @param extend True to add to the current selection instead of replacing it.
+     * @return The number of objects selected.
+     */
+    public int selectRect(double x1, double y1, double x2, double y2, boolean extend) {
+        double minX = Math.min(x1, x2), maxX = Math.max(x1, x2);
+        double minY = Math.min(y1, y2), maxY = Math.max(y1, y2);
+        if (!extend) {
+            clearSelection();
+        }
+        int count = 0;
+        for (Objects obj : query(minX, minY, maxX, maxY)) {
+            double ax = anchorX(obj), ay = anchorY(obj);
+            if (ax >= minX && ax <= maxX && ay >= minY && ay <= maxY && selection().add(obj)) {
+                count++;
+            }
+        }
+        EventLog.info(EventLog.Category.EDITOR, "Selected " + count + " object(s) in rectangle.");
+        showSelection();
+        return count;
+    }
+
+    /**
+     * Selects every object whose centre lies inside a polygon (lasso selection).
+     *
+     * @param xs     The x-coordinates of the polygon.
+     * @param ys     The y-coordinates of the polygon.
+     * @param n      The number of points.
+     * @param extend True to add to the current selection instead of replacing it.
+     * @return The number of objects selected.
+     */
+    public int selectLasso(double[] xs, double[] ys, int n, boolean extend) {
+        if (!extend) {
+            clearSelection();
+        }
+        if (n < 3) {
+            showSelection();
+            return 0;
+        }
+        double minX = xs[0], minY = ys[0], maxX = xs[0], maxY = ys[0];
+        for (int i = 1; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        int count = 0;
+        for (Objects obj : query(minX, minY, maxX, maxY)) {
+            if (insidePolygon(anchorX(obj), anchorY(obj), xs, ys, n) && selection().add(obj)) {
+                count++;
+            }
+        }
+        EventLog.info(EventLog.Category.EDITOR, "Selected " + count + " object(s) in lasso.");
+        showSelection();
+        return count;
+    }
+
+    // Fix in deleteSelectedObject()
+    public void deleteSelectedObject() {
+        if (getSelectedObject() != null) {
+            EventLog.info(EventLog.Category.EDITOR, "Deleted " + selection().size() + " object(s), first: " +
+                    getSelectedObject().getType() + " with ID: " + getSelectedObject().getObjectID());
+            deleteSelection();
+        } else {
+            EventLog.info(EventLog.Category.EDITOR, "No object to delete.");
+        }
+    }
+
+    /**
+     * Queues the removal of every selected object and clears the selection. Does not redraw.
+     */
+    public void deleteSelection() {
+        List<Objects> targets = new ArrayList<>(selection());
+        submit(arena -> arena.removeObjects(targets));
+        clearSelection();
+    }
+
+    /**
+     * Removes objects from the arena in one pass.
+     *
+     * @param targets The objects to remove.
+     */
+    private void removeObjects(List<Objects> targets) {
+        boolean obstacles = false;
+        for (Objects object : targets) {
+            if (object instanceof Obstacle && objects.contains(object)) {
+                if (obstacleRaster != null) {
+                    obstacleRaster.remove((Obstacle) object);
+                }
+                obstacles = true;
+            }
+        }
+        objects.removeAll(targets); // O(1) per object in the slot map
+        if (obstacles) {
+            flowField = null; // rebuilt on next use
+        }
+        objectsEdited();
     }
 
-
-
-
-
     /**
-     * Moves the selected object (robot or obstacle) to a new position.
-     *
-     * @param newX The new x-coordinate.
-     * @param newY The new y-coordinate.
+     * Returns the objects whose bounds overlap a rectangle, in a list reused by the next call.
      */
-    public void moveSelectedObject(double newX, double newY) {
-        if (selectedObject != null) {
-            selectedObject.setXY(newX, newY); // Update the object's position
-            System.out.println("Moved " + selectedObject.getType() + " with ID: " + selectedObject.getObjectID() +
-                               " to: (" + newX + ", " + newY + ")");
-            drawArena(); // Redraw the arena to reflect the changes
-            selectedObject = null; // Deselect the object after moving
-        } else {
-            System.out.println("No object selected to move.");
+    private List<Objects> query(double minX, double minY, double maxX, double maxY) {
+        if (picked == null) {
+            picked = new ArrayList<>();
         }
+        picked.clear();
+        getSpatialIndex().query(minX, minY, maxX, maxY, picked);
+        return picked;
     }
 
-
-    // Getter for selectedObject
-    public Objects getSelectedObject() {
-        return this.selectedObject;
+    /**
+     * Returns whether a point is on an object, within PICK_TOLERANCE of a line obstacle.
+     */
+    private static boolean isUnder(Objects obj, double px, double py) {
+        if (obj instanceof Obstacle && obj.getRad() == 0) {
+            return ObstacleRaster.segmentDistanceSq(px, py, lineSegment(obj)) <= PICK_TOLERANCE * PICK_TOLERANCE;
+        }
+        double dx = px - obj.getX();
+        double dy = py - obj.getY();
+        return dx * dx + dy * dy <= obj.getRad() * obj.getRad();
     }
 
-    // Setter for selectedObject (optional, for setting it externally)
-    public void setSelectedObject(Objects selectedObject) {
-        this.selectedObject = selectedObject;
+    /**
+     * Returns the length of a line obstacle.
+     */
+    private static double lineLength(Objects obj) {
+        double[] seg = lineSegment(obj);
+        return Math.hypot(seg[2] - seg[0], seg[3] - seg[1]);
     }
 
-  
-
- // Fix in handleSelection()
-    public void handleSelection(double mouseX, double mouseY, boolean simulationRunning) {
-        if (simulationRunning) {
-            System.out.println("Cannot move robots or obstacles while simulation is running.");
-            return;
+    /**
+     * Returns the x-coordinate used to decide whether an object is inside a selection area: its centre.
+     */
+    private static double anchorX(Objects obj) {
+        if (obj instanceof Obstacle && obj.getRad() == 0) {
+            double[] seg = lineSegment(obj);
+            return (seg[0] + seg[2]) / 2;
         }
+        return obj.getX();
+    }
 
-        for (Objects obj : objects) {
-            double distance = Math.sqrt(Math.pow(mouseX - obj.getX(), 2) + Math.pow(mouseY - obj.getY(), 2));
-            if (distance <= obj.getRad()) {
-                if (obj instanceof Robot) {
-                    selectedObject = obj;
-                    System.out.println("Selected Robot: " + obj.getType() + " with ID: " + obj.getObjectID());
-                    drawArena(); // Fixed: Removed argument
-                    return;
-                } else if (obj instanceof Obstacle && obj.getRad() > 0) { // Circle obstacle
-                    selectedObject = obj;
-                    System.out.println("Selected Circle Obstacle with ID: " + obj.getObjectID());
-                    drawArena(); // Fixed: Removed argument
-                    return;
-                }
-            }
+    private static double anchorY(Objects obj) {
+        if (obj instanceof Obstacle && obj.getRad() == 0) {
+            double[] seg = lineSegment(obj);
+            return (seg[1] + seg[3]) / 2;
         }
-
-        // No object selected
-        selectedObject = null;
-        System.out.println("No robot or obstacle selected.");
+        return obj.getY();
     }
 
-    // Fix in deleteSelectedObject()
-    public void deleteSelectedObject() {
-        if (selectedObject != null) {
-            System.out.println("Deleted: " + selectedObject.getType() + " with ID: " + selectedObject.getObjectID());
-
-            // Remove the object from the objects list
-            objects.remove(selectedObject);
-
-            // Remove from the visual representation
-            arenaGroup.getChildren().clear(); // Clear existing visuals
-            drawArena(); // Fixed: Removed argument
-
-            // Clear the selection
-            selectedObject = null;
-        } else {
-            System.out.println("No object to delete.");
+    /**
+     * Even-odd test of a point against a polygon.
+     */
+    static boolean insidePolygon(double px, double py, double[] xs, double[] ys, int n) {
+        boolean inside = false;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if ((ys[i] > py) != (ys[j] > py)
+                    && px < (xs[j] - xs[i]) * (py - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                inside = !inside;
+            }
         }
+        return inside;
     }
 
     // Fix in addRegular()
@@ -206,8 +1306,7 @@ public class Arena implements Serializable {
         double y = random.nextDouble(5, this.y - 20);
         NormalRobot robot = new NormalRobot(x, y, 10, 2);
         robot.setColor("BLACK"); // Regular robot color
-        objects.add(robot);
-        drawArena(); // Fixed: Removed argument
+        submit(arena -> arena.insert(robot));
     }
 
     // Fix in addWeak()
@@ -217,8 +1316,7 @@ public class Arena implements Serializable {
         double y = random.nextDouble(5, this.y - 20);
         WeakRobot robot = new WeakRobot(x, y, 10, 3);
         robot.setColor("GREY"); // Weak robot color
-        objects.add(robot);
-        drawArena(); // Fixed: Removed argument
+        submit(arena -> arena.insert(robot));
     }
 
     // Fix in addAvoid()
@@ -228,8 +1326,7 @@ public class Arena implements Serializable {
         double y = random.nextDouble(5, this.y - 20);
         AvoiderRobot robot = new AvoiderRobot(x, y, 10, 3);
         robot.setColor("BLUE"); // Avoider robot color
-        objects.add(robot);
-        drawArena(); // Fixed: Removed argument
+        submit(arena -> arena.insert(robot));
     }
 
     // Fix in addBeamRobot()
@@ -239,8 +1336,7 @@ public class Arena implements Serializable {
         double y = random.nextInt((int) this.y - 100) + 50;
         BeamRobot robot = new BeamRobot(x, y, 10, 0.75);
         robot.setColor("CORAL"); // Beam robot color
-        objects.add(robot);
-        drawArena(); // Fixed: Removed argument
+        submit(arena -> arena.insert(robot));
     }
 
     // Fix in addObstacle()
@@ -253,37 +1349,67 @@ public class Arena implements Serializable {
         if (type.equals("line")) {
             int rotation = random.nextInt(0, 360); // Generate random rotation
 
-            // Create and store a LineObstacle
-            LineObstacle lineObstacle = new LineObstacle(x, y, x + 40, y + 35); // Example line length
-            objects.add(lineObstacle);
-
-            // Render the line obstacle with rotation
-            showObstacle_line(x, y, x + 40, y + 35, rotation);
+            // Create and queue a LineObstacle, the 40 by 35 line turned about its midpoint
+            LineObstacle lineObstacle = LineObstacle.rotated(x + LINE_DX / 2, y + LINE_DY / 2,
+                    Math.hypot(LINE_DX, LINE_DY), Math.toDegrees(Math.atan2(LINE_DY, LINE_DX)) + rotation);
+            submit(arena -> arena.insert(lineObstacle));
         } else if (type.equals("circle")) {
-            // Add the circle obstacle to the list
+            // Queue the circle obstacle
             Obstacle circleObstacle = new Obstacle(x, y, 30); // Set appropriate radius for a circle
-            objects.add(circleObstacle);
-
-            // Render the circle obstacle directly
-            showObstacle_circle(x, y);
+            submit(arena -> arena.insert(circleObstacle));
         }
-        drawArena(); // Redraw the arena
     }
 
+    /**
+     * Adds a line obstacle between two points, for building walls and mazes, at the next tick boundary
+     * @param x1 x coordinate of the start point
+     * @param y1 y coordinate of the start point
+     * @param x2 x coordinate of the end point
+     * @param y2 y coordinate of the end point
+     */
+    public void addLineObstacle(double x1, double y1, double x2, double y2) {
+        LineObstacle line = new LineObstacle(x1, y1, x2, y2);
+        submit(arena -> arena.insert(line));
+    }
 
-
-
+    /**
+     * Adds an object to the arena at once and updates the structures that depend on where objects are. Called
+     * by the tick thread for queued edits, and for worlds built in code, such as the allocation probe's.
+     *
+     * @param object The robot or obstacle.
+     */
+    void insert(Objects object) {
+        objects.add(object);
+        if (object instanceof Obstacle) {
+            obstacleAdded((Obstacle) object);
+        } else {
+            objectsEdited();
+        }
+    }
 
     /**
-     * Clears all the objects in the arena
+     * Clears all the objects in the arena: the selection and visuals at once, the objects at the next tick boundary
      */
     public void clearArena() {
-        objects.clear();             // Clear the list of objects
+        submit(Arena::removeAll);
+        clearSelection();
         arenaGroup.getChildren().clear(); // Clear all visuals in the arena
         circle_count = 0;            // Reset counters for circles
         line_count = 0;              // Reset counters for lines
         beam_count = 0;              // Reset counters for beams
-        System.out.println("Arena cleared.");
+        EventLog.info(EventLog.Category.EDITOR, "Arena cleared.");
+    }
+
+    /**
+     * Removes every object from the arena.
+     */
+    private void removeAll() {
+        objects.clear();             // Clear the list of objects
+        objectsEdited();
+        if (obstacleRaster != null) {
+            obstacleRaster.clear();  // No obstacles left to rasterise
+        }
+        flowField = null;            // Rebuilt without obstacles on next use
     }
 
 
@@ -297,7 +1423,25 @@ public class Arena implements Serializable {
      * @param angle of robot
      */
     public double[] showBeam(double x, double y, double rad, double angle) {
-        double[] ends = new double[2];
+        return showBeam(x, y, rad, angle, rad * 2);
+    }
+
+    /*
+     * displays the beam robot with its beam drawn along the beam angle
+     * @param x width position
+     * @param y height position
+     * @param rad the size
+     * @param angle of the beam in radians
+     * @param length of the beam
+     */
+    public double[] showBeam(double x, double y, double rad, double angle, double length) {
+        if (beamEnds == null) {
+            beamEnds = new double[2];
+        }
+        double[] ends = beamEnds;
+        int heading = Heading.fromRadians(angle);
+        ends[0] = x + length * Heading.cos(heading);
+        ends[1] = y + length * Heading.sin(heading);
 
         // Create and configure the circle
         Circle circle = new Circle();
@@ -307,24 +1451,20 @@ public class Arena implements Serializable {
         circle.setRotate(angle);
         circle.setFill(Color.CORAL);
 
-        circles.add(circle);  // Add to circles list
-
 
         // Create and configure the beam
         Line beam_line = new Line();
         beam_line.setStartX(x);
         beam_line.setStartY(y);
-        beam_line.setEndX(x + rad + 5);
-        beam_line.setEndY(y + rad + 5);
+        beam_line.setEndX(ends[0]);
+        beam_line.setEndY(ends[1]);
         beam_line.setStrokeWidth(5);
 
-        beams.add(beam_line); // Add to beams list
-
 
         // Add visuals to arenaGroup
         arenaGroup.getChildren().addAll(circle, beam_line);
 
-        return ends; // Return end coordinates
+        return ends; // Return end coordinates, overwritten by the next call
     }
 
 
@@ -333,35 +1473,176 @@ public class Arena implements Serializable {
      * checks all robots to see if it needs to change the angle of the robot
      */
     public void checkRobots() {
-        // Temporary list to store objects to be removed
-        List<Objects> toRemove = new ArrayList<>();
-
-        // Use an iterator to safely iterate through the list
-        for (Objects obj : new ArrayList<>(objects)) { // Iterate over a copy to avoid concurrent modification
-            if (obj instanceof Robot) { // Only the robots need to change angles
-                if (obj instanceof BeamRobot) {
-                    // Check beam robot-specific logic
-                    ((BeamRobot) obj).check_BeamRobot(this, objects, ((BeamRobot) obj).getObjectID());
-                } else {
-                    // Check other robots' position
-                    ((Robot) obj).checkRobot(this);
-                }
+        // List to store objects to be removed
+        List<Objects> toRemove = removals();
+        invalidateSpatialIndex(); // robots moved during the last tick
+
+        if (kernels != null) {
+            // The walls are tested for every robot in one pass, see checkStandard
+            robotState.load(objects);
+            kernels.walls(robotState.x, robotState.y, robotState.rad, robotState.count, 0, 65, this.x, this.y,
+                    robotState.flags);
+        }
+        List<RobotBatch> batches = groupRobots(objects, 0);
+        for (int i = 0; i < batches.size(); i++) {
+            RobotBatch batch = batches.get(i);
+            if (batch.count > 0) {
+                batch.behaviour.checkAll(this, batch, toRemove);
+            }
+        }
+
+        // Remove objects after iteration
+        finishChecks(toRemove);
+    }
+
+    /**
+     * Returns the empty list the checks of a tick collect the robots to remove in, reused every tick
+     */
+    private List<Objects> removals() {
+        if (removals == null) {
+            removals = new ArrayList<>();
+        }
+        removals.clear();
+        return removals;
+    }
 
-                // Handle weak robot collisions
-                if (obj instanceof WeakRobot) {
-                    WeakRobot weakRobot = (WeakRobot) obj;
-                    if (weakRobot.isHitObstacle()) { // Example collision logic
-                        toRemove.add(weakRobot); // Mark for removal
+    /**
+     * Sorts robots into one batch per behaviour, reusing the batches of earlier passes. Each robot keeps
+     * its index among the robots of the list, which is its RobotState index when the list is the arena's objects.
+     * @param list the objects to group, non robots and destroyed robots are skipped
+     * @param from the index of the first object to group
+     * @return the batches, some of which may be empty, without a grid to find neighbours
+     */
+    List<RobotBatch> groupRobots(List<? extends Objects> list, int from) {
+        if (batches == null) {
+            batches = new ArrayList<>();
+        }
+        for (int i = 0; i < batches.size(); i++) {
+            batches.get(i).clear();
+        }
+        int n = 0;
+        RobotBatch last = null; // Neighbouring robots are often of one kind
+        for (int i = from; i < list.size(); i++) {
+            Objects object = list.get(i);
+            if (object instanceof Robot) {
+                Robot robot = (Robot) object;
+                if (!robot.destroyed) {
+                    RobotBehaviour behaviour = RobotBehaviours.of(robot);
+                    if (last == null || last.behaviour != behaviour) {
+                        last = batchFor(behaviour);
                     }
+                    last.add(robot, n);
                 }
+                n++;
             }
         }
+        return batches;
+    }
 
-        // Remove objects after iteration
-        objects.removeAll(toRemove);
+    /**
+     * Returns the batch of a behaviour, adding one the first time the behaviour is seen.
+     * There are only a few behaviours, so a scan is quicker than a map.
+     */
+    private RobotBatch batchFor(RobotBehaviour behaviour) {
+        for (int i = 0; i < batches.size(); i++) {
+            if (batches.get(i).behaviour == behaviour) {
+                return batches.get(i);
+            }
+        }
+        RobotBatch batch = new RobotBatch(behaviour);
+        batches.add(batch);
+        return batch;
+    }
 
-        // Reset the robot counter if needed
-        WeakRobot.resetRobotCounter(); // Ensure Weak_robot count is reset
+    /**
+     * The standard checks for a batch of robots: each bounces off the walls it touches, and its contacts
+     * with other robots are queued with contact. With a grid only the robots near each one are tested;
+     * with the kernels each is tested against all the others in one kernel call.
+     * @param batch the robots to check
+     */
+    public void checkStandard(RobotBatch batch) {
+        for (int i = 0; i < batch.count; i++) {
+            Robot robot = batch.robots[i];
+            if (batch.grid != null) {
+                batch.touching[i] = checkRobotNear(robot, batch.grid, batch.slack, batch.sweep, batch.near);
+            } else if (kernels != null) {
+                robot.direction = checkRobotAngleBatched(robot, robotState, batch.index[i]);
+            } else {
+                robot.checkRobot(this); // Check the robot's position
+            }
+        }
+    }
+
+    /**
+     * Records that a robot touched another during the checks. The touched robot's behaviour answers
+     * every contact in finishChecks, once all the robots have been checked.
+     * @param robot the robot that touched
+     * @param other the robot it touched
+     * @param before the direction the robot was heading before its check
+     */
+    public void contact(Robot robot, Robot other, Direction before) {
+        if (contacts == null) {
+            contacts = new ArrayList<>();
+        }
+        RobotBehaviour behaviour = RobotBehaviours.of(other);
+        for (int i = 0; i < contacts.size(); i++) {
+            if (contacts.get(i).behaviour == behaviour) {
+                contacts.get(i).add(robot, other, before);
+                return;
+            }
+        }
+        ContactBatch batch = new ContactBatch(behaviour);
+        batch.add(robot, other, before);
+        contacts.add(batch);
+    }
+
+    /**
+     * Same rules as CheckRobotAngle, using the wall flags and robot arrays in the state
+     * @param self the robot being checked
+     * @param state the robot arrays, with wall flags for every robot
+     * @param index the index of the robot in the arrays
+     * @return the new direction
+     */
+    private Direction checkRobotAngleBatched(Robot self, RobotState state, int index) {
+        Direction direction = self.getDirection();
+        int walls = state.flags[index];
+        Direction answer = bounceOffWalls(direction, walls);
+        if (walls != 0) {
+            reportCollision(self, null); // a wall was hit
+        }
+
+        int hits = kernels.hitting(self.getX(), self.getY(), self.getRad(),
+                state.x, state.y, state.rad, state.count, state.contacts);
+        for (int h = 0; h < hits; h++) {
+            Robot other = state.robots[state.contacts[h]];
+            if (other.destroyed || other.getObjectID() == self.getObjectID()) {
+                continue;
+            }
+            reportCollision(self, other);
+            contact(self, other, direction);
+        }
+        return answer;
+    }
+
+    /**
+     * Robot type specific work done after a robot has been checked
+     * @param robot the robot that was checked
+     * @param toRemove collects robots to remove after the checks
+     */
+    private void afterCheck(Robot robot, List<Objects> toRemove) {
+        // Avoider robots steer away from obstacles before reaching them
+        if (robot instanceof AvoiderRobot && getAvoidanceMode() == AvoidanceMode.FLOW_FIELD) {
+            ((AvoiderRobot) robot).steer(getFlowField());
+        }
+
+        // Handle weak robot collisions
+        if (robot instanceof WeakRobot) {
+            WeakRobot weakRobot = (WeakRobot) robot;
+            if (weakRobot.isHitObstacle()) { // Example collision logic
+                toRemove.add(weakRobot); // Mark for removal
+                reportDestroyed(weakRobot);
+            }
+        }
     }
 
 
@@ -372,22 +1653,142 @@ public class Arena implements Serializable {
      * adjust all the moving objects
      */
     public void adjustRobots() {
-        for (Objects robot : objects) { // Loops through the list
-            if (robot instanceof Robot) { // Only moves robots
-                if (robot instanceof BeamRobot) {
-                    ((BeamRobot) robot).adjustRobot(this, objects); // Pass arena and objects list
-                } else {
-                    ((Robot) robot).adjustRobot();
+        // Moves over more than one tick stop at obstacles, found through the grid, whose obstacles do not move
+        SpatialGrid grid = timeStep != 1 ? getSpatialIndex() : null;
+        invalidateSpatialIndex(); // robots are about to move
+        List<RobotBatch> batches = groupRobots(objects, 0);
+        for (int i = 0; i < batches.size(); i++) {
+            RobotBatch batch = batches.get(i);
+            if (batch.count > 0) {
+                batch.useGrid(grid, 0, timeStep);
+                batch.behaviour.stepAll(this, batch);
+            }
+        }
+    }
+
+    /**
+     * The standard move for a batch of robots: each turns its heading towards its direction and moves
+     * along it by its speed. With the kernels every position is updated in one kernel call; given a grid,
+     * each moves for the batch's sweep, see moveSwept.
+     * @param batch the robots to move
+     */
+    public void stepStandard(RobotBatch batch) {
+        if (batch.grid != null) {
+            int turnRate = sweptTurnRate();
+            for (int i = 0; i < batch.count; i++) {
+                moveSwept(batch.robots[i], batch.grid, batch.sweep, turnRate, batch.near);
+            }
+        } else if (kernels != null) {
+            for (int i = 0; i < batch.count; i++) {
+                Robot robot = batch.robots[i];
+                robot.turn();
+                batch.x[i] = robot.getX();
+                batch.y[i] = robot.getY();
+                batch.vx[i] = robot.getRobotSpeed() * Heading.cos(robot.heading);
+                batch.vy[i] = robot.getRobotSpeed() * Heading.sin(robot.heading);
+            }
+            kernels.move(batch.x, batch.y, batch.vx, batch.vy, batch.count);
+            for (int i = 0; i < batch.count; i++) {
+                batch.robots[i].setXY(batch.x[i], batch.y[i]);
+            }
+        } else {
+            for (int i = 0; i < batch.count; i++) {
+                batch.robots[i].adjustRobot();
+            }
+        }
+    }
+
+    /**
+     * checkRobots for time steps other than 1 - robots also bounce off robots they would meet within the step,
+     * so a pair closing faster than their size per tick cannot pass through each other
+     */
+    private void checkRobotsSwept() {
+        List<Objects> toRemove = removals();
+        invalidateSpatialIndex(); // robots moved during the last tick
+        SpatialGrid grid = getSpatialIndex();
+        double maxSpeed = 0;
+        for (int i = 0; i < objects.size(); i++) {
+            if (objects.get(i) instanceof Robot) {
+                maxSpeed = Math.max(maxSpeed, Math.abs(((Robot) objects.get(i)).getRobotSpeed()));
+            }
+        }
+        double slack = 2 * maxSpeed * timeStep; // how far two robots can close within the step
+        List<RobotBatch> batches = groupRobots(objects, 0);
+        for (int i = 0; i < batches.size(); i++) {
+            RobotBatch batch = batches.get(i);
+            if (batch.count > 0) {
+                batch.useGrid(grid, slack, timeStep);
+                batch.behaviour.checkAll(this, batch, toRemove);
+            }
+        }
+        finishChecks(toRemove);
+    }
+
+    /**
+     * Moves a robot for time steps other than 1, and does obstacleCollision's work for it - it moves along
+     * its heading for the step but stops at the first wall or obstacle it touches on the way, and bounces there.
+     * A robot already touching a wall or obstacle bounces without moving if it is heading further in.
+     * @param robot the robot to move
+     * @param grid an index of the obstacles
+     * @param step the time to move for
+     * @param turnRate the largest smooth turn for the step
+     * @param near scratch list for the obstacle query
+     */
+    private void moveSwept(Robot robot, SpatialGrid grid, double step, int turnRate, List<Objects> near) {
+        robot.turn(turnRate);
+        double x = robot.getX(), y = robot.getY(), rad = robot.getRad();
+        double vx = robot.getRobotSpeed() * step * Heading.cos(robot.heading); // the whole step
+        double vy = robot.getRobotSpeed() * step * Heading.sin(robot.heading);
+
+        // First contact along the move, as a fraction of the step
+        double first = Math.min(1, SweptCollision.outwardWallTime(x, vx, rad, this.x - rad));
+        first = Math.min(first, SweptCollision.outwardWallTime(y, vy, rad + 65, this.y - rad));
+        boolean wall = first < 1;
+        Objects hit = null;
+        double radius = rad + grid.getMaxRad();
+        double reach = Math.sqrt(radius * radius + SweptCollision.CONTACT_BUFFER);
+        near.clear();
+        grid.query(Math.min(x, x + vx) - reach, Math.min(y, y + vy) - reach,
+                Math.max(x, x + vx) + reach, Math.max(y, y + vy) + reach, near);
+        for (int i = 0; i < near.size(); i++) {
+            Objects other = near.get(i);
+            if (other instanceof Obstacle) {
+                double t = SweptCollision.obstacleApproachTime(x, y, vx, vy, rad, other);
+                if (t < first) {
+                    first = t;
+                    hit = other;
+                    wall = false;
                 }
             }
         }
+        robot.setXY(x + first * vx, y + first * vy);
+
+        if (wall) {
+            // Stopped on the wall: bounce as the check would, without leaving the arena
+            robot.setXY(Math.max(rad, Math.min(this.x - rad, robot.getX())),
+                    Math.max(rad + 65, Math.min(this.y - rad, robot.getY())));
+            robot.direction = bounceOffWalls(robot.getDirection(),
+                    wallFlags(robot.getX(), robot.getY(), rad + WALL_CONTACT));
+            reportCollision(robot, null);
+        }
+        if (hit != null) {
+            robot.hit_obstacle(); // Make the robot bounce
+            reportCollision(robot, hit);
+        }
+    }
+
+    /**
+     * Returns the largest smooth turn per tick at the current time step
+     */
+    private int sweptTurnRate() {
+        return (int) Math.min(Robot.SNAP_TURN, Math.round(Robot.TURN_RATE * timeStep));
     }
 
     
 
     /**
-     * checks the angle the robot is at and if it hits any object, robot or wall, it bounces the opposite way
-     * If the robot is a weak robot, it will destroy it
+     * checks the angle the robot is at and if it hits any object, robot or wall, it bounces the opposite way.
+     * The position is only a probe, so touching a robot does not destroy it whatever its kind
      * @param x (the x position of the robot)
      * @param y (the y position of the robot)
      * @param rad (the size of the robot)
@@ -396,36 +1797,35 @@ public class Arena implements Serializable {
      * @return returns the new direction
      */
     public Direction CheckRobotAngle(double x, double y, double rad, Direction direction, int notID){
-        Direction answer = direction; // to stores the answer for the return value
-        // check if the robot hits a wall
-        if (x < rad){// check to see if the robot hit the left wall
-            answer = direction.goEast(); // change direction to east
-        }
+        return checkRobotAngle(null, x, y, rad, direction, notID);
+    }
 
-        if(x > this.x - rad){ // check to see if the robot hit the right wall
-            answer = direction.goWest(); // Change the direction to west
-        }
+    /**
+     * checks the angle of the given robot, see CheckRobotAngle(double, double, double, Direction, int)
+     * @param robot (the robot being checked, reported as the subject of any collision)
+     * @return returns the new direction
+     */
+    public Direction CheckRobotAngle(Robot robot){
+        return checkRobotAngle(robot, robot.getX(), robot.getY(), robot.getRad(), robot.getDirection(), robot.getObjectID());
+    }
 
-        if (y < rad + 65 ){ // check to see if the robot hit the top wall
-            answer = direction.goSouth(); // Change the direction to south
-        }
+    private Direction checkRobotAngle(Robot self, double x, double y, double rad, Direction direction, int notID){
+        int walls = wallFlags(x, y, rad); // check if the robot hits a wall
+        Direction answer = bounceOffWalls(direction, walls); // to stores the answer for the return value
 
-        if(y > this.y - rad){// check to see if the robot hit the bottom wall
-            answer = direction.goNorth();// Change the direction to north
+        if (walls != 0) {
+            reportCollision(self, null); // a wall was hit
         }
-     // Create an iterator to safely remove elements from the list
-        Iterator<Objects> iterator = objects.iterator();
 
         // Check if the robot hit another robot
-        while (iterator.hasNext()) {
-            Objects object = iterator.next();
-            if (object instanceof Robot) {
+        for (int i = 0; i < objects.size(); i++) {
+            Objects object = objects.get(i);
+            if (object instanceof Robot && !((Robot) object).destroyed) {
                 // Check all the robots except the one with the given ID
                 if (object.getObjectID() != notID && ((Robot) object).hitting(x, y, rad)) {
-                    // If it hits another robot, delete the Evil Robot, otherwise update the direction
-                    if ("Weak Robot".equals(object.getType())) {
-                        iterator.remove(); // Safely remove the Evil Robot
-                        Robot.delete_robot(); // decrement robot counter
+                    reportCollision(self, object);
+                    if (self != null) {
+                        contact(self, (Robot) object, direction); // answered by the other robot's behaviour
                     } else {
                         answer = direction.getOpposite();  // Change the direction to opposite of original
                     }
@@ -436,6 +1836,128 @@ public class Arena implements Serializable {
         return answer; // Returns the new direction of the robot
     }
 
+    /**
+     * Returns the walls a robot is touching, as RobotKernels wall flags
+     * @param x (the x position of the robot)
+     * @param y (the y position of the robot)
+     * @param rad (the size of the robot)
+     * @return LEFT, RIGHT, TOP and BOTTOM flags, 0 when clear of the walls
+     */
+    int wallFlags(double x, double y, double rad) {
+        int walls = 0;
+        if (x < rad) { // the left wall
+            walls |= RobotKernels.LEFT;
+        }
+        if (x > this.x - rad) { // the right wall
+            walls |= RobotKernels.RIGHT;
+        }
+        if (y < rad + 65) { // the top wall, below the button bar
+            walls |= RobotKernels.TOP;
+        }
+        if (y > this.y - rad) { // the bottom wall
+            walls |= RobotKernels.BOTTOM;
+        }
+        return walls;
+    }
+
+    /**
+     * Turns a direction away from the walls being touched, the later walls taking precedence
+     * @param direction (the direction the robot is heading)
+     * @param walls (wall flags from wallFlags)
+     * @return the new direction
+     */
+    private static Direction bounceOffWalls(Direction direction, int walls) {
+        Direction answer = direction;
+        if ((walls & RobotKernels.LEFT) != 0) {
+            answer = direction.goEast();
+        }
+        if ((walls & RobotKernels.RIGHT) != 0) {
+            answer = direction.goWest();
+        }
+        if ((walls & RobotKernels.TOP) != 0) {
+            answer = direction.goSouth();
+        }
+        if ((walls & RobotKernels.BOTTOM) != 0) {
+            answer = direction.goNorth();
+        }
+        return answer;
+    }
+
+    /**
+     * Same rules as checkRobots for a single robot, testing only the objects near it. Used by the
+     * collision scheduler, which checks only the robots that have something due.
+     * @param robot the robot to check
+     * @param grid an index of the objects, which may be out of date by up to slack
+     * @param slack how far any robot may have moved since the index was built, or may close on it within sweep
+     * @param sweep robots that would meet within this time, moving along their headings, also count as touching
+     * @param near scratch list for the neighbourhood query
+     * @return true if the robot is touching a wall or another robot
+     */
+    boolean checkRobotNear(Robot robot, SpatialGrid grid, double slack, double sweep, List<Objects> near) {
+        double x = robot.getX(), y = robot.getY(), rad = robot.getRad();
+        Direction direction = robot.getDirection();
+        int walls = wallFlags(x, y, rad);
+        Direction answer = bounceOffWalls(direction, walls);
+        if (walls != 0) {
+            reportCollision(robot, null); // a wall was hit
+        }
+        boolean touching = walls != 0;
+        double reach = Math.sqrt((rad + grid.getMaxRad()) * (rad + grid.getMaxRad()) + 200) + slack; // as in hitting
+        near.clear();
+        grid.query(x - reach, y - reach, x + reach, y + reach, near);
+        for (int i = 0; i < near.size(); i++) {
+            Objects object = near.get(i);
+            if (object instanceof Robot && !((Robot) object).destroyed
+                    && object.getObjectID() != robot.getObjectID()
+                    && (((Robot) object).hitting(x, y, rad) || sweep > 0 && meetWithin(robot, (Robot) object, sweep))) {
+                touching = true;
+                reportCollision(robot, object);
+                contact(robot, (Robot) object, direction);
+            }
+        }
+        robot.direction = answer;
+        return touching;
+    }
+
+    /**
+     * Returns whether two robots touch within a time, each moving along the heading it will turn to next
+     */
+    private boolean meetWithin(Robot a, Robot b, double time) {
+        int rate = sweptTurnRate();
+        int headingA = Heading.turnToward(a.heading, Heading.fromDirection(a.direction), rate, Robot.SNAP_TURN);
+        int headingB = Heading.turnToward(b.heading, Heading.fromDirection(b.direction), rate, Robot.SNAP_TURN);
+        return SweptCollision.robotTime(a.getX(), a.getY(), a.getRobotSpeed() * Heading.cos(headingA),
+                a.getRobotSpeed() * Heading.sin(headingA), a.getRad(),
+                b.getX(), b.getY(), b.getRobotSpeed() * Heading.cos(headingB),
+                b.getRobotSpeed() * Heading.sin(headingB), b.getRad()) <= time;
+    }
+
+    /**
+     * Passes the contacts found during the checks of a tick to the touched robots' behaviours,
+     * then removes the robots marked during the checks
+     * @param toRemove the robots to remove
+     */
+    void finishChecks(List<Objects> toRemove) {
+        if (contacts != null) {
+            for (int i = 0; i < contacts.size(); i++) {
+                ContactBatch batch = contacts.get(i);
+                if (batch.count > 0) {
+                    batch.behaviour.onContact(this, batch);
+                    batch.clear();
+                }
+            }
+        }
+        for (int i = 0; i < toRemove.size(); i++) {
+            ((Robot) toRemove.get(i)).destroyed = true;
+        }
+        if (!toRemove.isEmpty()) {
+            objects.removeAll(toRemove);
+        }
+
+        // Reset the robot counter if needed
+        WeakRobot.resetRobotCounter(); // Ensure Weak_robot count is reset
+    }
+
 
 
     /**
@@ -459,51 +1981,134 @@ public class Arena implements Serializable {
         return counter;
     }
 
+    /**
+     * counts the robots in the arena, used as a stop condition when running ahead
+     * @param type - robot type as returned by getType(), or null for every robot
+     * @return number of robots (int)
+     */
+    public int getNumOfRobots(String type){
+        int counter = 0;
+        for (int i = 0; i < objects.size(); i++) { // checked every tick when running ahead
+            Objects object = objects.get(i);
+            if (object instanceof Robot && (type == null || type.equals(object.getType()))){
+                counter++;
+            }
+        }
+        return counter;
+    }
+
 
 
     /**
      * Separates the list of objects into robots and obstacles
      * checks  whether the current robot is hitting the current object
-     * here we use an iterator to safely remove the weak robot if it's hit
+     * when the obstacle raster is enabled, robots in free cells skip the obstacle tests entirely
      */
     public void obstacleCollision() {
-        // Split the Robots and the obstacles from the objects
-        List<Robot> robots = new ArrayList<>();
-        List<Obstacle> obstacles = new ArrayList<>();
-        
-        // Separate robots and obstacles
-        for (Objects obj : objects) {
-            if (obj instanceof Robot) {
-                robots.add((Robot) obj);
-            } else if (obj instanceof Obstacle) {
-                obstacles.add((Obstacle) obj);
+        // Split the obstacles from the objects, into a list reused every tick
+        if (obstacleScratch == null) {
+            obstacleScratch = new ArrayList<>();
+        }
+        List<Obstacle> obstacles = obstacleScratch;
+        obstacles.clear();
+        for (int i = 0; i < objects.size(); i++) {
+            if (objects.get(i) instanceof Obstacle) {
+                obstacles.add((Obstacle) objects.get(i));
             }
         }
 
+        ObstacleRaster raster = getObstacleRaster();
+
         // Iterate over robots and obstacles to check for collisions
-        for (Robot robot : robots) {
-            for (Obstacle obstacle : obstacles) {
-                if (obstacle.getRad() == 0) { // Line obstacle
-                    // Define line endpoints based on the obstacle's position
-                    double x1 = obstacle.getX();
-                    double y1 = obstacle.getY();
-                    double x2 = obstacle.getX() + 40; // Adjust length as needed
-                    double y2 = obstacle.getY() + 35; // Adjust length as needed
-
-                    // Check collision with the line obstacle
-                    if (isRobotCollidingWithLine(robot.getX(), robot.getY(), robot.getRad(), x1, y1, x2, y2)) {
+        for (int r = 0; r < objects.size(); r++) {
+            if (!(objects.get(r) instanceof Robot)) {
+                continue;
+            }
+            Robot robot = (Robot) objects.get(r);
+            if (raster != null && raster.covers(robot)) {
+                int cell = raster.cellAt(robot.getX(), robot.getY());
+                if (!raster.isOccupied(cell)) {
+                    continue; // No inflated obstacle reaches this cell
+                }
+                Obstacle[] near = raster.candidates(cell);
+                int cover = raster.coverCount(cell); // these need no exact test
+                for (int i = 0; i < near.length && near[i] != null; i++) {
+                    if (i < cover || hitsObstacle(robot, near[i])) {
                         robot.hit_obstacle(); // Make the robot bounce
+                        reportCollision(robot, near[i]);
                     }
-                } else { // Circle obstacle
-                    // Check collision with a circular obstacle
-                    if (robot.hitting(obstacle.getX(), obstacle.getY(), obstacle.getRad())) {
-                        robot.hit_obstacle();
-                    }
+                }
+                continue;
+            }
+            for (int i = 0; i < obstacles.size(); i++) {
+                if (hitsObstacle(robot, obstacles.get(i))) {
+                    robot.hit_obstacle(); // Make the robot bounce
+                    reportCollision(robot, obstacles.get(i));
                 }
             }
         }
     }
 
+    /**
+     * Same rules as obstacleCollision for a single robot, testing only the obstacles near it.
+     * Used by the collision scheduler.
+     * @param robot the robot to test
+     * @param grid an index of the objects, which may be out of date by up to slack
+     * @param slack how far any robot may have moved since the index was built
+     * @param near scratch list for the neighbourhood query
+     * @return true if the robot hit an obstacle
+     */
+    boolean collideObstaclesNear(Robot robot, SpatialGrid grid, double slack, List<Objects> near) {
+        boolean hit = false;
+        ObstacleRaster raster = getObstacleRaster();
+        if (raster != null && raster.covers(robot)) {
+            int cell = raster.cellAt(robot.getX(), robot.getY());
+            if (!raster.isOccupied(cell)) {
+                return false; // No inflated obstacle reaches this cell
+            }
+            Obstacle[] candidates = raster.candidates(cell);
+            int cover = raster.coverCount(cell); // these need no exact test
+            for (int i = 0; i < candidates.length && candidates[i] != null; i++) {
+                if (i < cover || hitsObstacle(robot, candidates[i])) {
+                    robot.hit_obstacle(); // Make the robot bounce
+                    reportCollision(robot, candidates[i]);
+                    hit = true;
+                }
+            }
+            return hit;
+        }
+        double reach = Math.sqrt((robot.getRad() + grid.getMaxRad()) * (robot.getRad() + grid.getMaxRad()) + 200) + slack;
+        near.clear();
+        grid.query(robot.getX() - reach, robot.getY() - reach, robot.getX() + reach, robot.getY() + reach, near);
+        for (int i = 0; i < near.size(); i++) {
+            Objects object = near.get(i);
+            if (object instanceof Obstacle && hitsObstacle(robot, (Obstacle) object)) {
+                robot.hit_obstacle(); // Make the robot bounce
+                reportCollision(robot, object);
+                hit = true;
+            }
+        }
+        return hit;
+    }
+
+    /**
+     * Exact test of a robot against one obstacle
+     * @param robot the robot
+     * @param obstacle the line or circle obstacle
+     * @return true if they are colliding
+     */
+    private boolean hitsObstacle(Robot robot, Obstacle obstacle) {
+        if (obstacle instanceof LineObstacle) {
+            return ((LineObstacle) obstacle).touches(robot.getX(), robot.getY(), robot.getRad());
+        }
+        if (obstacle.getRad() == 0) { // Line obstacle
+            double[] seg = lineSegment(obstacle);
+            return isRobotCollidingWithLine(robot.getX(), robot.getY(), robot.getRad(), seg[0], seg[1], seg[2], seg[3]);
+        }
+        // Check collision with a circular obstacle
+        return robot.hitting(obstacle.getX(), obstacle.getY(), obstacle.getRad());
+    }
+
 
 
     /**
@@ -523,6 +2128,10 @@ public class Arena implements Serializable {
         // Set rotation to the same as direction
 
         circle.setRotate(angle);
+        // Look up the unit vector once, the wheel rotations below reuse it
+        int heading = Heading.fromRadians(angle);
+        double cos = Heading.cos(heading);
+        double sin = Heading.sin(heading);
 
         // Set up two new lines to represent wheels
         Line wheel_1 = new Line();
@@ -535,10 +2144,10 @@ public class Arena implements Serializable {
         double wheelEndY = y - rad;
 
         // Rotate the coordinates based on the robot's direction
-        double wheelStartX_rotated = rotateX(wheelStartX, wheelStartY, x, y, angle);
-        double wheelStartY_rotated = rotateY(wheelStartX, wheelStartY, x, y, angle);
-        double wheelEndX_rotated = rotateX(wheelEndX, wheelEndY, x, y, angle);
-        double wheelEndY_rotated = rotateY(wheelEndX, wheelEndY, x, y, angle);
+        double wheelStartX_rotated = rotateX(wheelStartX, wheelStartY, x, y, cos, sin);
+        double wheelStartY_rotated = rotateY(wheelStartX, wheelStartY, x, y, cos, sin);
+        double wheelEndX_rotated = rotateX(wheelEndX, wheelEndY, x, y, cos, sin);
+        double wheelEndY_rotated = rotateY(wheelEndX, wheelEndY, x, y, cos, sin);
         // Set position of wheel 1
         wheel_1.setStartX(wheelStartX_rotated);
         wheel_1.setStartY(wheelStartY_rotated);
@@ -551,10 +2160,10 @@ public class Arena implements Serializable {
         wheelEndX = x + rad;
         wheelEndY = y + rad;
         // set rotation of wheel 2
-        wheelStartX_rotated = rotateX(wheelStartX, wheelStartY, x, y, angle);
-        wheelStartY_rotated = rotateY(wheelStartX, wheelStartY, x, y, angle);
-        wheelEndX_rotated = rotateX(wheelEndX, wheelEndY, x, y, angle);
-        wheelEndY_rotated = rotateY(wheelEndX, wheelEndY, x, y, angle);
+        wheelStartX_rotated = rotateX(wheelStartX, wheelStartY, x, y, cos, sin);
+        wheelStartY_rotated = rotateY(wheelStartX, wheelStartY, x, y, cos, sin);
+        wheelEndX_rotated = rotateX(wheelEndX, wheelEndY, x, y, cos, sin);
+        wheelEndY_rotated = rotateY(wheelEndX, wheelEndY, x, y, cos, sin);
 
         wheel_2.setStartX(wheelStartX_rotated);
         wheel_2.setStartY(wheelStartY_rotated);
@@ -562,13 +2171,7 @@ public class Arena implements Serializable {
         wheel_2.setEndY(wheelEndY_rotated);
         wheel_2.setStrokeWidth(3);
 
-        // Add wheels to the wheels array
-        wheels.add(wheel_1);
-
-        line_count=line_count+1;
-        wheels.add(wheel_2);
-
-        line_count=line_count+1;
+        line_count=line_count+2;
 
         if ("BLACK".equals(colour)) {
             circle.setFill(Color.BLACK);  // set colour to black
@@ -581,8 +2184,6 @@ public class Arena implements Serializable {
         }
 
 
-        circles.add(circle);  // Add to circles list
-
 
         arenaGroup.getChildren().addAll(circle, wheel_1, wheel_2);
  // add the wheels and circle to the window to represent a robot
@@ -656,11 +2257,12 @@ public class Arena implements Serializable {
 	 * @param y coordinate (double)
 	 * @param centreX coordinate (double)
 	 * @param centreY coordinate (double)
-	 * @param radian angle of circle (double)
+	 * @param cos of the robot's heading (double)
+	 * @param sin of the robot's heading (double)
 	 * @return rotation of x coordinate
 	 */
-	private double rotateX(double x, double y, double centerX, double centerY, double angle) {
-	    return (x - centerX) * Math.cos(angle) - (y - centerY) * Math.sin(angle) + centerX;
+	private double rotateX(double x, double y, double centerX, double centerY, double cos, double sin) {
+	    return (x - centerX) * cos - (y - centerY) * sin + centerX;
 	}
 
 	/*
@@ -669,11 +2271,12 @@ public class Arena implements Serializable {
 	 * @param y coordinate (double)
 	 * @param centreX coordinate (double)
 	 * @param centreY coordinate (double)
-	 * @param radian angle of circle (double)
+	 * @param cos of the robot's heading (double)
+	 * @param sin of the robot's heading (double)
 	 * @return rotation of y coordinate
 	 */
-	private double rotateY(double x, double y, double centerX, double centerY, double angle) {
-	    return (x - centerX) * Math.sin(angle) + (y - centerY) * Math.cos(angle) + centerY;
+	private double rotateY(double x, double y, double centerX, double centerY, double cos, double sin) {
+	    return (x - centerX) * sin + (y - centerY) * cos + centerY;
 	}
 
 	/**
@@ -688,43 +2291,65 @@ public class Arena implements Serializable {
 	 * @param y2 The y-coordinate of the line's end point.
 	 * @return true if the robot collides with the line, false otherwise.
 	 */
-	private boolean isRobotCollidingWithLine(double cx, double cy, double radius, 
+	static boolean isRobotCollidingWithLine(double cx, double cy, double radius, 
 	                                         double x1, double y1, double x2, double y2) {
 	    // Compute the projection of the robot's center onto the line segment
-	    double lineLengthSquared = Math.pow(x2 - x1, 2) + Math.pow(y2 - y1, 2);
-	    double t = ((cx - x1) * (x2 - x1) + (cy - y1) * (y2 - y1)) / lineLengthSquared;
+	    double dx = x2 - x1;
+	    double dy = y2 - y1;
+	    double lineLengthSquared = dx * dx + dy * dy;
+	    double t = lineLengthSquared == 0 ? 0 : ((cx - x1) * dx + (cy - y1) * dy) / lineLengthSquared;
 
 	    // Clamp t to the range [0, 1] to ensure the projection lies on the line segment
 	    t = Math.max(0, Math.min(1, t));
 
-	    // Compute the closest point on the line segment
-	    double closestX = x1 + t * (x2 - x1);
-	    double closestY = y1 + t * (y2 - y1);
-
 	    // Compute the distance between the robot's center and the closest point
-	    double distanceSquared = Math.pow(closestX - cx, 2) + Math.pow(closestY - cy, 2);
+	    double ex = x1 + t * dx - cx;
+	    double ey = y1 + t * dy - cy;
 
 	    // Check if the distance is less than or equal to the robot's radius
-	    return distanceSquared <= Math.pow(radius, 2);
+	    return ex * ex + ey * ey <= radius * radius;
 	}
 
 	/*
 	 * prints out all current objects with their coordinates to the window
 	 */
 	public void printRobotLocations() {
-        Group root = (Group) arenaGroup;
-        root.getChildren().removeIf(node -> node instanceof Text);  // remove text
+        Group root = labelGroup != null ? labelGroup : arenaGroup;
+        if (labels == null) {
+            labels = new ArrayList<>();
+            labelText = new StringBuilder();
+        }
+        double left = camera != null ? camera.getViewWidth() : x; // list to the right of the arena on screen
+        int lines = camera != null ? (int) ((camera.getViewHeight() - 100) / 20) : Integer.MAX_VALUE;
         int i = 0;
-        for (Objects objects : objects) {  // loop through all objects
+        for (Objects objects : visibleObjects()) {  // loop through the objects on screen
+            if (i >= lines) {
+                break; // the rest would be drawn off screen
+            }
 
-            Text text = new Text(objects.getType() + objects.getObjectID() + ": (" + Math.round(objects.getX()) +
-                    ", " + Math.round(objects.getY()) + ")"); // set up text
+            // Reuse the label from the last frame, only making a new string when its text has changed
+            if (i == labels.size()) {
+                labels.add(new Text());
+            }
+            Text text = labels.get(i);
+            labelText.setLength(0);
+            labelText.append(objects.getType()).append(objects.getObjectID()).append(": (")
+                    .append(Math.round(objects.getX())).append(", ").append(Math.round(objects.getY())).append(')');
+            if (!text.getText().contentEquals(labelText)) {
+                text.setText(labelText.toString());
+            }
             // set the location of the text
-            text.setX(x+150);
+            text.setX(left + 150);
             text.setY(100 + i * 20);  // y coordinate dependent on i
-            root.getChildren().add(text);  // add the text to the window
+            if (text.getParent() != root) {
+                root.getChildren().add(text);  // add the text to the window
+            }
             i++;
         }
+        if (i < labels.size()) {
+            root.getChildren().removeAll(labels.subList(i, labels.size())); // robots that left the list
+            labels.subList(i, labels.size()).clear();
+        }
     }
 
 	public int saveFile(String fname) {
@@ -745,36 +2370,41 @@ public class Arena implements Serializable {
             this.arenaGroup = tempGroup;
             this.scene = tempScene;
 
-            System.out.println("Simulation saved successfully to " + fname);
+            EventLog.info(EventLog.Category.FILE, "Simulation saved successfully to " + fname);
 
         } catch (IOException e) {
-            System.err.println("IOException occurred during save: " + e.getMessage());
-            e.printStackTrace();
+            EventLog.error(EventLog.Category.FILE, "IOException occurred during save: " + e.getMessage(), e);
             status = 1;
         }
         return status;
 	}
 
-	public static Arena loadFile(String fname, Group newArenaGroup) {
+	/**
+	 * Reads a saved arena without setting up any JavaFX visuals, for running without a display.
+	 * @param fname the file saved by saveFile
+	 * @return the arena
+	 */
+	public static Arena readFile(String fname) throws IOException, ClassNotFoundException {
         try (FileInputStream fileInputStream = new FileInputStream(fname);
                 ObjectInputStream inputStream = new ObjectInputStream(fileInputStream)) {
+            return (Arena) inputStream.readObject();
+        }
+	}
 
-            Arena loadedArena = (Arena) inputStream.readObject();
+	public static Arena loadFile(String fname, Group newArenaGroup) {
+        try {
+            Arena loadedArena = readFile(fname);
 
             // Reinitialize transient fields
             loadedArena.setArenaGroup(newArenaGroup);
             loadedArena.scene = new Scene(newArenaGroup, loadedArena.x, loadedArena.y);
-            loadedArena.circles = new ArrayList<>();
-            loadedArena.wheels = new ArrayList<>();
-            loadedArena.beams = new ArrayList<>();
 
             loadedArena.drawArena();
-            System.out.println("Simulation loaded successfully from " + fname);
+            EventLog.info(EventLog.Category.FILE, "Simulation loaded successfully from " + fname);
             return loadedArena;
 
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error occurred during load: " + e.getMessage());
-            e.printStackTrace();
+            EventLog.error(EventLog.Category.FILE, "Error occurred during load: " + e.getMessage(), e);
             return null;
 	}
 
@@ -0,0 +1,34 @@
+/**
+ * Enum AvoidanceMode selects how Avoider Robots keep clear of obstacles.
+ */
+package robot_simulator;
+
+/**
+ * Enum for the avoidance mode of the arena.
+ */
+public enum AvoidanceMode {
+    REACTIVE,   // Avoider robots bounce off obstacles after contact, like every other robot
+    FLOW_FIELD; // Avoider robots steer away from obstacles using the arena's shared distance field
+
+    /**
+     * Parses a mode name, accepting "flow" as a short form of FLOW_FIELD.
+     *
+     * @param name     The mode name, case insensitive.
+     * @param fallback The mode to return if the name is not recognised.
+     * @return The matching mode.
+     */
+    public static AvoidanceMode parse(String name, AvoidanceMode fallback) {
+        if (name == null) {
+            return fallback;
+        }
+        if ("flow".equalsIgnoreCase(name.trim())) {
+            return FLOW_FIELD;
+        }
+        for (AvoidanceMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        return fallback;
+    }
+}
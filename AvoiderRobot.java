@@ -5,6 +5,7 @@
 package robot_simulator;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Class for the AvoiderRobot - inherits from the Robot class.
@@ -83,6 +84,16 @@ public class AvoiderRobot extends Robot implements Serializable {
         }).start();
     }
 
+    /**
+     * Steers the robot away from obstacles and walls using the arena's shared flow field.
+     * Used in place of avoid when the arena is in FLOW_FIELD avoidance mode.
+     *
+     * @param field The flow field of the arena.
+     */
+    public void steer(FlowField field) {
+        direction = field.steer(x, y, direction);
+    }
+
     /**
      * Sets the hitObstacle status for the robot.
      *
@@ -101,4 +112,32 @@ public class AvoiderRobot extends Robot implements Serializable {
     public String getType() {
         return "Avoider Robot";
     }
+
+    /**
+     * Behaviour of avoider robots - the standard rules, then in FLOW_FIELD mode each robot steers away
+     * from obstacles before reaching them.
+     */
+    static final class Behaviour implements RobotBehaviour {
+        @Override
+        public Class<? extends Robot> robotClass() {
+            return AvoiderRobot.class;
+        }
+
+        @Override
+        public void checkAll(Arena arena, RobotBatch batch, List<Objects> toRemove) {
+            arena.checkStandard(batch);
+            if (arena.getAvoidanceMode() == AvoidanceMode.FLOW_FIELD) {
+                FlowField field = arena.getFlowField();
+                for (int i = 0; i < batch.size(); i++) {
+                    ((AvoiderRobot) batch.get(i)).steer(field);
+                }
+            }
+        }
+
+        @Override
+        public boolean isBallistic(Arena arena, Robot robot) {
+            // Steered every tick
+            return arena.getAvoidanceMode() != AvoidanceMode.FLOW_FIELD && !((AvoiderRobot) robot).isHitObstacle();
+        }
+    }
 }
@@ -5,7 +5,7 @@
 package robot_simulator;
 
 import java.io.Serializable;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,7 +17,14 @@ public class BeamRobot extends Robot implements Serializable {
     private boolean hitObstacle = false; // Indicates whether the robot is hitting an obstacle
     private double beamX; // X-coordinate of the beam's endpoint
     private double beamY; // Y-coordinate of the beam's endpoint
-    private double beam_angle; // Angle in radians for the beam direction
+    private double beamLength; // Length of the beam up to the first thing it hits
+
+    static final double BEAM_RANGE = 60; // How far the beam can sense
+    static final int BEAM_TURN = Heading.fromRadians(0.2); // Turn made when the beam or body meets something
+
+    private transient Objects sensed; // The robot or obstacle currently in the beam, null if none
+    private transient SpatialGrid.RayHit rayHit; // Scratch result for the beam ray cast
+    private transient List<Objects> nearby; // Scratch list for the contact query
 
     /**
      * Constructs a BeamRobot at a specified position, size, and speed.
@@ -29,7 +36,7 @@ public class BeamRobot extends Robot implements Serializable {
      */
     public BeamRobot(double x, double y, double rad, double robotSpeed) {
         super(x, y, rad, robotSpeed); // Call the constructor of the parent Robot class
-        this.beam_angle = Math.toRadians(direction.getAngle()); // Calculate the initial beam angle in radians
+        this.beamLength = rad * 2;
     }
 
     /**
@@ -43,6 +50,24 @@ public class BeamRobot extends Robot implements Serializable {
         this.beamY = beam_y;
     }
 
+    /**
+     * Returns the length of the beam, up to the first robot, obstacle or wall it hits.
+     *
+     * @return The beam length.
+     */
+    public double getBeamLength() {
+        return beamLength;
+    }
+
+    /**
+     * Returns the robot or obstacle the beam is currently touching.
+     *
+     * @return The sensed object, or null if the beam is clear or ends on a wall.
+     */
+    public Objects getSensed() {
+        return sensed;
+    }
+
     /**
      * Checks if the robot is hitting an obstacle.
      *
@@ -62,61 +87,89 @@ public class BeamRobot extends Robot implements Serializable {
     }
 
     /**
-     * Adjusts the movement of the BeamRobot, updating its position and beam visuals.
+     * Adjusts the movement of the BeamRobot, updating its position and keeping the beam attached to it.
+     * Beam robots steer their heading directly rather than turning towards a Direction.
      *
      * @param myArena The arena in which the robot moves.
      * @param objects The list of all objects in the arena.
      */
     public void adjustRobot(Arena myArena, List<Objects> objects) {
-        // Move the BeamRobot
-        x += RobotSpeed * Math.cos(beam_angle); // Update X position
-        y += RobotSpeed * Math.sin(beam_angle); // Update Y position
+        // Move the BeamRobot, by its speed for each unit of the arena's time step
+        double step = RobotSpeed * myArena.getTimeStep();
+        x += step * Heading.cos(heading); // Update X position
+        y += step * Heading.sin(heading); // Update Y position
 
         // Bounce off walls
         if (x < rad || x > myArena.getX() - rad) {
-            beam_angle = Math.PI - beam_angle; // Reflect horizontally
+            heading = Heading.reflectX(heading); // Reflect horizontally
+            myArena.reportCollision(this, null);
         }
         if (y < rad + 65 || y > myArena.getY() - rad) {
-            beam_angle = -beam_angle; // Reflect vertically
+            heading = Heading.reflectY(heading); // Reflect vertically
+            myArena.reportCollision(this, null);
         }
 
-        // Update the beam visuals
-        double beamEndX = x + rad * 2 * Math.cos(beam_angle);
-        double beamEndY = y + rad * 2 * Math.sin(beam_angle);
-        set_beam(beamEndX, beamEndY);
-        myArena.showBeam(x, y, rad, beam_angle);
+        // Move the beam end with the robot
+        set_beam(x + beamLength * Heading.cos(heading), y + beamLength * Heading.sin(heading));
     }
 
     /**
-     * Checks the position of the BeamRobot and handles collisions with walls or other robots.
+     * Casts the beam through the arena's spatial index to find the first robot, obstacle or wall in range,
+     * turns away from anything the beam senses close by, and handles contact with other robots.
      *
      * @param myArena The arena in which the robot moves.
      * @param objects The list of all objects in the arena.
      * @param notID   The ID of the current robot (used to ignore itself).
      */
     public void check_BeamRobot(Arena myArena, List<Objects> objects, int notID) {
-        // Check if the beam hits a wall
-        if (beamX < rad || beamX > myArena.getX() - rad || beamY < rad + 65 || beamY > myArena.getY() - rad) {
-            beam_angle += 0.2; // Slightly adjust the angle to prevent sticking to walls
+        SpatialGrid grid = myArena.getSpatialIndex();
+        if (rayHit == null) {
+            rayHit = new SpatialGrid.RayHit();
+            nearby = new ArrayList<>();
         }
 
-        // Check collisions with other robots
-        Iterator<Objects> iterator = objects.iterator();
-        while (iterator.hasNext()) {
-            Objects object = iterator.next();
+        // Cast the beam, the walls are the same limits used for the robot's own bounce
+        if (grid.raycast(x, y, Heading.cos(heading), Heading.sin(heading), BEAM_RANGE, this,
+                rad, rad + 65, myArena.getX() - rad, myArena.getY() - rad, rayHit)) {
+            beamLength = rayHit.distance;
+            sensed = rayHit.object;
+        } else {
+            beamLength = BEAM_RANGE;
+            sensed = null;
+        }
+        set_beam(x + beamLength * Heading.cos(heading), y + beamLength * Heading.sin(heading));
+
+        // Turn away from walls, obstacles and robots close ahead - Weak Robots are left alone as prey
+        if (beamLength < rad * 3 && !(sensed instanceof WeakRobot)) {
+            heading = Heading.add(heading, BEAM_TURN); // Slightly adjust the angle to prevent sticking to walls
+        }
+
+        // Check collisions with robots in the neighbourhood
+        double reach = Math.sqrt((rad + grid.getMaxRad()) * (rad + grid.getMaxRad()) + 200); // As in hitting
+        nearby.clear();
+        grid.query(x - reach, y - reach, x + reach, y + reach, nearby);
+        for (int i = 0; i < nearby.size(); i++) {
+            Objects object = nearby.get(i);
             if (object instanceof Robot) {
                 // Skip the current robot
                 if (object.getObjectID() != notID && ((Robot) object).hitting(x, y, rad)) {
-                    // Handle collision with another robot
-                    if ("Weak Robot".equals(object.getType())) {
-                        iterator.remove(); // Safely remove the weak robot
-                        Robot.delete_robot(); // Decrement the robot counter
-                    } else {
-                        beam_angle += 0.2; // Adjust the angle for collision
-                    }
+                    // Handle collision with another robot, answered by its behaviour after the checks
+                    myArena.reportCollision(this, object);
+                    myArena.contact(this, (Robot) object, direction);
                 }
             }
         }
+        nearby.clear();
+    }
+
+    /**
+     * Turns slightly away from a robot it touched, rather than reversing.
+     *
+     * @param before The direction the robot was heading before its check, unused by beam robots.
+     */
+    @Override
+    protected void bounce(Direction before) {
+        heading = Heading.add(heading, BEAM_TURN);
     }
 
     /**
@@ -128,4 +181,42 @@ public class BeamRobot extends Robot implements Serializable {
     public String getType() {
         return "Beam Robot";
     }
+
+    /**
+     * Behaviour of beam robots - they sense with the beam and steer their heading every tick,
+     * so the collision scheduler never predicts them.
+     */
+    static final class Behaviour implements RobotBehaviour {
+        @Override
+        public Class<? extends Robot> robotClass() {
+            return BeamRobot.class;
+        }
+
+        @Override
+        public void checkAll(Arena arena, RobotBatch batch, List<Objects> toRemove) {
+            for (int i = 0; i < batch.size(); i++) {
+                BeamRobot robot = (BeamRobot) batch.get(i);
+                robot.check_BeamRobot(arena, arena.getObjects(), robot.getObjectID());
+                batch.setTouching(i, true); // Checked every tick anyway
+            }
+        }
+
+        @Override
+        public void stepAll(Arena arena, RobotBatch batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                ((BeamRobot) batch.get(i)).adjustRobot(arena, arena.getObjects()); // Beam robots bounce as they move
+            }
+        }
+
+        @Override
+        public boolean isBallistic(Arena arena, Robot robot) {
+            return false;
+        }
+
+        @Override
+        public void draw(Arena arena, Robot robot) {
+            arena.showBeam(robot.getX(), robot.getY(), robot.getRad(), robot.getRadAngle(),
+                    ((BeamRobot) robot).getBeamLength());
+        }
+    }
 }
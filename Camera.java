@@ -0,0 +1,181 @@
+/**
+ * Camera maps the arena (the world) onto the part of the window that shows it,
+ * so worlds larger than the window can be panned, zoomed and followed.
+ */
+package robot_simulator;
+
+import javafx.scene.transform.Affine;
+
+/**
+ * Class for the camera - the visible rectangle of the world and the transform that draws it.
+ * Positions on screen are relative to the top left of the view.
+ */
+public class Camera {
+    static final double MAX_ZOOM = 8; // Closest zoom, in screen pixels per world unit
+
+    private final double worldWidth, worldHeight; // Size of the arena
+    private final double viewWidth, viewHeight; // Size of the view, in screen pixels
+    private final double minZoom; // Furthest zoom, shows the whole world
+    private double centreX, centreY; // World point at the centre of the view
+    private double zoom = 1; // Screen pixels per world unit
+    private long followHandle = SlotMap.NO_HANDLE; // Object kept in the centre of the view, if any
+    private final Affine transform = new Affine(); // World to view transform, updated in place
+
+    /**
+     * Creates a camera at zoom 1 showing the top left of the world.
+     *
+     * @param worldWidth  The arena width.
+     * @param worldHeight The arena height.
+     * @param viewWidth   The width of the view, in screen pixels.
+     * @param viewHeight  The height of the view, in screen pixels.
+     */
+    public Camera(double worldWidth, double worldHeight, double viewWidth, double viewHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.minZoom = Math.min(1, Math.min(viewWidth / worldWidth, viewHeight / worldHeight));
+        this.centreX = viewWidth / 2;
+        this.centreY = viewHeight / 2;
+        sync();
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public double getViewWidth() {
+        return viewWidth;
+    }
+
+    public double getViewHeight() {
+        return viewHeight;
+    }
+
+    // Visible rectangle of the world
+    public double getMinX() {
+        return centreX - viewWidth / (2 * zoom);
+    }
+
+    public double getMinY() {
+        return centreY - viewHeight / (2 * zoom);
+    }
+
+    public double getMaxX() {
+        return centreX + viewWidth / (2 * zoom);
+    }
+
+    public double getMaxY() {
+        return centreY + viewHeight / (2 * zoom);
+    }
+
+    /**
+     * Converts a position in the view to world coordinates.
+     */
+    public double toWorldX(double screenX) {
+        return getMinX() + screenX / zoom;
+    }
+
+    public double toWorldY(double screenY) {
+        return getMinY() + screenY / zoom;
+    }
+
+    /**
+     * Returns the transform from world to view coordinates. The same object is updated as the camera moves,
+     * so it only needs adding to the arena's transforms once.
+     */
+    public Affine getTransform() {
+        return transform;
+    }
+
+    /**
+     * Moves the view by a distance on screen, as when dragging the world. Stops following.
+     *
+     * @param dx The screen x distance.
+     * @param dy The screen y distance.
+     */
+    public void pan(double dx, double dy) {
+        followHandle = SlotMap.NO_HANDLE;
+        centreX -= dx / zoom;
+        centreY -= dy / zoom;
+        sync();
+    }
+
+    /**
+     * Zooms by a factor, keeping the world point under a screen position in place.
+     *
+     * @param factor  The zoom multiplier, above 1 to zoom in.
+     * @param screenX The x position in the view to zoom around.
+     * @param screenY The y position in the view to zoom around.
+     */
+    public void zoomAt(double factor, double screenX, double screenY) {
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        zoom = Math.max(minZoom, Math.min(MAX_ZOOM, zoom * factor));
+        centreX = worldX - (screenX - viewWidth / 2) / zoom;
+        centreY = worldY - (screenY - viewHeight / 2) / zoom;
+        sync();
+    }
+
+    /**
+     * Returns to zoom 1 at the top left of the world and stops following.
+     */
+    public void reset() {
+        followHandle = SlotMap.NO_HANDLE;
+        zoom = 1;
+        centreX = viewWidth / 2;
+        centreY = viewHeight / 2;
+        sync();
+    }
+
+    /**
+     * Keeps an object in the centre of the view until it is removed or the view is panned.
+     *
+     * @param handle The object's handle from Arena.getHandle, or SlotMap.NO_HANDLE to stop following.
+     */
+    public void follow(long handle) {
+        followHandle = handle;
+    }
+
+    public boolean isFollowing() {
+        return followHandle != SlotMap.NO_HANDLE;
+    }
+
+    /**
+     * Centres the view on the followed object, once per frame.
+     *
+     * @param arena The arena holding the followed object.
+     */
+    public void update(Arena arena) {
+        if (followHandle == SlotMap.NO_HANDLE) {
+            return;
+        }
+        Objects target = arena.getObject(followHandle);
+        if (target == null) {
+            followHandle = SlotMap.NO_HANDLE; // Removed from the arena
+            return;
+        }
+        centreX = target.getX();
+        centreY = target.getY();
+        sync();
+    }
+
+    /**
+     * Keeps the view over the world and updates the transform.
+     */
+    private void sync() {
+        centreX = clamp(centreX, viewWidth / (2 * zoom), worldWidth);
+        centreY = clamp(centreY, viewHeight / (2 * zoom), worldHeight);
+        transform.setToTransform(zoom, 0, -getMinX() * zoom, 0, zoom, -getMinY() * zoom);
+    }
+
+    /**
+     * Clamps a centre coordinate so the view stays inside the world, or centres the world if it is smaller.
+     */
+    private static double clamp(double centre, double half, double world) {
+        if (2 * half >= world) {
+            return world / 2;
+        }
+        return Math.max(half, Math.min(world - half, centre));
+    }
+}
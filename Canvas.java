@@ -5,8 +5,13 @@
 package robot_simulator;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
@@ -15,13 +20,25 @@ import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.Rectangle;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
@@ -39,6 +56,35 @@ public class Canvas extends Application implements Serializable {
     double height; // Height of the arena
     public Stage windowStage; // The primary stage for the application
     Timeline tl = new Timeline(); // Timeline for animation control
+    static final double TICK_MILLIS = 10; // Timeline frame period, and the wall-clock time of one tick
+    static final double MIN_FPS = 30; // Drawing may be thinned out to keep the simulation real-time, but not below this
+    QualityController quality = new QualityController(TICK_MILLIS, MIN_FPS); // Sheds optional work when frames run long
+    static final int FRAME_INTERVAL = 4; // Ticks between exported frames, 25 frames per simulated second
+    static final double RUN_CHUNK_MILLIS = 50; // Computing time per frame when running ahead, keeps the window responsive
+    private Predicate<Arena> runUntil; // Stop condition while running ahead without drawing, null otherwise
+    private String runGoal; // Description of the stop condition, for the log
+    private long runToTick; // Tick a run ahead stops at, or -1 when it stops on another condition
+    private long runStartTick, runStartNanos; // Where and when running ahead started
+    protected Group overlay = new Group(); // Editor feedback drawn over the arena, such as the selection area
+    protected Group labelGroup = new Group(); // Robot location list, drawn beside the view
+    private Camera camera; // Part of the arena shown in the view
+    double viewWidth, viewHeight; // Size of the view showing the arena, in screen pixels
+    private double panX, panY; // Last mouse position while panning
+    static final double MAX_VIEW_WIDTH = 1200; // Larger arenas are shown through a view of this size
+    static final double MAX_VIEW_HEIGHT = 800;
+    private double dragStartX, dragStartY; // Where the current selection drag started
+    private Rectangle rubberBand; // Rectangle being dragged out, null when not dragging
+    private Polyline lasso; // Lasso being drawn (shift-drag), null when not dragging
+    private SnapshotClient remote; // Remote simulation being watched, null when showing this one
+    private final ImageView remoteView = new ImageView(); // The remote simulation, drawn over the view while watching
+    private SoftwareRenderer remoteRenderer; // Draws remote frames, sized to the view and the remote arena
+    private long remoteTick = -1; // Tick of the last remote frame drawn
+    private final AnimationTimer remoteTimer = new AnimationTimer() { // Draws the latest remote frame each pulse
+        @Override
+        public void handle(long now) {
+            showRemote();
+        }
+    };
 
     /**
      * Starts the application by prompting the user to set the arena dimensions.
@@ -65,7 +111,7 @@ public class Canvas extends Application implements Serializable {
                 this.height = Integer.parseInt(heightTextField.getText());
                 showWindow(primaryStage, this.width, this.height);
             } catch (NumberFormatException ex) {
-                System.out.println("Invalid number");
+                EventLog.warn(EventLog.Category.EDITOR, "Invalid number");
             }
         });
 
@@ -85,33 +131,49 @@ public class Canvas extends Application implements Serializable {
      */
     public void showWindow(Stage primaryStage, double width, double height) {
         tl.setCycleCount(Animation.INDEFINITE);
-        KeyFrame start = new KeyFrame(Duration.seconds(.0100), (ActionEvent event) -> begin());
+        KeyFrame start = new KeyFrame(Duration.millis(TICK_MILLIS), (ActionEvent event) -> begin());
         tl.getKeyFrames().add(start);
         tl.pause();
 
         if (arenaGroup == null) {
             arenaGroup = new Group();
         }
+        viewWidth = Math.min(width, MAX_VIEW_WIDTH);
+        viewHeight = Math.min(height, MAX_VIEW_HEIGHT);
         myArena = new Arena(width, height, arenaGroup);
+        configureArena(myArena);
 
+        Group view = new Group(arenaGroup); // Clips the arena to the view, the camera transform is on arenaGroup
+        view.setClip(new Rectangle(viewWidth, viewHeight));
         Group root = new Group();
-        root.getChildren().addAll(arenaGroup, uiContainer);
-        Scene scene = new Scene(root, width * 2, height * 1.2);
+        remoteView.setVisible(false);
+        root.getChildren().addAll(view, remoteView, labelGroup, overlay, uiContainer);
+        Scene scene = new Scene(root, viewWidth * 2, viewHeight * 1.2);
 
         setupUI();
 
+        scene.setOnMousePressed(this::startDragSelection);
+        scene.setOnMouseDragged(this::updateDragSelection);
+        scene.setOnMouseReleased(this::finishDragSelection);
+        scene.setOnScroll(this::zoomView);
         scene.setOnMouseClicked(event -> {
-            double mouseX = event.getX();
-            double mouseY = event.getY();
+            if (!event.isStillSincePress() || event.getButton() != MouseButton.PRIMARY || !inView(event)) {
+                return; // A drag (handled by finishDragSelection), or not a click on the arena
+            }
+            double mouseX = camera.toWorldX(event.getX());
+            double mouseY = camera.toWorldY(event.getY());
 
             if (!myArena.isSimulationRunning()) {
-                if (myArena.getSelectedObject() == null) {
+                if (event.isControlDown()) {
+                    myArena.selectAt(mouseX, mouseY, true); // Add to or remove from the selection
+                } else if (myArena.getSelectedObject() == null) {
                     myArena.handleSelection(mouseX, mouseY, myArena.isSimulationRunning());
                 } else {
                     myArena.moveSelectedObject(mouseX, mouseY);
+                    showEdits();
                 }
             } else {
-                System.out.println("Simulation is running. Cannot select or move objects.");
+                EventLog.warn(EventLog.Category.EDITOR, "Simulation is running. Cannot select or move objects.");
             }
         });
 
@@ -123,6 +185,133 @@ public class Canvas extends Application implements Serializable {
         primaryStage.close();
     }
 
+    /**
+     * Starts a rubber-band selection, or a lasso when shift is held.
+     *
+     * @param event The mouse press.
+     */
+    private void startDragSelection(MouseEvent event) {
+        if (!inView(event)) {
+            return;
+        }
+        if (event.getButton() == MouseButton.SECONDARY || event.getButton() == MouseButton.MIDDLE) {
+            panX = event.getX(); // Secondary or middle drags pan the view
+            panY = event.getY();
+            return;
+        }
+        if (myArena.isSimulationRunning() || event.getButton() != MouseButton.PRIMARY) {
+            return; // Only primary drags select
+        }
+        dragStartX = event.getX();
+        dragStartY = event.getY();
+        if (event.isShiftDown()) {
+            lasso = new Polyline(dragStartX, dragStartY);
+            lasso.setStroke(Color.DODGERBLUE);
+            overlay.getChildren().add(lasso);
+        } else {
+            rubberBand = new Rectangle(dragStartX, dragStartY, 0, 0);
+            rubberBand.setFill(Color.DODGERBLUE.deriveColor(0, 1, 1, 0.15));
+            rubberBand.setStroke(Color.DODGERBLUE);
+            overlay.getChildren().add(rubberBand);
+        }
+    }
+
+    /**
+     * Follows the mouse with the rubber band or lasso.
+     *
+     * @param event The mouse drag.
+     */
+    private void updateDragSelection(MouseEvent event) {
+        if (event.isSecondaryButtonDown() || event.isMiddleButtonDown()) {
+            camera.pan(event.getX() - panX, event.getY() - panY);
+            panX = event.getX();
+            panY = event.getY();
+            drawWorld();
+        } else if (rubberBand != null) {
+            rubberBand.setX(Math.min(dragStartX, event.getX()));
+            rubberBand.setY(Math.min(dragStartY, event.getY()));
+            rubberBand.setWidth(Math.abs(event.getX() - dragStartX));
+            rubberBand.setHeight(Math.abs(event.getY() - dragStartY));
+        } else if (lasso != null) {
+            lasso.getPoints().addAll(event.getX(), event.getY());
+        }
+    }
+
+    /**
+     * Selects the objects inside the rubber band or lasso. Ctrl adds to the current selection.
+     *
+     * @param event The mouse release.
+     */
+    private void finishDragSelection(MouseEvent event) {
+        boolean dragged = !event.isStillSincePress();
+        if (rubberBand != null && dragged) {
+            myArena.selectRect(camera.toWorldX(dragStartX), camera.toWorldY(dragStartY),
+                    camera.toWorldX(event.getX()), camera.toWorldY(event.getY()), event.isControlDown());
+        } else if (lasso != null && dragged) {
+            int n = lasso.getPoints().size() / 2;
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = camera.toWorldX(lasso.getPoints().get(2 * i));
+                ys[i] = camera.toWorldY(lasso.getPoints().get(2 * i + 1));
+            }
+            myArena.selectLasso(xs, ys, n, event.isControlDown());
+        }
+        overlay.getChildren().clear();
+        rubberBand = null;
+        lasso = null;
+    }
+
+    /**
+     * Zooms the view around the mouse with the scroll wheel.
+     *
+     * @param event The scroll.
+     */
+    private void zoomView(ScrollEvent event) {
+        if (event.getDeltaY() == 0 || event.getX() > viewWidth || event.getY() > viewHeight) {
+            return;
+        }
+        camera.zoomAt(event.getDeltaY() > 0 ? 1.1 : 1 / 1.1, event.getX(), event.getY());
+        drawWorld();
+    }
+
+    /**
+     * Returns whether a mouse event is over the view of the arena.
+     */
+    private boolean inView(MouseEvent event) {
+        return event.getX() <= viewWidth && event.getY() <= viewHeight;
+    }
+
+    /**
+     * Applies the engine options given as system properties to an arena.
+     *
+     * @param arena The new or loaded arena.
+     */
+    private void configureArena(Arena arena) {
+        // Obstacle raster cell size, -Drobot.raster.cell=0 tests every robot against every obstacle
+        arena.setObstacleRaster(Double.parseDouble(System.getProperty("robot.raster.cell", "4")));
+        // Avoider robot behaviour, -Drobot.avoidance=flow steers with the flow field; unset, an arena keeps its own
+        // mode, REACTIVE unless it was saved in another
+        arena.setAvoidanceMode(AvoidanceMode.parse(System.getProperty("robot.avoidance"), arena.getAvoidanceMode()));
+        // Movement and collision kernels, -Drobot.kernels=vector|scalar|off (auto uses vector when available)
+        arena.setKernels(System.getProperty("robot.kernels", "auto"));
+        // Collision engine, -Drobot.engine=events checks robots only when a contact is predicted
+        arena.setEventDriven("events".equalsIgnoreCase(System.getProperty("robot.engine", "ticks")));
+        // Simulated time per tick, -Drobot.step=10 runs a tenth of the ticks with swept collision tests
+        arena.setTimeStep(Double.parseDouble(System.getProperty("robot.step", "1")));
+        // Level of detail, -Drobot.detail=full|sprites|circle|point|heatmap fixes it (auto chooses per frame)
+        arena.setDetailLevel(DetailLevel.parse(System.getProperty("robot.detail", "auto")));
+        arena.setAdaptiveDetail(false); // The quality controller sets the detail bias
+        // Robot drawing, -Drobot.paths=true merges robots into a few Path nodes instead of sprites or nodes per robot
+        arena.setMergedPaths(Boolean.getBoolean("robot.paths"));
+
+        // A new camera for the arena's size, drawing only what is in view
+        camera = new Camera(arena.getX(), arena.getY(), viewWidth, viewHeight);
+        arena.setCamera(camera);
+        arena.setLabelGroup(labelGroup);
+        arenaGroup.getTransforms().setAll(camera.getTransform());
+    }
+
     /**
      * Sets up the user interface with buttons and menu options.
      */
@@ -136,31 +325,108 @@ public class Canvas extends Application implements Serializable {
         Button addObstacleButtonLine = new Button("Add Line Obstacle");
         Button addObstacleButtonCircle = new Button("Add Circle Obstacle");
         Button deleteButton = new Button("Delete Selected");
+        Button followButton = new Button("Follow Selected");
+        Button resetViewButton = new Button("Reset View");
+        ComboBox<String> speedBox = new ComboBox<>();
+        speedBox.getItems().addAll("1x", "2x", "10x", "Max");
+        speedBox.setValue("1x");
+        ComboBox<String> runConditionBox = new ComboBox<>();
+        runConditionBox.getItems().addAll("Tick", "Robots at most", "Weak Robots at most");
+        runConditionBox.setValue("Tick");
+        TextField runTargetField = new TextField();
+        runTargetField.setPromptText("N");
+        runTargetField.setPrefColumnCount(6);
+        Button runButton = new Button("Run To");
 
         startButton.setOnAction(e -> {
+            quality.reset(); // Do not try to catch up on the time spent paused
             tl.play(); // Start the simulation timeline
             myArena.setSimulationRunning(true); // Mark simulation as running
-            System.out.println("Simulation started.");
+            EventLog.info(EventLog.Category.SIMULATION, "Simulation started.");
         });
 
         stopButton.setOnAction(e -> {
+            runUntil = null; // Abandon running ahead
             tl.pause(); // Pause the simulation
             myArena.setSimulationRunning(false); // Mark simulation as not running
+            EventLog.info(EventLog.Category.SIMULATION, "Simulation stopped at tick " + myArena.getTickCount() + ", "
+                    + quality.getDroppedTicks() + " ticks dropped, " + quality.describe() + ".");
+        });
+
+        speedBox.setOnAction(e -> {
+            String speed = speedBox.getValue();
+            quality.setSpeed(speed.equals("Max") ? QualityController.MAX_SPEED
+                    : Double.parseDouble(speed.substring(0, speed.length() - 1)));
         });
 
-        addNormRobotButton.setOnAction(e -> myArena.addRegular());
-        addWeakRobotButton.setOnAction(e -> myArena.addWeak());
-        addBeamRobotButton.setOnAction(e -> myArena.addBeamRobot());
-        addAvoidRobotButton.setOnAction(e -> myArena.addAvoid());
-        addObstacleButtonLine.setOnAction(e -> myArena.addObstacle("line"));
-        addObstacleButtonCircle.setOnAction(e -> myArena.addObstacle("circle"));
+        runButton.setOnAction(e -> {
+            long target;
+            try {
+                target = Long.parseLong(runTargetField.getText().trim());
+            } catch (NumberFormatException ex) {
+                EventLog.warn(EventLog.Category.SIMULATION, "Run To needs a whole number, got '" + runTargetField.getText() + "'.");
+                return;
+            }
+            switch (runConditionBox.getValue()) {
+                case "Robots at most":
+                    runAhead(arena -> arena.getNumOfRobots(null) <= target, "at most " + target + " robots", -1);
+                    break;
+                case "Weak Robots at most":
+                    runAhead(arena -> arena.getNumOfRobots("Weak Robot") <= target, "at most " + target + " weak robots", -1);
+                    break;
+                default:
+                    runAhead(arena -> arena.getTickCount() >= target, "tick " + target, target);
+                    break;
+            }
+        });
+
+        addNormRobotButton.setOnAction(e -> {
+            myArena.addRegular();
+            showEdits();
+        });
+        addWeakRobotButton.setOnAction(e -> {
+            myArena.addWeak();
+            showEdits();
+        });
+        addBeamRobotButton.setOnAction(e -> {
+            myArena.addBeamRobot();
+            showEdits();
+        });
+        addAvoidRobotButton.setOnAction(e -> {
+            myArena.addAvoid();
+            showEdits();
+        });
+        addObstacleButtonLine.setOnAction(e -> {
+            myArena.addObstacle("line");
+            showEdits();
+        });
+        addObstacleButtonCircle.setOnAction(e -> {
+            myArena.addObstacle("circle");
+            showEdits();
+        });
         deleteButton.setOnAction(e -> {
             myArena.deleteSelectedObject();
+            showEdits();
+        });
+
+        followButton.setOnAction(e -> {
+            Objects selected = myArena.getSelectedObject();
+            camera.follow(selected == null ? SlotMap.NO_HANDLE : myArena.getHandle(selected));
+            camera.update(myArena);
+            drawWorld();
+        });
+        resetViewButton.setOnAction(e -> {
+            camera.reset();
             drawWorld();
         });
 
         HBox buttonBox = new HBox(startButton, stopButton, addNormRobotButton, addWeakRobotButton,
-                addAvoidRobotButton, addBeamRobotButton, addObstacleButtonLine, addObstacleButtonCircle, deleteButton);
+                addAvoidRobotButton, addBeamRobotButton, addObstacleButtonLine, addObstacleButtonCircle, deleteButton,
+                followButton, resetViewButton);
+        Label speedLabel = new Label("Speed:");
+        HBox runBox = new HBox(speedLabel, speedBox, runButton, runConditionBox, runTargetField);
+        runBox.setSpacing(10);
+        runBox.setAlignment(Pos.BOTTOM_CENTER);
         buttonBox.setSpacing(15);
         buttonBox.setAlignment(Pos.BOTTOM_CENTER);
 
@@ -168,13 +434,21 @@ public class Canvas extends Application implements Serializable {
         MenuItem newItem = new MenuItem("New");
         MenuItem saveItem = new MenuItem("Save");
         MenuItem loadItem = new MenuItem("Load");
+        MenuItem telemetryStartItem = new MenuItem("Start Telemetry");
+        MenuItem telemetryStopItem = new MenuItem("Stop Telemetry");
+        MenuItem exportStartItem = new MenuItem("Start Frame Export");
+        MenuItem exportStopItem = new MenuItem("Stop Frame Export");
+        MenuItem serverStartItem = new MenuItem("Start Snapshot Server");
+        MenuItem serverStopItem = new MenuItem("Stop Snapshot Server");
+        MenuItem watchStartItem = new MenuItem("Watch Remote Simulation");
+        MenuItem watchStopItem = new MenuItem("Stop Watching");
         MenuItem helpItem = new MenuItem("Help");
         MenuItem aboutItem = new MenuItem("About");
 
         newItem.setOnAction(e -> {
             myArena.clearArena(); // Clear the arena completely
-            drawWorld(); // Redraw the empty arena
-            System.out.println("New simulation created.");
+            showEdits(); // Redraw the empty arena
+            EventLog.info(EventLog.Category.SIMULATION, "New simulation created.");
         });
 
         saveItem.setOnAction(e -> {
@@ -185,9 +459,9 @@ public class Canvas extends Application implements Serializable {
             if (file != null) {
                 int status = myArena.saveFile(file.getAbsolutePath());
                 if (status == 0) {
-                    System.out.println("Simulation saved to " + file.getAbsolutePath());
+                    EventLog.info(EventLog.Category.FILE, "Simulation saved to " + file.getAbsolutePath());
                 } else {
-                    System.out.println("Failed to save simulation.");
+                    EventLog.error(EventLog.Category.FILE, "Failed to save simulation.");
                 }
             }
         });
@@ -200,37 +474,390 @@ public class Canvas extends Application implements Serializable {
             if (file != null) {
                 Arena loadedArena = Arena.loadFile(file.getAbsolutePath(), new Group());
                 if (loadedArena != null) {
+                    continueTelemetry(loadedArena); // Tick numbers start from the loaded world's
+                    loadedArena.setSnapshotServer(myArena.getSnapshotServer()); // Viewers see the loaded world
+                    myArena.setSnapshotServer(null);
+                    loadedArena.setFrameExporter(myArena.getFrameExporter()); // Keep exporting frames
+                    myArena.setFrameExporter(null);
+                    configureArena(loadedArena);
                     myArena = loadedArena;
                     myArena.setArenaGroup(arenaGroup); // Reassign the UI group
                     drawWorld();
-                    System.out.println("Simulation loaded successfully from " + file.getAbsolutePath());
+                    EventLog.info(EventLog.Category.FILE, "Simulation loaded successfully from " + file.getAbsolutePath());
                 } else {
-                    System.out.println("Failed to load simulation.");
+                    EventLog.error(EventLog.Category.FILE, "Failed to load simulation.");
                 }
             }
         });
 
+        telemetryStartItem.setOnAction(e -> startTelemetry());
+        telemetryStopItem.setOnAction(e -> stopTelemetry());
+        exportStartItem.setOnAction(e -> startFrameExport());
+        exportStopItem.setOnAction(e -> stopFrameExport());
+        serverStartItem.setOnAction(e -> startSnapshotServer());
+        serverStopItem.setOnAction(e -> stopSnapshotServer());
+        watchStartItem.setOnAction(e -> startWatching());
+        watchStopItem.setOnAction(e -> stopWatching());
+
         helpItem.setOnAction(e -> show_help());
         aboutItem.setOnAction(e -> show_about());
 
-        menu.getItems().addAll(newItem, saveItem, loadItem, helpItem, aboutItem);
+        menu.getItems().addAll(newItem, saveItem, loadItem, telemetryStartItem, telemetryStopItem,
+                exportStartItem, exportStopItem, serverStartItem, serverStopItem, watchStartItem, watchStopItem,
+                helpItem, aboutItem);
 
         MenuBar menuBar = new MenuBar();
         menuBar.getMenus().add(menu);
 
         uiContainer.getChildren().clear();
-        uiContainer.getChildren().addAll(menuBar, buttonBox);
+        uiContainer.getChildren().addAll(menuBar, buttonBox, runBox);
     }
 
     /**
      * Handles the simulation logic and updates during each animation frame.
+     * The quality controller decides how many ticks are due and whether this frame is drawn.
      */
     public void begin() {
-        myArena.checkRobots();
-        myArena.adjustRobots();
+        if (runUntil != null) {
+            runAheadChunk();
+            return;
+        }
+        int ticks = quality.beginFrame(System.nanoTime());
+        for (int i = 0; i < ticks && quality.hasTimeForTick(System.nanoTime()); i++) {
+            long start = System.nanoTime();
+            tick();
+            quality.tickTook(System.nanoTime() - start);
+        }
+        if (quality.shouldDraw()) {
+            long start = System.nanoTime();
+            camera.update(myArena); // Keep a followed robot in view
+            drawWorld();
+            quality.drawTook(System.nanoTime() - start);
+        }
+        if (quality.shouldRefreshOverlay()) {
+            long start = System.nanoTime();
+            myArena.printRobotLocations();
+            quality.overlayTook(System.nanoTime() - start);
+        }
+        quality.endFrame(myArena);
+    }
+
+    /**
+     * Runs the simulation as fast as possible without drawing until a condition holds, then draws the result.
+     * The work is split into chunks of RUN_CHUNK_MILLIS per Timeline frame so the window still responds,
+     * and Stop abandons the run.
+     *
+     * @param until The condition to stop at, checked before every tick.
+     * @param goal  A description of the condition, for the log.
+     * @param tick  The tick the condition is reached at, if it is a tick, which lets ticks with nothing
+     *              due be skipped; -1 otherwise.
+     */
+    private void runAhead(Predicate<Arena> until, String goal, long tick) {
+        if (until.test(myArena)) {
+            EventLog.info(EventLog.Category.SIMULATION, "Already at " + goal + ".");
+            return;
+        }
+        runUntil = until;
+        runGoal = goal;
+        runToTick = tick;
+        runStartTick = myArena.getTickCount();
+        runStartNanos = System.nanoTime();
+        myArena.setSimulationRunning(true); // No editing while running ahead
+        tl.play();
+        EventLog.info(EventLog.Category.SIMULATION, "Running ahead to " + goal + ".");
+    }
+
+    /**
+     * Runs one chunk of a run ahead, and finishes the run once its condition holds.
+     */
+    private void runAheadChunk() {
+        long deadline = System.nanoTime() + (long) (RUN_CHUNK_MILLIS * 1_000_000);
+        do {
+            if (runUntil.test(myArena)) {
+                long ticks = myArena.getTickCount() - runStartTick;
+                double seconds = (System.nanoTime() - runStartNanos) / 1e9;
+                runUntil = null;
+                tl.pause();
+                myArena.setSimulationRunning(false);
+                camera.update(myArena);
+                drawWorld();
+                myArena.printRobotLocations();
+                EventLog.info(EventLog.Category.SIMULATION, String.format("Reached %s at tick %d: %d ticks in %.2f s (%.0f ticks/s).",
+                        runGoal, myArena.getTickCount(), ticks, seconds, ticks / Math.max(seconds, 1e-9)));
+                return;
+            }
+            if (runToTick < 0 || myArena.skipQuiet(runToTick - myArena.getTickCount()) == 0) {
+                tick();
+            }
+        } while (System.nanoTime() < deadline);
+    }
+
+    /**
+     * Advances the simulation by one tick.
+     */
+    private void tick() {
+        myArena.tick();
+    }
+
+    /**
+     * Asks for a telemetry file and starts streaming robot state to it.
+     * Files ending in .bin are written in the binary format, anything else as NDJSON.
+     */
+    private void startTelemetry() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Record Telemetry");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("NDJSON Telemetry", "*.ndjson"),
+                new FileChooser.ExtensionFilter("Binary Telemetry", "*.bin"));
+        File file = fileChooser.showSaveDialog(windowStage);
+        if (file != null) {
+            stopTelemetry(); // Only one recording at a time
+            TelemetrySink.Format format = file.getName().endsWith(".bin")
+                    ? TelemetrySink.Format.BINARY : TelemetrySink.Format.NDJSON;
+            try {
+                myArena.setTelemetry(new TelemetrySink(file.getAbsolutePath(), format,
+                        TelemetrySink.Backpressure.DROP, 10, 1 << 16));
+                EventLog.info(EventLog.Category.TELEMETRY, "Telemetry recording to " + file.getAbsolutePath());
+            } catch (IOException ex) {
+                EventLog.error(EventLog.Category.TELEMETRY, "Failed to start telemetry: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves the current telemetry recording, if any, to a loaded arena. The loaded world goes on from its own tick
+     * count, so the recording is closed and carries on in a new file next to it, numbered like "run-2.ndjson",
+     * and the ticks in each file never go back.
+     *
+     * @param loadedArena The arena replacing the current one.
+     */
+    private void continueTelemetry(Arena loadedArena) {
+        TelemetrySink telemetry = myArena.getTelemetry();
+        if (telemetry == null) {
+            return;
+        }
+        stopTelemetry();
+        File file = nextTelemetryFile(new File(telemetry.getFileName()));
+        try {
+            loadedArena.setTelemetry(telemetry.reopen(file.getAbsolutePath()));
+            EventLog.info(EventLog.Category.TELEMETRY, "Telemetry recording to " + file.getAbsolutePath());
+        } catch (IOException ex) {
+            EventLog.error(EventLog.Category.TELEMETRY, "Failed to start telemetry: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the first file that does not exist yet among "name-2.ext", "name-3.ext" and so on, where a
+     * number already on the name is counted on from.
+     */
+    private static File nextTelemetryFile(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        int number = 2;
+        Matcher numbered = Pattern.compile("(.*)-(\\d+)").matcher(base);
+        if (numbered.matches()) {
+            base = numbered.group(1);
+            number = Integer.parseInt(numbered.group(2)) + 1;
+        }
+        File next;
+        while ((next = new File(file.getParentFile(), base + "-" + number + extension)).exists()) {
+            number++;
+        }
+        return next;
+    }
+
+    /**
+     * Stops the current telemetry recording, if any, and flushes it to disk.
+     */
+    private void stopTelemetry() {
+        TelemetrySink telemetry = myArena.getTelemetry();
+        if (telemetry != null) {
+            myArena.setTelemetry(null);
+            try {
+                telemetry.close();
+                EventLog.info(EventLog.Category.TELEMETRY, "Telemetry stopped, " + telemetry.getDropped() + " records dropped.");
+            } catch (IOException ex) {
+                EventLog.error(EventLog.Category.TELEMETRY, "Telemetry file could not be written: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Asks for a directory and starts writing a PNG frame there every FRAME_INTERVAL ticks.
+     * Frames are drawn and encoded on worker threads; frames the workers cannot keep up with are dropped.
+     */
+    private void startFrameExport() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Export Frames To");
+        File directory = directoryChooser.showDialog(windowStage);
+        if (directory != null) {
+            stopFrameExport(); // Only one export at a time
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            try {
+                myArena.setFrameExporter(new FrameExporter(directory.getAbsolutePath(), 1, FRAME_INTERVAL,
+                        threads, threads * 4));
+                EventLog.info(EventLog.Category.FILE, "Exporting frames to " + directory.getAbsolutePath());
+            } catch (IOException ex) {
+                EventLog.error(EventLog.Category.FILE, "Failed to start frame export: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops the current frame export, if any, once the queued frames are written.
+     */
+    private void stopFrameExport() {
+        FrameExporter exporter = myArena.getFrameExporter();
+        if (exporter != null) {
+            myArena.setFrameExporter(null);
+            try {
+                exporter.close();
+                EventLog.info(EventLog.Category.FILE, "Frame export stopped, " + exporter.getWritten() + " frames written, "
+                        + exporter.getDropped() + " dropped.");
+            } catch (IOException ex) {
+                EventLog.error(EventLog.Category.FILE, "Frames could not be written: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Asks for a port and starts streaming a snapshot every FRAME_INTERVAL ticks to any viewer that connects.
+     * The server listens on this machine only unless robot.serve.address says otherwise.
+     */
+    private void startSnapshotServer() {
+        TextInputDialog dialog = new TextInputDialog(String.valueOf(SnapshotServer.DEFAULT_PORT));
+        dialog.setTitle("Start Snapshot Server");
+        dialog.setHeaderText("Port to stream snapshots on:");
+        dialog.showAndWait().ifPresent(text -> {
+            stopSnapshotServer(); // Only one server at a time
+            try {
+                SnapshotServer server = new SnapshotServer(SnapshotServer.listenAddress(), Integer.parseInt(text.trim()),
+                        FRAME_INTERVAL, SnapshotServer.DEFAULT_QUANTUM);
+                myArena.setSnapshotServer(server);
+                EventLog.info(EventLog.Category.STREAM, "Serving snapshots on port " + server.getPort());
+            } catch (NumberFormatException ex) {
+                EventLog.warn(EventLog.Category.STREAM, "Invalid port: " + text);
+            } catch (IOException ex) {
+                EventLog.error(EventLog.Category.STREAM, "Failed to start the snapshot server: " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Stops the snapshot server, if any, disconnecting its viewers.
+     */
+    private void stopSnapshotServer() {
+        SnapshotServer server = myArena.getSnapshotServer();
+        if (server != null) {
+            myArena.setSnapshotServer(null);
+            try {
+                server.close();
+                EventLog.info(EventLog.Category.STREAM, "Snapshot server stopped, " + server.getSent() + " frames sent, "
+                        + server.getDropped() + " skipped by slow viewers.");
+            } catch (IOException ex) {
+                EventLog.error(EventLog.Category.STREAM, "Snapshot server did not close cleanly: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Asks for a snapshot server's host and port and shows its simulation in place of this one until
+     * Stop Watching, or until the server goes away. This simulation carries on underneath.
+     */
+    private void startWatching() {
+        TextInputDialog dialog = new TextInputDialog("localhost:" + SnapshotServer.DEFAULT_PORT);
+        dialog.setTitle("Watch Remote Simulation");
+        dialog.setHeaderText("Snapshot server to watch, as host:port:");
+        dialog.showAndWait().ifPresent(text -> {
+            stopWatching(); // Only one stream at a time
+            int colon = text.lastIndexOf(':');
+            try {
+                String host = colon < 0 ? text.trim() : text.substring(0, colon).trim();
+                int port = colon < 0 ? SnapshotServer.DEFAULT_PORT : Integer.parseInt(text.substring(colon + 1).trim());
+                remote = new SnapshotClient(host, port);
+                remoteView.setVisible(true);
+                remoteTimer.start();
+                EventLog.info(EventLog.Category.STREAM, "Watching " + host + ":" + port);
+            } catch (NumberFormatException ex) {
+                EventLog.warn(EventLog.Category.STREAM, "Invalid port: " + text);
+            } catch (IOException ex) {
+                EventLog.error(EventLog.Category.STREAM, "Failed to connect to " + text + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Stops watching a remote simulation, if one is shown, and shows this one again.
+     */
+    private void stopWatching() {
+        if (remote == null) {
+            return;
+        }
+        remoteTimer.stop();
+        remoteView.setVisible(false);
+        remoteView.setImage(null);
+        remoteRenderer = null;
+        remoteTick = -1;
+        try {
+            remote.close();
+        } catch (IOException ex) {
+            // Already disconnected
+        }
+        EventLog.info(EventLog.Category.STREAM, "Stopped watching, " + remote.getFrames() + " frames received.");
+        remote = null;
+    }
+
+    /**
+     * Draws the latest remote frame if it is new, and stops watching once the stream has ended.
+     */
+    private void showRemote() {
+        WorldSnapshot snapshot = remote.getSnapshots().acquire();
+        if (snapshot != null) {
+            try {
+                if (snapshot.tick != remoteTick) {
+                    drawRemote(snapshot);
+                    remoteTick = snapshot.tick;
+                }
+            } finally {
+                snapshot.release();
+            }
+        }
+        if (!remote.isConnected()) {
+            if (remote.getFailure() != null) {
+                EventLog.warn(EventLog.Category.STREAM, "Remote simulation lost: " + remote.getFailure().getMessage());
+            }
+            stopWatching();
+        }
+    }
+
+    /**
+     * Draws a remote frame into the view, the whole remote arena scaled to fit.
+     */
+    private void drawRemote(WorldSnapshot snapshot) {
+        double scale = Math.min(viewWidth / snapshot.width, viewHeight / snapshot.height);
+        int w = Math.max(1, (int) Math.ceil(snapshot.width * scale));
+        int h = Math.max(1, (int) Math.ceil(snapshot.height * scale));
+        if (remoteRenderer == null || remoteRenderer.getWidth() != w || remoteRenderer.getHeight() != h
+                || remoteRenderer.getScale() != scale) {
+            remoteRenderer = new SoftwareRenderer(w, h, scale);
+            remoteView.setImage(new WritableImage(w, h));
+        }
+        remoteRenderer.render(snapshot);
+        ((WritableImage) remoteView.getImage()).getPixelWriter().setPixels(0, 0, w, h,
+                PixelFormat.getIntArgbInstance(), remoteRenderer.getPixels(), 0, w);
+    }
+
+    /**
+     * Shows the edits just submitted to the arena. While the simulation runs they are applied at the start of
+     * the next tick; while it is stopped no tick is coming, so they are applied here, between ticks all the same.
+     */
+    private void showEdits() {
+        if (!myArena.isSimulationRunning()) {
+            myArena.applyCommands();
+        }
         drawWorld();
-        myArena.obstacleCollision();
-        myArena.printRobotLocations();
     }
 
     /**
@@ -251,12 +878,15 @@ public class Canvas extends Application implements Serializable {
         Label line1 = new Label("Use the buttons to add robots and obstacles to the arena.");
         Label line2 = new Label("Use the Start and Stop buttons to control animations.");
         Label line3 = new Label("Click objects to select them and use 'Delete Selected' to remove them.");
+        Label line4 = new Label("Drag to select an area, shift-drag for a lasso, ctrl adds to the selection.");
+        Label line5 = new Label("Right-drag pans the view and the scroll wheel zooms.");
+        Label line6 = new Label("Speed runs several ticks per frame; Run To computes ahead without drawing.");
 
         Button closeButton = new Button("Close");
         closeButton.setOnAction(e -> popupStage.close());
 
-        VBox popupLayout = new VBox(10, title, line1, line2, line3, closeButton);
-        Scene popupScene = new Scene(popupLayout, 400, 200);
+        VBox popupLayout = new VBox(10, title, line1, line2, line3, line4, line5, line6, closeButton);
+        Scene popupScene = new Scene(popupLayout, 480, 300);
         popupStage.setScene(popupScene);
         popupStage.showAndWait();
     }
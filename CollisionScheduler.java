@@ -0,0 +1,394 @@
+/**
+ * CollisionScheduler is the event-driven engine mode: instead of testing every robot every tick,
+ * it predicts when each robot will next touch a wall, obstacle or robot and only checks robots then.
+ */
+package robot_simulator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Class for the collision scheduler - a priority queue of predicted contact ticks.
+ * <p>
+ * Between contacts a robot whose heading has reached its direction moves in a straight line at constant
+ * speed, so the tick at which it first meets a wall, an obstacle or another such robot is solved for
+ * with SweptCollision.
+ * These robots are "ballistic". Every other robot - turning, touching something, a beam robot, an
+ * avoider steered by the flow field - is "active" and is checked every tick with the usual rules;
+ * ballistic robots it touches are checked in the same tick.
+ * <p>
+ * Each prediction is stamped with the robot's event version; when a robot's motion changes its version
+ * is bumped and its old events are ignored when they come up. Predictions look HORIZON ticks ahead,
+ * and a robot with nothing due by then is predicted again. Events fire a tick early when the solved
+ * time is within rounding of a whole tick, so the positions summed tick by tick never overtake them;
+ * an early check just finds no contact and predicts again.
+ * <p>
+ * Queries use a grid of its own that is not rebuilt every tick: it is searched with its bounds widened
+ * by how far robots may have moved since it was built, and rebuilt once that passes GRID_SLACK.
+ * <p>
+ * The rules applied at a contact are the same as the tick engine's. The order robots are checked in
+ * within a tick can differ, which matters only when robots touching each other are destroyed.
+ */
+public class CollisionScheduler {
+    static final int HORIZON = 64; // Ticks predicted ahead
+    static final double EARLY = 1e-6; // Solved times this close above a whole tick fire on that tick
+    static final double GRID_SLACK = Arena.GRID_CELL / 2; // Robot travel after which the loose grid is rebuilt
+
+    /**
+     * A predicted contact. Other is the second robot of a robot-robot contact, null otherwise.
+     * Events are reused once they leave the queue, so a steady run allocates none.
+     */
+    private static final class Event {
+        long tick; // Tick whose check, or obstacle test, finds the contact
+        boolean obstacle; // True for the obstacle test after the move, false for the check before it
+        Robot robot, other;
+        int version, otherVersion;
+
+        void set(long tick, boolean obstacle, Robot robot, Robot other) {
+            this.tick = tick;
+            this.obstacle = obstacle;
+            this.robot = robot;
+            this.version = robot.eventVersion;
+            this.other = other;
+            this.otherVersion = other == null ? 0 : other.eventVersion;
+        }
+
+        boolean isStale() {
+            return robot.destroyed || robot.eventVersion != version
+                    || (other != null && (other.destroyed || other.eventVersion != otherVersion));
+        }
+    }
+
+    private final Arena arena;
+    private final PriorityQueue<Event> queue = new PriorityQueue<>(Comparator.comparingLong((Event e) -> e.tick));
+    private final List<Robot> active = new ArrayList<>(); // Robots checked every tick
+    private final List<Robot> checks = new ArrayList<>(); // Robots checked this tick
+    private final List<Robot> obstacleTests = new ArrayList<>(); // Robots tested against obstacles this tick
+    private final List<Objects> toRemove = new ArrayList<>();
+    private final List<Objects> near = new ArrayList<>(); // Scratch list for neighbourhood queries
+    private final List<Objects> around = new ArrayList<>();
+    private final ArrayDeque<Event> spareEvents = new ArrayDeque<>(); // Events polled from the queue, for reuse
+    private boolean stale = true; // Predictions are out of date, every robot is checked next tick
+    private SpatialGrid grid; // Loose index of the objects, rebuilt only when robots may have moved GRID_SLACK
+    private double slack = Double.POSITIVE_INFINITY; // How far any robot may have moved since the grid was built
+    private long pass = 0; // Incremented every tick, marks robots already queued this tick
+    private double maxSpeed = 0; // Fastest robot, bounds how far a neighbour can come within the horizon
+    private long checked = 0, fired = 0; // Robot checks made and events that came due, for describe
+
+    /**
+     * Creates a scheduler for an arena. Every robot is checked on the first tick.
+     *
+     * @param arena The arena whose robots are scheduled.
+     */
+    public CollisionScheduler(Arena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Drops every prediction, for example after robots or obstacles were added, moved or deleted.
+     */
+    public void reset() {
+        stale = true;
+    }
+
+    /**
+     * Checks the robots that have something due this tick: the active robots, robots whose predicted
+     * contact has come up, and robots touching those. Takes the place of Arena.checkRobots.
+     */
+    public void check() {
+        pass++;
+        if (stale) {
+            restart();
+        }
+        long now = arena.getTickCount();
+        checks.clear();
+        obstacleTests.clear();
+        for (int i = 0; i < active.size(); i++) {
+            active.get(i).eventActive = false; // decided again in predict
+            queueCheck(active.get(i));
+        }
+        while (!queue.isEmpty() && queue.peek().tick <= now) {
+            Event event = queue.poll();
+            if (!event.isStale()) {
+                fired++;
+                if (event.obstacle) {
+                    queueObstacleTest(event.robot);
+                } else {
+                    queueCheck(event.robot);
+                    if (event.other != null) {
+                        queueCheck(event.other);
+                    }
+                }
+            }
+            recycle(event);
+        }
+
+        arena.invalidateSpatialIndex(); // robots moved during the last tick
+        SpatialGrid grid = grid();
+        toRemove.clear();
+        int done = 0;
+        while (done < checks.size()) { // grows as touched robots are queued
+            int end = checks.size();
+            List<RobotBatch> batches = arena.groupRobots(checks, done);
+            for (int b = 0; b < batches.size(); b++) {
+                RobotBatch batch = batches.get(b);
+                if (batch.size() == 0) {
+                    continue;
+                }
+                batch.useGrid(grid, slack, 0);
+                batch.getBehaviour().checkAll(arena, batch, toRemove);
+                for (int i = 0; i < batch.size(); i++) {
+                    Robot robot = batch.get(i);
+                    checked++;
+                    if (batch.isTouching(i)) {
+                        robot.eventActive = true; // stays active until clear of everything
+                        queueTouching(robot);
+                    }
+                    queueObstacleTest(robot); // its direction may have changed
+                }
+            }
+            done = end;
+        }
+        arena.finishChecks(toRemove);
+    }
+
+    /**
+     * Tests the robots that have something due against the obstacles, after the robots have moved.
+     * Takes the place of Arena.obstacleCollision.
+     */
+    public void collideObstacles() {
+        slack += maxSpeed; // robots have moved
+        SpatialGrid grid = grid();
+        for (int i = 0; i < obstacleTests.size(); i++) {
+            Robot robot = obstacleTests.get(i);
+            if (!robot.destroyed && arena.collideObstaclesNear(robot, grid, slack, near)) {
+                robot.eventActive = true;
+            }
+        }
+    }
+
+    /**
+     * Predicts the next contact of every robot handled this tick, and decides which robots stay active.
+     * Call after collideObstacles, before the tick counter advances.
+     */
+    public void predict() {
+        long next = arena.getTickCount() + 1; // the first tick a prediction can fire on
+        active.clear();
+        for (int i = 0; i < obstacleTests.size(); i++) { // every robot handled this tick, once
+            Robot robot = obstacleTests.get(i);
+            if (robot.destroyed) {
+                continue;
+            }
+            if (robot.eventActive || !isBallistic(robot)) {
+                robot.eventActive = true;
+                robot.eventVersion++; // its pending events no longer hold
+                active.add(robot);
+            }
+        }
+        for (int i = 0; i < obstacleTests.size(); i++) {
+            Robot robot = obstacleTests.get(i);
+            if (!robot.destroyed && !robot.eventActive) {
+                predict(robot, next);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of ticks from now, up to a limit, in which nothing is due - no robot is
+     * active and no valid event comes up. Those ticks can be skipped with skip.
+     *
+     * @param limit The most ticks wanted.
+     */
+    public long quietTicks(long limit) {
+        if (stale || !active.isEmpty()) {
+            return 0;
+        }
+        while (!queue.isEmpty() && queue.peek().isStale()) {
+            recycle(queue.poll());
+        }
+        if (queue.isEmpty()) {
+            return limit;
+        }
+        return Math.max(0, Math.min(limit, queue.peek().tick - arena.getTickCount()));
+    }
+
+    /**
+     * Moves every robot along its straight path by a number of quiet ticks at once.
+     * The caller advances the tick counter.
+     *
+     * @param ticks Ticks to skip, no more than quietTicks returned.
+     */
+    public void skip(long ticks) {
+        List<Objects> objects = arena.getObjects();
+        for (int i = 0; i < objects.size(); i++) {
+            Objects object = objects.get(i);
+            if (object instanceof Robot) {
+                Robot robot = (Robot) object;
+                double step = robot.getRobotSpeed() * ticks;
+                robot.setXY(robot.getX() + step * Heading.cos(robot.heading),
+                        robot.getY() + step * Heading.sin(robot.heading));
+            }
+        }
+        arena.invalidateSpatialIndex();
+        slack += maxSpeed * ticks;
+    }
+
+    /**
+     * Returns a short summary of the work done, for the log.
+     */
+    public String describe() {
+        return String.format("%d robots active, %d events queued, %d events fired, %d robot checks",
+                active.size(), queue.size(), fired, checked);
+    }
+
+    /**
+     * Forgets every prediction and makes every robot active.
+     */
+    private void restart() {
+        stale = false;
+        slack = Double.POSITIVE_INFINITY; // objects may have been added or removed
+        queue.clear();
+        active.clear();
+        maxSpeed = 0;
+        List<Objects> objects = arena.getObjects();
+        for (int i = 0; i < objects.size(); i++) {
+            Objects object = objects.get(i);
+            if (object instanceof Robot) {
+                Robot robot = (Robot) object;
+                robot.eventVersion++;
+                robot.eventActive = true;
+                active.add(robot);
+                maxSpeed = Math.max(maxSpeed, Math.abs(robot.getRobotSpeed()));
+            }
+        }
+    }
+
+    /**
+     * Returns the loose grid, rebuilding it if robots may have moved too far since it was built.
+     */
+    private SpatialGrid grid() {
+        if (slack > GRID_SLACK) {
+            if (grid == null) {
+                grid = new SpatialGrid(arena.getX(), arena.getY(), Arena.GRID_CELL);
+            }
+            grid.rebuild(arena.getObjects());
+            slack = 0;
+        }
+        return grid;
+    }
+
+    private void queueCheck(Robot robot) {
+        if (robot.checkPass != pass) {
+            robot.checkPass = pass;
+            checks.add(robot);
+        }
+    }
+
+    private void queueObstacleTest(Robot robot) {
+        if (robot.obstaclePass != pass) {
+            robot.obstaclePass = pass;
+            obstacleTests.add(robot);
+        }
+    }
+
+    /**
+     * Queues a check of every robot touching a robot, so a contact is handled on both sides
+     * even when only one of them had it predicted.
+     */
+    private void queueTouching(Robot robot) {
+        double radius = robot.getRad() + grid.getMaxRad();
+        double reach = Math.sqrt(radius * radius + SweptCollision.CONTACT_BUFFER) + slack;
+        around.clear();
+        grid.query(robot.getX() - reach, robot.getY() - reach, robot.getX() + reach, robot.getY() + reach, around);
+        for (int i = 0; i < around.size(); i++) {
+            Objects object = around.get(i);
+            if (object instanceof Robot && object != robot && !((Robot) object).destroyed
+                    && ((Robot) object).hitting(robot.getX(), robot.getY(), robot.getRad())) {
+                queueCheck((Robot) object);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a robot's path until its next contact is a straight line at constant speed.
+     */
+    boolean isBallistic(Robot robot) {
+        return RobotBehaviours.of(robot).isBallistic(arena, robot)
+                && robot.heading == Heading.fromDirection(robot.direction);
+    }
+
+    /**
+     * Predicts the next contacts of a ballistic robot from its current position, which is where the
+     * check of tick next finds it. Pushes an event for each ballistic robot it may meet within the horizon,
+     * and one for the first of its wall, obstacle or horizon events.
+     */
+    private void predict(Robot robot, long next) {
+        robot.eventVersion++;
+        double x = robot.getX(), y = robot.getY(), rad = robot.getRad();
+        double vx = robot.getRobotSpeed() * Heading.cos(robot.heading);
+        double vy = robot.getRobotSpeed() * Heading.sin(robot.heading);
+
+        // Walls, at the checks: position x + k * vx at the check of tick next + k
+        double first = HORIZON;
+        boolean firstObstacle = false;
+        first = Math.min(first, SweptCollision.wallTime(x, y, vx, vy, rad, arena.getX(), arena.getY()));
+
+        SpatialGrid grid = grid();
+        double reach = HORIZON * (Math.abs(robot.getRobotSpeed()) + maxSpeed)
+                + Math.sqrt((rad + grid.getMaxRad()) * (rad + grid.getMaxRad()) + SweptCollision.CONTACT_BUFFER) + slack;
+        near.clear();
+        grid.query(x - reach, y - reach, x + reach, y + reach, near);
+        for (int i = 0; i < near.size(); i++) {
+            Objects object = near.get(i);
+            if (object instanceof Robot) {
+                Robot other = (Robot) object;
+                if (other == robot || other.destroyed || other.eventActive || !isBallistic(other)) {
+                    continue; // active robots find their own contacts
+                }
+                double ovx = other.getRobotSpeed() * Heading.cos(other.heading);
+                double ovy = other.getRobotSpeed() * Heading.sin(other.heading);
+                double t = SweptCollision.robotTime(x, y, vx, vy, rad,
+                        other.getX(), other.getY(), ovx, ovy, other.getRad());
+                if (t < HORIZON) {
+                    push(next + fireTick(t), false, robot, other);
+                }
+            } else if (object instanceof Obstacle) {
+                // Obstacles are tested after the move: position x + (k + 1) * vx at tick next + k
+                double t = SweptCollision.obstacleTime(x + vx, y + vy, vx, vy, rad, object);
+                if (t < first) {
+                    first = t;
+                    firstObstacle = true;
+                }
+            }
+        }
+        push(next + fireTick(first), firstObstacle, robot, null);
+    }
+
+    /**
+     * Queues an event, reusing a spare one if there is one.
+     */
+    private void push(long tick, boolean obstacle, Robot robot, Robot other) {
+        Event event = spareEvents.isEmpty() ? new Event() : spareEvents.pop();
+        event.set(tick, obstacle, robot, other);
+        queue.add(event);
+    }
+
+    /**
+     * Keeps an event polled from the queue for reuse, letting go of its robots.
+     */
+    private void recycle(Event event) {
+        event.robot = null;
+        event.other = null;
+        spareEvents.push(event);
+    }
+
+    /**
+     * Returns the number of whole ticks from the first check before a contact solved at time t.
+     */
+    private static long fireTick(double t) {
+        return Math.max(0, (long) Math.ceil(t - EARLY));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * CommandQueue carries world commands from any number of threads to the one thread that runs the simulation.
+ * Submitting never blocks and applying never takes a lock, so an edit cannot stall a tick.
+ */
+package robot_simulator;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class for the command queue - a linked multi-producer, single-consumer queue. Producers swap themselves in
+ * as the tail with one atomic exchange and then link the old tail to their node; the consumer follows the links
+ * from a stub head. A node swapped in but not yet linked is simply left for the next drain.
+ * <p>
+ * offer may be called from any thread. drain and isEmpty belong to the consumer, one thread at a time.
+ */
+public class CommandQueue {
+
+    /**
+     * A queued command and the link to the one submitted after it.
+     */
+    private static final class Node {
+        WorldCommand command; // Cleared once applied, so the stub head keeps nothing alive
+        volatile Node next; // Set once by the producer that follows
+
+        Node(WorldCommand command) {
+            this.command = command;
+        }
+    }
+
+    private final AtomicReference<Node> tail; // Last node submitted, swapped by producers
+    private Node head; // Last node applied, read and written by the consumer only
+
+    /**
+     * Creates an empty queue.
+     */
+    public CommandQueue() {
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Queues a command. Safe from any thread, never blocks.
+     *
+     * @param command The command.
+     */
+    public void offer(WorldCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command cannot be null");
+        }
+        Node node = new Node(command);
+        tail.getAndSet(node).next = node;
+    }
+
+    /**
+     * Applies the queued commands in the order they were submitted, up to the last one submitted when the drain
+     * began, so a thread that keeps submitting cannot hold the consumer here. A command that throws is logged
+     * and skipped; the rest are still applied.
+     *
+     * @param arena The arena the commands edit.
+     * @return The number of commands applied.
+     */
+    public int drain(Arena arena) {
+        Node last = tail.get();
+        int applied = 0;
+        while (head != last) {
+            Node next = head.next;
+            if (next == null) {
+                break; // Its producer has not linked it yet, it goes next drain
+            }
+            WorldCommand command = next.command;
+            next.command = null;
+            head = next;
+            try {
+                command.apply(arena);
+            } catch (RuntimeException e) {
+                EventLog.error(EventLog.Category.EDITOR, "Edit could not be applied", e);
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Returns whether no command is waiting. Called by the consumer.
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * ContactBatch holds the contacts found during the checks of a tick with robots of one behaviour,
+ * so the behaviour can answer them all in one call once the checks are done.
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+
+/**
+ * Class for a batch of contacts - each is a robot, the robot it touched, and the direction the robot
+ * was heading before its check. The touched robots are all of the batch's behaviour.
+ */
+public class ContactBatch {
+    final RobotBehaviour behaviour; // The behaviour of the touched robots
+    int count = 0; // Number of contacts in the batch
+    Robot[] robots = new Robot[0]; // The robots that touched
+    Robot[] others = new Robot[0]; // The robots they touched
+    Direction[] before = new Direction[0]; // Each touching robot's direction before its check
+
+    /**
+     * Creates an empty batch for a behaviour.
+     *
+     * @param behaviour The behaviour of the touched robots.
+     */
+    ContactBatch(RobotBehaviour behaviour) {
+        this.behaviour = behaviour;
+    }
+
+    /**
+     * Returns the number of contacts in the batch.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the robot that touched, in a contact.
+     *
+     * @param i The contact's position in the batch.
+     * @return The robot.
+     */
+    public Robot getRobot(int i) {
+        return robots[i];
+    }
+
+    /**
+     * Returns the robot that was touched, in a contact.
+     *
+     * @param i The contact's position in the batch.
+     * @return The touched robot, of the batch's behaviour.
+     */
+    public Robot getOther(int i) {
+        return others[i];
+    }
+
+    /**
+     * Returns the direction the touching robot was heading before its check, in a contact.
+     *
+     * @param i The contact's position in the batch.
+     * @return The direction.
+     */
+    public Direction getBefore(int i) {
+        return before[i];
+    }
+
+    /**
+     * Adds a contact to the batch.
+     */
+    void add(Robot robot, Robot other, Direction direction) {
+        if (count == robots.length) {
+            int size = Math.max(16, count + (count >> 1));
+            robots = Arrays.copyOf(robots, size);
+            others = Arrays.copyOf(others, size);
+            before = Arrays.copyOf(before, size);
+        }
+        robots[count] = robot;
+        others[count] = other;
+        before[count] = direction;
+        count++;
+    }
+
+    /**
+     * Empties the batch, letting its robots be collected.
+     */
+    void clear() {
+        Arrays.fill(robots, 0, count, null);
+        Arrays.fill(others, 0, count, null);
+        count = 0;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Enum DetailLevel is the level of detail robots are drawn with, from full detail down to a density heatmap.
+ */
+package robot_simulator;
+
+/**
+ * Enum for the robot level-of-detail tiers, finest first.
+ */
+public enum DetailLevel {
+    FULL,    // Body, wheels and beam
+    SPRITES, // Body and wheels copied from pre-rendered sprites into one image, beams drawn into it
+    CIRCLE,  // Body only, one node per robot
+    POINT,   // A one pixel square per robot
+    HEATMAP; // Robots counted per screen cell and drawn as one image
+
+    static final double FULL_RADIUS = 4; // Smallest on-screen robot radius, in pixels, drawn in full
+    static final double CIRCLE_RADIUS = 1.5; // Smallest on-screen robot radius drawn as a circle
+    static final int SPRITE_ROBOTS = 500; // More robots in view than this are drawn in full from sprites
+
+    /**
+     * Chooses the tier for a frame.
+     *
+     * @param screenRadius The on-screen radius of a robot, in pixels.
+     * @param robots       The number of robots in view.
+     * @param nodeBudget   The most robots that may be drawn as separate nodes.
+     * @param bias         The number of tiers to coarsen by, when frames run over budget.
+     * @return The tier to draw with.
+     */
+    public static DetailLevel choose(double screenRadius, int robots, int nodeBudget, int bias) {
+        DetailLevel level;
+        if (robots > nodeBudget) {
+            level = HEATMAP;
+        } else if (screenRadius >= FULL_RADIUS) {
+            level = robots > SPRITE_ROBOTS ? SPRITES : FULL;
+        } else if (screenRadius >= CIRCLE_RADIUS) {
+            level = CIRCLE;
+        } else {
+            level = POINT;
+        }
+        return values()[Math.min(HEATMAP.ordinal(), level.ordinal() + Math.max(0, bias))];
+    }
+
+    /**
+     * Parses a tier name, or "auto" for automatic choice.
+     *
+     * @param name The tier name, case insensitive.
+     * @return The tier, or null for automatic choice or an unknown name.
+     */
+    public static DetailLevel parse(String name) {
+        if (name != null) {
+            for (DetailLevel level : values()) {
+                if (level.name().equalsIgnoreCase(name.trim())) {
+                    return level;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -20,6 +20,17 @@ public enum Direction {
     NORTHEAST;
 
     private static Random random = new Random(); // Random instance for generating random directions
+    private static final Direction[] VALUES = values(); // Shared copy, values() clones the array on every call
+
+    /**
+     * Returns the direction with the given ordinal.
+     *
+     * @param ordinal The ordinal, 0 (EAST) to 7 (NORTHEAST).
+     * @return The direction.
+     */
+    static Direction of(int ordinal) {
+        return VALUES[ordinal];
+    }
 
     /**
      * Returns a random direction.
@@ -27,7 +38,7 @@ public enum Direction {
      * @return A random direction from the enum values.
      */
     public static Direction randomDirection() {
-        return values()[random.nextInt(values().length)]; // Use the Random class to get a random direction
+        return VALUES[random.nextInt(VALUES.length)]; // Use the Random class to get a random direction
     }
 
     /**
@@ -71,7 +82,7 @@ public enum Direction {
      * @return A random southward direction.
      */
     public Direction goSouth() {
-        return values()[random.nextInt(3) + 1]; // Generate a value between 1 and 3
+        return VALUES[random.nextInt(3) + 1]; // Generate a value between 1 and 3
     }
 
     /**
@@ -80,7 +91,7 @@ public enum Direction {
      * @return A random westward direction.
      */
     public Direction goWest() {
-        return values()[random.nextInt(3) + 3]; // Generate a value between 3 and 5
+        return VALUES[random.nextInt(3) + 3]; // Generate a value between 3 and 5
     }
 
     /**
@@ -89,7 +100,7 @@ public enum Direction {
      * @return A random northward direction.
      */
     public Direction goNorth() {
-        return values()[random.nextInt(3) + 5]; // Generate a value between 5 and 7
+        return VALUES[random.nextInt(3) + 5]; // Generate a value between 5 and 7
     }
 
     /**
@@ -100,9 +111,9 @@ public enum Direction {
      */
     public Direction getOpposite() {
         if (ordinal() >= 4) {
-            return values()[ordinal() - 4]; // If in the second half, subtract 4
+            return VALUES[ordinal() - 4]; // If in the second half, subtract 4
         }
-        return values()[ordinal() + 4]; // If in the first half, add 4
+        return VALUES[ordinal() + 4]; // If in the first half, add 4
     }
 
     /**
@@ -113,10 +124,10 @@ public enum Direction {
      */
     public Direction add(int num) {
         if (ordinal() + num > 7) {
-            return values()[ordinal() + num - 8]; // Wrap around if exceeding upper bound
+            return VALUES[ordinal() + num - 8]; // Wrap around if exceeding upper bound
         } else if (ordinal() + num < 0) {
-            return values()[8 + ordinal() + num]; // Wrap around if below lower bound
+            return VALUES[8 + ordinal() + num]; // Wrap around if below lower bound
         }
-        return values()[ordinal() + num]; // Return the direction with the added value
+        return VALUES[ordinal() + num]; // Return the direction with the added value
     }
 }
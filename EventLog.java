@@ -0,0 +1,287 @@
+/**
+ * EventLog is the structured diagnostic log for the simulator.
+ * Messages are filtered by category and level, rate limited per category and written by a background appender,
+ * so logging never blocks the simulation tick on console I/O.
+ */
+package robot_simulator;
+
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Static event log with per-category levels and rate limits.
+ * <p>
+ * A disabled category costs one array read and compare. Callers building messages on the tick thread
+ * should guard them with {@link #isEnabled(Category, Level)} so the string is never built when disabled.
+ * Levels and rates can be set at start-up with the system properties {@code robot.log.<category>}
+ * (e.g. {@code -Drobot.log.collision=DEBUG}) and {@code robot.log.<category>.rate} (messages per second).
+ */
+public final class EventLog {
+
+    /**
+     * Message severity, in increasing order.
+     */
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR,
+        OFF // Only used as a threshold, disables the category
+    }
+
+    /**
+     * Areas of the simulator that log events.
+     */
+    public enum Category {
+        EDITOR,     // Selecting, moving, adding and deleting objects
+        SIMULATION, // Starting, stopping and stepping the simulation
+        COLLISION,  // Per-collision diagnostics from the tick
+        FILE,       // Saving, loading and exporting
+        TELEMETRY,  // Telemetry recording
+        STREAM      // Snapshot server and remote viewers
+    }
+
+    private static final int QUEUE_SIZE = 4096; // Events waiting for the appender
+
+    // Lowest enabled level per category, and messages per second with 0 for no limit; atomic so a change made on
+    // the UI thread is seen by the tick thread
+    private static final AtomicIntegerArray thresholds = new AtomicIntegerArray(Category.values().length);
+    private static final AtomicIntegerArray rateLimits = new AtomicIntegerArray(Category.values().length);
+    private static final AtomicLong[] windowStart = new AtomicLong[Category.values().length]; // Current one second window
+    private static final AtomicInteger[] windowCount = new AtomicInteger[Category.values().length]; // Messages in window
+    private static final AtomicInteger[] suppressed = new AtomicInteger[Category.values().length]; // Rate limited messages
+    private static final AtomicLong dropped = new AtomicLong(); // Messages lost because the queue was full
+
+    private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss.SSS"); // Guarded by write
+    private static final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private static final Thread appender;
+    private static volatile boolean stopped = false; // Set by flush; messages after it are written by the caller
+
+    static {
+        for (Category category : Category.values()) {
+            int i = category.ordinal();
+            String key = "robot.log." + category.name().toLowerCase();
+            // Collision diagnostics are off by default, everything else logs at INFO
+            Level fallback = category == Category.COLLISION ? Level.OFF : Level.INFO;
+            thresholds.set(i, parseLevel(System.getProperty(key), fallback).ordinal());
+            rateLimits.set(i, Integer.getInteger(key + ".rate", category == Category.COLLISION ? 50 : 0));
+            windowStart[i] = new AtomicLong();
+            windowCount[i] = new AtomicInteger();
+            suppressed[i] = new AtomicInteger();
+        }
+        appender = new Thread(EventLog::appendLoop, "robot-event-log");
+        appender.setDaemon(true);
+        appender.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(EventLog::flush, "robot-event-log-flush"));
+    }
+
+    private EventLog() {
+    }
+
+    /**
+     * Checks whether messages of the given level would be logged for a category.
+     *
+     * @param category The message category.
+     * @param level    The message level.
+     * @return True if the category is enabled at this level.
+     */
+    public static boolean isEnabled(Category category, Level level) {
+        return level.ordinal() >= thresholds.get(category.ordinal());
+    }
+
+    /**
+     * Sets the lowest level logged for a category, or Level.OFF to disable it.
+     *
+     * @param category The category to configure.
+     * @param level    The new threshold.
+     */
+    public static void setLevel(Category category, Level level) {
+        thresholds.set(category.ordinal(), level.ordinal());
+    }
+
+    /**
+     * Limits how many messages a category may log per second. Excess messages are counted and summarised.
+     *
+     * @param category  The category to configure.
+     * @param perSecond The maximum messages per second, or 0 for no limit.
+     */
+    public static void setRateLimit(Category category, int perSecond) {
+        rateLimits.set(category.ordinal(), Math.max(0, perSecond));
+    }
+
+    public static void debug(Category category, String message) {
+        log(category, Level.DEBUG, message, null);
+    }
+
+    public static void info(Category category, String message) {
+        log(category, Level.INFO, message, null);
+    }
+
+    public static void warn(Category category, String message) {
+        log(category, Level.WARN, message, null);
+    }
+
+    public static void error(Category category, String message) {
+        log(category, Level.ERROR, message, null);
+    }
+
+    public static void error(Category category, String message, Throwable cause) {
+        log(category, Level.ERROR, message, cause);
+    }
+
+    /**
+     * Logs a message. The call returns immediately, the message is written by the appender thread.
+     *
+     * @param category The message category.
+     * @param level    The message level.
+     * @param message  The message text.
+     * @param cause    An exception to print with the message, or null.
+     */
+    public static void log(Category category, Level level, String message, Throwable cause) {
+        if (!isEnabled(category, level) || !acquire(category)) {
+            return;
+        }
+        if (!queue.offer(new Event(System.currentTimeMillis(), level, category, message, cause))) {
+            dropped.incrementAndGet(); // Never block the caller on a slow console
+        }
+        if (stopped) {
+            drain(); // No appender any more
+        }
+    }
+
+    /**
+     * Returns the number of messages lost because the appender could not keep up.
+     *
+     * @return The dropped message count.
+     */
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops the appender and writes every queued message before returning. Used on shutdown; messages logged
+     * afterwards are written by the calling thread.
+     */
+    public static void flush() {
+        stopped = true;
+        appender.interrupt();
+        try {
+            appender.join(1000); // Let it finish the event it is writing, so events stay in order
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        System.out.flush();
+        System.err.flush();
+    }
+
+    /**
+     * Writes every queued message, holding the write lock so callers draining at once keep the queue's order.
+     */
+    private static synchronized void drain() {
+        Event event;
+        while ((event = queue.poll()) != null) {
+            write(event);
+        }
+    }
+
+    /**
+     * Applies the per-category rate limit using one second windows.
+     *
+     * @return True if the message may be logged.
+     */
+    private static boolean acquire(Category category) {
+        int i = category.ordinal();
+        int limit = rateLimits.get(i);
+        if (limit == 0) {
+            return true;
+        }
+        long second = System.nanoTime() / 1_000_000_000L;
+        long start = windowStart[i].get();
+        if (second != start && windowStart[i].compareAndSet(start, second)) {
+            windowCount[i].set(0);
+            int skipped = suppressed[i].getAndSet(0);
+            if (skipped > 0) {
+                queue.offer(new Event(System.currentTimeMillis(), Level.WARN, category,
+                        skipped + " messages suppressed by rate limit", null));
+            }
+        }
+        if (windowCount[i].incrementAndGet() > limit) {
+            suppressed[i].incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appender thread body - writes events as they arrive.
+     */
+    private static void appendLoop() {
+        while (!stopped) {
+            try {
+                Event event = queue.poll(1, TimeUnit.SECONDS);
+                if (event != null) {
+                    write(event);
+                }
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    System.err.println("EventLog: " + lost + " messages dropped, queue full");
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Formats and prints one event. Warnings and errors go to standard error.
+     */
+    private static synchronized void write(Event event) {
+        PrintStream stream = event.level.ordinal() >= Level.WARN.ordinal() ? System.err : System.out;
+        stream.println("[" + TIME_FORMAT.format(new Date(event.time)) + "] "
+                + String.format("%-5s %-10s ", event.level, event.category) + event.message);
+        if (event.cause != null) {
+            event.cause.printStackTrace(stream);
+        }
+    }
+
+    /**
+     * Parses a level name from a system property, falling back to a default.
+     */
+    private static Level parseLevel(String value, Level fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * A queued log event.
+     */
+    private static final class Event {
+        final long time;
+        final Level level;
+        final Category category;
+        final String message;
+        final Throwable cause;
+
+        Event(long time, Level level, Category category, String message, Throwable cause) {
+            this.time = time;
+            this.level = level;
+            this.category = category;
+            this.message = message;
+            this.cause = cause;
+        }
+    }
+}
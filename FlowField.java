@@ -0,0 +1,214 @@
+/**
+ * FlowField is a distance field of the arena's obstacles and walls, shared by every Avoider Robot.
+ * It is rebuilt only when obstacles change, and robots steer by sampling it instead of reacting after contact.
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for the obstacle distance field.
+ * <p>
+ * Every cell holds the distance from its centre to the nearest point a robot centre may not reach
+ * (inside an obstacle inflated by the robot radius, or past a wall). Distances are computed with a
+ * two-pass chamfer transform, so a rebuild costs a fixed amount per cell regardless of obstacle count.
+ */
+public class FlowField {
+    // Grid steps for each Direction ordinal (EAST, SOUTHEAST, SOUTH, ... NORTHEAST), y grows downwards
+    private static final int[] STEP_X = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] STEP_Y = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] TURNS = {1, -1, 2, -2, 3, -3}; // Turns tried when steering, smallest first
+
+    private final double cellSize; // Width and height of a cell
+    private final double robotRad; // Radius the obstacles are inflated by
+    private final double clearance; // Robots closer than this to an obstacle start steering
+    private final int cols, rows; // Grid size
+    private final float[] distance; // Distance to the nearest blocked point, per cell
+
+    /**
+     * Creates an empty field for an arena.
+     *
+     * @param width     The arena width.
+     * @param height    The arena height.
+     * @param cellSize  The width and height of a cell.
+     * @param robotRad  The robot radius the obstacles are inflated by.
+     * @param clearance The distance at which robots start to steer away.
+     */
+    public FlowField(double width, double height, double cellSize, double robotRad, double clearance) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+        this.robotRad = robotRad;
+        this.clearance = clearance;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.distance = new float[cols * rows];
+    }
+
+    /**
+     * Recomputes the field from the current obstacles and walls.
+     *
+     * @param objects All objects in the arena, non obstacles are ignored.
+     * @param minX    The smallest x a robot centre may reach.
+     * @param minY    The smallest y a robot centre may reach.
+     * @param maxX    The largest x a robot centre may reach.
+     * @param maxY    The largest y a robot centre may reach.
+     */
+    public void rebuild(List<Objects> objects, double minX, double minY, double maxX, double maxY) {
+        Arrays.fill(distance, Float.MAX_VALUE);
+
+        // Seed the walls
+        for (int cy = 0; cy < rows; cy++) {
+            double py = (cy + 0.5) * cellSize;
+            for (int cx = 0; cx < cols; cx++) {
+                double px = (cx + 0.5) * cellSize;
+                if (px < minX || px > maxX || py < minY || py > maxY) {
+                    distance[cy * cols + cx] = 0;
+                }
+            }
+        }
+
+        // Seed the obstacles
+        for (Objects object : objects) {
+            if (object instanceof Obstacle) {
+                seed((Obstacle) object);
+            }
+        }
+
+        // Chamfer distance transform, forward then backward pass
+        float straight = (float) cellSize;
+        float diagonal = (float) (cellSize * Math.sqrt(2));
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = 0; cx < cols; cx++) {
+                int i = cy * cols + cx;
+                float d = distance[i];
+                if (cx > 0) d = Math.min(d, distance[i - 1] + straight);
+                if (cy > 0) {
+                    d = Math.min(d, distance[i - cols] + straight);
+                    if (cx > 0) d = Math.min(d, distance[i - cols - 1] + diagonal);
+                    if (cx < cols - 1) d = Math.min(d, distance[i - cols + 1] + diagonal);
+                }
+                distance[i] = d;
+            }
+        }
+        for (int cy = rows - 1; cy >= 0; cy--) {
+            for (int cx = cols - 1; cx >= 0; cx--) {
+                int i = cy * cols + cx;
+                float d = distance[i];
+                if (cx < cols - 1) d = Math.min(d, distance[i + 1] + straight);
+                if (cy < rows - 1) {
+                    d = Math.min(d, distance[i + cols] + straight);
+                    if (cx < cols - 1) d = Math.min(d, distance[i + cols + 1] + diagonal);
+                    if (cx > 0) d = Math.min(d, distance[i + cols - 1] + diagonal);
+                }
+                distance[i] = d;
+            }
+        }
+    }
+
+    /**
+     * Returns the distance from a point to the nearest blocked area, 0 outside the grid.
+     *
+     * @param x The x-coordinate.
+     * @param y The y-coordinate.
+     * @return The sampled distance.
+     */
+    public double distanceAt(double x, double y) {
+        if (x < 0 || y < 0) {
+            return 0;
+        }
+        int cx = (int) (x / cellSize);
+        int cy = (int) (y / cellSize);
+        return sample(cx, cy);
+    }
+
+    /**
+     * Chooses the direction a robot should head in to keep clear of obstacles.
+     * Robots far from any obstacle, or already moving away from one, keep their direction.
+     * Otherwise the smallest turn that leads to the most open neighbouring cell is chosen.
+     *
+     * @param x       The robot's x-coordinate.
+     * @param y       The robot's y-coordinate.
+     * @param current The robot's current direction.
+     * @return The direction to head in.
+     */
+    public Direction steer(double x, double y, Direction current) {
+        if (x < 0 || y < 0) {
+            return current;
+        }
+        int cx = (int) (x / cellSize);
+        int cy = (int) (y / cellSize);
+        float here = sample(cx, cy);
+        if (here >= clearance) {
+            return current; // Nothing close enough to worry about
+        }
+        int heading = current.ordinal();
+        float bestDistance = sample(cx + STEP_X[heading], cy + STEP_Y[heading]);
+        if (bestDistance >= here) {
+            return current; // Already moving away or along the obstacle
+        }
+        Direction best = current;
+        for (int turn : TURNS) {
+            Direction candidate = current.add(turn);
+            float ahead = sample(cx + STEP_X[candidate.ordinal()], cy + STEP_Y[candidate.ordinal()]);
+            if (ahead > bestDistance) {
+                bestDistance = ahead;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private float sample(int cx, int cy) {
+        if (cx < 0 || cy < 0 || cx >= cols || cy >= rows) {
+            return 0;
+        }
+        return distance[cy * cols + cx];
+    }
+
+    /**
+     * Marks every cell whose centre a robot centre cannot reach because of an obstacle.
+     */
+    private void seed(Obstacle obstacle) {
+        double minX, minY, maxX, maxY;
+        double[] seg = null;
+        double reach2 = 0;
+        if (obstacle.getRad() == 0) {
+            seg = Arena.lineSegment(obstacle);
+            minX = Math.min(seg[0], seg[2]) - robotRad;
+            minY = Math.min(seg[1], seg[3]) - robotRad;
+            maxX = Math.max(seg[0], seg[2]) + robotRad;
+            maxY = Math.max(seg[1], seg[3]) + robotRad;
+        } else {
+            reach2 = (obstacle.getRad() + robotRad) * (obstacle.getRad() + robotRad) + 200; // As in Robot.hitting
+            double reach = Math.sqrt(reach2);
+            minX = obstacle.getX() - reach;
+            minY = obstacle.getY() - reach;
+            maxX = obstacle.getX() + reach;
+            maxY = obstacle.getY() + reach;
+        }
+        int x0 = Math.max(0, (int) Math.floor(minX / cellSize));
+        int y0 = Math.max(0, (int) Math.floor(minY / cellSize));
+        int x1 = Math.min(cols - 1, (int) Math.floor(maxX / cellSize));
+        int y1 = Math.min(rows - 1, (int) Math.floor(maxY / cellSize));
+        for (int cy = y0; cy <= y1; cy++) {
+            double py = (cy + 0.5) * cellSize;
+            for (int cx = x0; cx <= x1; cx++) {
+                double px = (cx + 0.5) * cellSize;
+                boolean blocked;
+                if (seg != null) {
+                    blocked = ObstacleRaster.segmentDistanceSq(px, py, seg) <= robotRad * robotRad;
+                } else {
+                    double dx = px - obstacle.getX();
+                    double dy = py - obstacle.getY();
+                    blocked = dx * dx + dy * dy < reach2;
+                }
+                if (blocked) {
+                    distance[cy * cols + cx] = 0;
+                }
+            }
+        }
+    }
+}
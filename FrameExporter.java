@@ -0,0 +1,213 @@
+/**
+ * FrameExporter writes the arena as a numbered PNG sequence for making videos of long runs.
+ * Frames are drawn by the SoftwareRenderer and encoded on a pool of worker threads, so it needs no display.
+ */
+package robot_simulator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Class for the frame exporter - takes a WorldSnapshot on the simulation thread and hands it to a worker,
+ * which draws and encodes it. The tick never waits: when every worker is busy and the queue is full,
+ * the frame is dropped and counted, unless setWaitWhenFull asks for every frame.
+ * <p>
+ * Frames are named frame_NNNNNNNN.png after their tick divided by the interval. Workers finish out of
+ * order and dropped frames leave gaps, so encode them by name, for example
+ * {@code ffmpeg -pattern_type glob -i 'frame_*.png' out.mp4}.
+ */
+public class FrameExporter implements Closeable {
+    private final File directory;
+    private final double scale; // Pixels per world unit
+    private final int interval; // Ticks between frames
+    private final ThreadPoolExecutor pool;
+    private final ThreadLocal<SoftwareRenderer> renderers = new ThreadLocal<>(); // One renderer per worker
+
+    private final AtomicLong written = new AtomicLong(); // Frames encoded
+    private final AtomicLong dropped = new AtomicLong(); // Frames lost because the workers were behind
+    private volatile IOException failure = null; // First write error, reported on close
+    private volatile boolean waitWhenFull = false; // Wait for a worker instead of dropping frames
+
+    /**
+     * Creates the output directory if needed and starts the worker pool.
+     *
+     * @param directory The directory to write frames to.
+     * @param scale     Pixels per world unit.
+     * @param interval  Ticks between frames.
+     * @param threads   Number of worker threads.
+     * @param queueSize Frames that may wait for a worker before new frames are dropped.
+     * @throws IOException If the directory cannot be created.
+     */
+    public FrameExporter(String directory, double scale, int interval, int threads, int queueSize) throws IOException {
+        if (scale <= 0 || interval < 1 || threads < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("scale, interval, threads and queueSize must be positive");
+        }
+        this.directory = new File(directory);
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.scale = scale;
+        this.interval = interval;
+        AtomicInteger workers = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "frame-export-" + workers.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    if (waitWhenFull && !executor.isShutdown()) {
+                        try {
+                            executor.getQueue().put(runnable);
+                            return;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    dropped.incrementAndGet();
+                    if (runnable instanceof Frame) {
+                        ((Frame) runnable).snapshot.release(); // the frame will never be drawn
+                    }
+                });
+    }
+
+    /**
+     * Makes submit wait for room in the queue rather than drop the frame. For batch runs, where every
+     * frame matters more than the tick rate.
+     */
+    public void setWaitWhenFull(boolean waitWhenFull) {
+        this.waitWhenFull = waitWhenFull;
+    }
+
+    /**
+     * Returns whether a frame is due at a tick.
+     */
+    public boolean isFrameTick(long tick) {
+        return tick % interval == 0;
+    }
+
+    /**
+     * Queues a snapshot to be drawn and written. Returns at once; the snapshot must not be changed afterwards,
+     * and is released once written or dropped.
+     *
+     * @param snapshot The world to export.
+     */
+    public void submit(WorldSnapshot snapshot) {
+        if (pool.isShutdown()) {
+            snapshot.release();
+            return;
+        }
+        pool.execute(new Frame(snapshot));
+    }
+
+    /**
+     * A queued frame, kept as its own class so a dropped frame's snapshot can be released.
+     */
+    private final class Frame implements Runnable {
+        final WorldSnapshot snapshot;
+
+        Frame(WorldSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void run() {
+            try {
+                write(snapshot);
+            } finally {
+                snapshot.release();
+            }
+        }
+    }
+
+    /**
+     * Draws and encodes one frame, on a worker thread.
+     */
+    private void write(WorldSnapshot snapshot) {
+        int width = Math.max(1, (int) Math.ceil(snapshot.width * scale));
+        int height = Math.max(1, (int) Math.ceil(snapshot.height * scale));
+        SoftwareRenderer renderer = renderers.get();
+        if (renderer == null || renderer.getWidth() != width || renderer.getHeight() != height) {
+            renderer = new SoftwareRenderer(width, height, scale);
+            renderers.set(renderer);
+        }
+        File file = new File(directory, String.format("frame_%08d.png", snapshot.tick / interval));
+        try {
+            ImageIO.write(renderer.render(snapshot), "png", file);
+            written.incrementAndGet();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Waits for the queued frames to be written and stops the workers.
+     *
+     * @throws IOException If a frame could not be written, or the workers did not finish.
+     */
+    @Override
+    public void close() throws IOException {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new IOException("Frame export did not finish, " + pool.getQueue().size() + " frames still queued");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing frame export", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Runs a saved simulation without a display and exports its frames.
+     * Usage: FrameExporter <saved.dat> <output directory> <ticks> [interval] [scale] [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: FrameExporter <saved.dat> <output directory> <ticks> [interval] [scale] [threads]");
+            System.exit(2);
+        }
+        long ticks = Long.parseLong(args[2]);
+        int interval = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        double scale = args.length > 4 ? Double.parseDouble(args[4]) : 1;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        Arena arena = Arena.readFile(args[0]);
+        FrameExporter exporter = new FrameExporter(args[1], scale, interval, threads, threads * 4);
+        exporter.setWaitWhenFull(true);
+        arena.setFrameExporter(exporter);
+        long start = System.nanoTime();
+        for (long i = 0; i < ticks; i++) {
+            arena.tick();
+        }
+        arena.setFrameExporter(null);
+        exporter.close();
+        System.out.printf("%d ticks in %.2f s, %d frames written, %d dropped, to %s%n", ticks,
+                (System.nanoTime() - start) / 1e9, exporter.getWritten(), exporter.getDropped(), exporter.getDirectory());
+    }
+}
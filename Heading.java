@@ -0,0 +1,119 @@
+/**
+ * Heading provides the fixed-point angle used for the heading of every robot.
+ * A full turn is divided into STEPS binary units, and sines and cosines are read from precomputed tables,
+ * so moving and drawing robots needs no trigonometry.
+ */
+package robot_simulator;
+
+/**
+ * Utility class for fixed-point headings.
+ * A heading is an int in [0, STEPS); 0 is east and angles grow clockwise on screen (y points down), as with Direction.
+ */
+public final class Heading {
+    public static final int STEPS = 4096; // Binary angle units in a full turn
+    private static final int MASK = STEPS - 1;
+    private static final int HALF = STEPS / 2; // Half a turn
+    public static final int PER_DIRECTION = STEPS / 8; // Units between neighbouring Directions (45 degrees)
+
+    private static final double[] COS = new double[STEPS]; // Unit vector x for each heading
+    private static final double[] SIN = new double[STEPS]; // Unit vector y for each heading
+
+    static {
+        for (int i = 0; i < STEPS; i++) {
+            double angle = i * 2 * Math.PI / STEPS;
+            COS[i] = Math.cos(angle);
+            SIN[i] = Math.sin(angle);
+        }
+    }
+
+    private Heading() {
+    }
+
+    /**
+     * Returns the x component of the unit vector for a heading.
+     */
+    public static double cos(int heading) {
+        return COS[heading & MASK];
+    }
+
+    /**
+     * Returns the y component of the unit vector for a heading.
+     */
+    public static double sin(int heading) {
+        return SIN[heading & MASK];
+    }
+
+    /**
+     * Returns the heading pointing the same way as a Direction.
+     */
+    public static int fromDirection(Direction direction) {
+        return direction.ordinal() * PER_DIRECTION;
+    }
+
+    /**
+     * Returns the Direction nearest to a heading.
+     */
+    public static Direction toDirection(int heading) {
+        return Direction.of((((heading & MASK) + PER_DIRECTION / 2) / PER_DIRECTION) & 7);
+    }
+
+    /**
+     * Converts an angle in radians to the nearest heading.
+     */
+    public static int fromRadians(double radians) {
+        return (int) Math.round(radians * (STEPS / (2 * Math.PI))) & MASK;
+    }
+
+    /**
+     * Converts a heading to radians, in [0, 2 PI).
+     */
+    public static double toRadians(int heading) {
+        return (heading & MASK) * (2 * Math.PI / STEPS);
+    }
+
+    /**
+     * Converts a heading to whole degrees, in [0, 360).
+     */
+    public static int toDegrees(int heading) {
+        return (int) ((heading & MASK) * 360L / STEPS);
+    }
+
+    /**
+     * Adds a signed number of units to a heading, wrapping around.
+     */
+    public static int add(int heading, int units) {
+        return (heading + units) & MASK;
+    }
+
+    /**
+     * Reflects a heading off a vertical wall (left or right).
+     */
+    public static int reflectX(int heading) {
+        return (HALF - heading) & MASK;
+    }
+
+    /**
+     * Reflects a heading off a horizontal wall (top or bottom).
+     */
+    public static int reflectY(int heading) {
+        return (-heading) & MASK;
+    }
+
+    /**
+     * Turns a heading towards a target by at most maxStep units, taking the shorter way round.
+     * Turns of snapAbove units or more are made at once, so bounces are not smoothed.
+     *
+     * @param heading   The current heading.
+     * @param target    The heading to turn towards.
+     * @param maxStep   The largest turn made in one call.
+     * @param snapAbove Turns this large or larger are completed immediately.
+     * @return The new heading.
+     */
+    public static int turnToward(int heading, int target, int maxStep, int snapAbove) {
+        int diff = ((target - heading + HALF) & MASK) - HALF; // Signed shortest turn, in [-HALF, HALF)
+        if (Math.abs(diff) <= maxStep || Math.abs(diff) >= snapAbove) {
+            return target & MASK;
+        }
+        return (heading + (diff > 0 ? maxStep : -maxStep)) & MASK;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * KernelBenchmark times the scalar and vector robot kernels against each other.
+ * Run it with "java --add-modules jdk.incubator.vector robot_simulator.KernelBenchmark [robots] [rounds]".
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class for the kernel benchmark - a plain main with warm-up rounds, so it runs without a benchmark harness.
+ * Results are checked to match before anything is timed.
+ */
+public class KernelBenchmark {
+    private static final double WIDTH = 800, HEIGHT = 500; // Arena size used for the wall test
+
+    private final int n; // Number of robots
+    private final double[] x, y, rad, vx, vy;
+    private final byte[] out;
+    private final int[] hits;
+    private long sink = 0; // Keeps results alive so the JIT cannot remove the loops
+
+    /**
+     * Creates random robots spread over the arena.
+     *
+     * @param n The number of robots.
+     */
+    public KernelBenchmark(int n) {
+        Random random = new Random(42);
+        this.n = n;
+        x = new double[n];
+        y = new double[n];
+        rad = new double[n];
+        vx = new double[n];
+        vy = new double[n];
+        out = new byte[n];
+        hits = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * WIDTH;
+            y[i] = random.nextDouble() * HEIGHT;
+            rad[i] = 10;
+            vx[i] = random.nextDouble() - 0.5;
+            vy[i] = random.nextDouble() - 0.5;
+        }
+    }
+
+    /**
+     * Runs each kernel once over every robot, as a simulation tick would.
+     * The hitting kernel is run for a fixed sample of 64 robots, not all n, to keep the round linear.
+     */
+    private void round(RobotKernels kernels) {
+        kernels.move(x, y, vx, vy, n);
+        for (int i = 0; i < n; i++) {
+            vx[i] = -vx[i]; // Move back next round, so positions stay in the arena
+            vy[i] = -vy[i];
+        }
+        kernels.walls(x, y, rad, n, 0, 65, WIDTH, HEIGHT, out);
+        sink += out[n - 1];
+        for (int i = 0; i < 64; i++) {
+            int p = i * (n / 64);
+            sink += kernels.hitting(x[p], y[p], rad[p], x, y, rad, n, hits);
+        }
+    }
+
+    /**
+     * Returns the average nanoseconds per round.
+     */
+    private double time(RobotKernels kernels, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            round(kernels); // Warm-up, lets the JIT compile the kernels
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            round(kernels);
+        }
+        return (System.nanoTime() - start) / (double) rounds;
+    }
+
+    /**
+     * Checks that two kernel implementations flag the same robots.
+     */
+    private boolean agree(RobotKernels a, RobotKernels b) {
+        byte[] outB = new byte[n];
+        int[] hitsB = new int[n];
+        a.walls(x, y, rad, n, 0, 65, WIDTH, HEIGHT, out);
+        b.walls(x, y, rad, n, 0, 65, WIDTH, HEIGHT, outB);
+        if (!Arrays.equals(out, outB)) {
+            return false;
+        }
+        for (int p = 0; p < n; p += Math.max(1, n / 64)) {
+            int countA = a.hitting(x[p], y[p], rad[p], x, y, rad, n, hits);
+            int countB = b.hitting(x[p], y[p], rad[p], x, y, rad, n, hitsB);
+            if (countA != countB || !Arrays.equals(hits, 0, countA, hitsB, 0, countB)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        int robots = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        KernelBenchmark benchmark = new KernelBenchmark(Math.max(64, robots));
+
+        RobotKernels scalar = new ScalarRobotKernels();
+        RobotKernels vector = RobotKernels.select("vector");
+        if (vector instanceof ScalarRobotKernels) {
+            System.out.println("Vector API not available, run with --add-modules jdk.incubator.vector");
+            vector = null;
+        } else if (!benchmark.agree(scalar, vector)) {
+            System.out.println("Scalar and vector kernels disagree");
+            return;
+        }
+
+        double scalarNanos = benchmark.time(scalar, rounds);
+        System.out.printf("scalar: %.1f us per round (%d robots)%n", scalarNanos / 1000, benchmark.n);
+        if (vector != null) {
+            double vectorNanos = benchmark.time(vector, rounds);
+            System.out.printf("vector: %.1f us per round, %.2fx%n", vectorNanos / 1000, scalarNanos / vectorNanos);
+        }
+        System.out.println("(checksum " + benchmark.sink + ")");
+    }
+}
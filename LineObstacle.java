@@ -1,83 +1,169 @@
+/**
+ * LineObstacle represents a straight wall segment in the arena, of any length and rotation.
+ * It inherits from Obstacle and implements Serializable for saving/loading.
+ */
 package robot_simulator;
 
-import java.io.File; // Import the File class to handle file operations
-import javafx.stage.FileChooser; // Import FileChooser to enable file selection dialogs
-import javafx.stage.Stage; // Import Stage for window handling
-import javafx.scene.Group; // Import Group for JavaFX graphical grouping
-
-public class Filehandler {
-    public String data = ""; // Holds any relevant data as a string (not used in the current code)
-    public FileChooser file_chooser; // FileChooser instance to select files
-    private Arena arena; // Arena instance to manage the simulation
-    private Canvas canvas; // Canvas instance for the visual display
-
-    // Constructor initializes the Arena and Canvas
-    public Filehandler() {
-        this.arena = new Arena(0, 0, null); // Create a default Arena with dummy dimensions
-        this.canvas = new Canvas(); // Create a new Canvas instance
+import java.io.Serializable;
+
+/**
+ * Class for the line obstacle - a segment from its position (x, y) to an end point (x2, y2).
+ * Its radius is 0, which is how the rest of the simulation tells line obstacles from circle obstacles.
+ * <p>
+ * The direction vector, inverse squared length and bounding box are worked out once and kept until the
+ * segment is moved, so a distance test is a handful of multiplies. The end points are fixed once the obstacle is
+ * made; moving it goes through setXY, which the arena follows with its obstacle structures.
+ */
+public class LineObstacle extends Obstacle implements Serializable {
+    private static final long serialVersionUID = 1L; // Serialization ID
+
+    private double x2, y2; // The end point, the start point is the obstacle's position
+
+    // Geometry worked out from the end points, rebuilt on first use after a move
+    private transient boolean cached = false;
+    private transient double[] segment; // {x1, y1, x2, y2}
+    private transient double dx, dy; // End point minus start point
+    private transient double invLengthSq; // 1 / (dx^2 + dy^2), 0 for a segment of no length
+    private transient double minX, minY, maxX, maxY; // Bounding box
+
+    /**
+     * Constructs a line obstacle between two points.
+     *
+     * @param x1 The x-coordinate of the start point.
+     * @param y1 The y-coordinate of the start point.
+     * @param x2 The x-coordinate of the end point.
+     * @param y2 The y-coordinate of the end point.
+     */
+    public LineObstacle(double x1, double y1, double x2, double y2) {
+        super(x1, y1, 0);
+        this.x2 = x2;
+        this.y2 = y2;
     }
 
-    /*
-     * Opens a file selected by the user and loads the simulation data into the Arena.
+    /**
+     * Constructs a line obstacle of a given length, rotated about its midpoint.
+     *
+     * @param cx      The x-coordinate of the midpoint.
+     * @param cy      The y-coordinate of the midpoint.
+     * @param length  The length of the segment.
+     * @param degrees The rotation, clockwise on screen from pointing east.
+     * @return The line obstacle.
      */
-    public void open() {
-        file_chooser = new FileChooser(); // Create a new FileChooser instance
-        File selectedFile = file_chooser.showOpenDialog(null); // Open a dialog to select a file
-        if (selectedFile != null) { // If a file is selected
-            // Load the file into the Arena, using a new Group for visuals
-            Arena loadedArena = Arena.loadFile(selectedFile.getAbsolutePath(), new Group());
-            if (loadedArena != null) { // If loading succeeds
-                this.arena = loadedArena; // Replace the current arena with the loaded one
-                this.arena.setArenaGroup(new Group()); // Ensure transient fields are set properly
-                System.out.println("File loaded successfully.");
-                try {
-                    canvas.drawWorld(); // Redraw the world with the loaded data
-                } catch (Exception e) { // Handle potential errors during rendering
-                    System.out.println("Error drawing world: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            } else {
-                System.out.println("File cannot be opened."); // Print error if loading fails
-            }
-        }
+    public static LineObstacle rotated(double cx, double cy, double length, double degrees) {
+        double angle = Math.toRadians(degrees);
+        double hx = Math.cos(angle) * length / 2;
+        double hy = Math.sin(angle) * length / 2;
+        return new LineObstacle(cx - hx, cy - hy, cx + hx, cy + hy);
+    }
+
+    /**
+     * Moves the whole segment so that it starts at (x, y).
+     */
+    @Override
+    public void setXY(double x, double y) {
+        x2 += x - this.x;
+        y2 += y - this.y;
+        super.setXY(x, y);
+        cached = false;
     }
 
-    /*
-     * Resets the arena by starting a new simulation.
-     * @param window The current Stage that will be closed and reopened.
+    /**
+     * Works out the cached geometry if the end points changed since it was last used.
      */
-    public void resetArena(Stage window) {
-        try {
-            New(window); // Call the method to start a new simulation
-        } catch (Exception e) { // Handle potential errors
-            System.out.println("Error resetting arena: " + e.getMessage());
-            e.printStackTrace();
+    private void cache() {
+        if (cached) {
+            return;
         }
+        if (segment == null) {
+            segment = new double[4];
+        }
+        segment[0] = x;
+        segment[1] = y;
+        segment[2] = x2;
+        segment[3] = y2;
+        dx = x2 - x;
+        dy = y2 - y;
+        double lengthSq = dx * dx + dy * dy;
+        invLengthSq = lengthSq == 0 ? 0 : 1 / lengthSq;
+        minX = Math.min(x, x2);
+        minY = Math.min(y, y2);
+        maxX = Math.max(x, x2);
+        maxY = Math.max(y, y2);
+        cached = true;
+    }
+
+    /**
+     * Returns the end points {x1, y1, x2, y2}. The array is shared and must not be changed.
+     */
+    public double[] getSegment() {
+        cache();
+        return segment;
+    }
+
+    public double getX2() {
+        return x2;
+    }
+
+    public double getY2() {
+        return y2;
+    }
+
+    public double getLength() {
+        cache();
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public double getMinX() {
+        cache();
+        return minX;
+    }
+
+    public double getMinY() {
+        cache();
+        return minY;
+    }
+
+    public double getMaxX() {
+        cache();
+        return maxX;
+    }
+
+    public double getMaxY() {
+        cache();
+        return maxY;
     }
 
-    /*
-     * Creates a new simulation by restarting the Canvas.
-     * @param window The current Stage to restart.
+    /**
+     * Returns the squared distance from a point to the nearest point of the segment.
+     *
+     * @param px The x-coordinate of the point.
+     * @param py The y-coordinate of the point.
+     * @return The squared distance.
      */
-    public void New(Stage window) throws Exception {
-        window.close(); // Close the current stage
-        canvas.start(window); // Restart the Canvas application
+    public double distanceSq(double px, double py) {
+        cache();
+        double rx = px - x;
+        double ry = py - y;
+        double t = (rx * dx + ry * dy) * invLengthSq;
+        t = t < 0 ? 0 : (t > 1 ? 1 : t);
+        double ex = rx - t * dx;
+        double ey = ry - t * dy;
+        return ex * ex + ey * ey;
     }
 
-    /*
-     * Saves the current simulation to a file chosen by the user.
+    /**
+     * Checks whether a circle touches the segment.
+     *
+     * @param cx  The x-coordinate of the circle's centre.
+     * @param cy  The y-coordinate of the circle's centre.
+     * @param rad The radius of the circle.
+     * @return True if the circle is within its radius of the segment.
      */
-    public void save() throws Exception {
-        canvas.stop(); // Stop the simulation before saving
-        file_chooser = new FileChooser(); // Create a new FileChooser instance
-        File selectedFile = file_chooser.showSaveDialog(null); // Open a dialog to select a save file
-        if (selectedFile != null) { // If a file is selected
-            // Save the current arena to the selected file
-            if (arena.saveFile(selectedFile.getAbsolutePath()) > 0) { 
-                System.out.println("Error: Could not save file"); // Print error if saving fails
-            } else {
-                System.out.println("File saved successfully"); // Confirm successful save
-            }
+    public boolean touches(double cx, double cy, double rad) {
+        cache();
+        if (cx + rad < minX || cx - rad > maxX || cy + rad < minY || cy - rad > maxY) {
+            return false;
         }
+        return distanceSq(cx, cy) <= rad * rad;
     }
 }
@@ -0,0 +1,322 @@
+/**
+ * ObstacleRaster is a precomputed occupancy grid of the static obstacles in the arena.
+ * Obstacles are inflated by the robot radius, so a robot centre in a free cell cannot be touching any obstacle.
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for the obstacle occupancy raster.
+ * <p>
+ * Each cell is either free (one bit lookup, no collision possible), covered (fully inside an inflated obstacle,
+ * a collision without any geometry test) or on a boundary, where the exact test is run only against the
+ * obstacles listed for that cell. The raster is updated incrementally when an obstacle is added, moved or removed.
+ */
+public class ObstacleRaster {
+    private static final Obstacle[] NONE = new Obstacle[0];
+
+    private final double cellSize; // Width and height of a cell
+    private final double robotRad; // Radius the obstacles are inflated by
+    private final int cols, rows; // Grid size
+    private final long[] occupied; // Bit set: cell touches at least one inflated obstacle
+    private final long[] covered; // Bit set: cell lies entirely inside at least one inflated obstacle
+    private final Obstacle[][] candidates; // Obstacles touching each cell, covering ones first
+    private final byte[] coverCount; // Number of leading candidates that cover the whole cell
+
+    /**
+     * Creates an empty raster for an arena.
+     *
+     * @param width    The arena width.
+     * @param height   The arena height.
+     * @param cellSize The width and height of a cell.
+     * @param robotRad The robot radius the obstacles are inflated by.
+     */
+    public ObstacleRaster(double width, double height, double cellSize, double robotRad) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+        this.robotRad = robotRad;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = cols * rows;
+        this.occupied = new long[(cells + 63) >>> 6];
+        this.covered = new long[(cells + 63) >>> 6];
+        this.candidates = new Obstacle[cells][];
+        this.coverCount = new byte[cells];
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public double getRobotRad() {
+        return robotRad;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Rebuilds the raster from scratch.
+     *
+     * @param objects All objects in the arena, non obstacles are ignored.
+     */
+    public void rebuild(List<Objects> objects) {
+        clear();
+        for (Objects object : objects) {
+            if (object instanceof Obstacle) {
+                add((Obstacle) object);
+            }
+        }
+    }
+
+    /**
+     * Removes every obstacle from the raster.
+     */
+    public void clear() {
+        Arrays.fill(occupied, 0L);
+        Arrays.fill(covered, 0L);
+        Arrays.fill(candidates, null);
+        Arrays.fill(coverCount, (byte) 0);
+    }
+
+    /**
+     * Returns whether the raster can answer queries for a robot - it must have the radius the raster was built for
+     * and be inside the grid.
+     *
+     * @param robot The robot to test.
+     * @return True if cellAt can be used for this robot.
+     */
+    public boolean covers(Robot robot) {
+        return robot.getRad() == robotRad && robot.getX() >= 0 && robot.getY() >= 0
+                && robot.getX() < cols * cellSize && robot.getY() < rows * cellSize;
+    }
+
+    /**
+     * Returns the index of the cell containing a point, or -1 if it is outside the grid.
+     */
+    public int cellAt(double x, double y) {
+        if (x < 0 || y < 0) {
+            return -1;
+        }
+        int cx = (int) (x / cellSize);
+        int cy = (int) (y / cellSize);
+        if (cx >= cols || cy >= rows) {
+            return -1;
+        }
+        return cy * cols + cx;
+    }
+
+    /**
+     * Returns whether any inflated obstacle touches the cell.
+     */
+    public boolean isOccupied(int cell) {
+        return (occupied[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns whether the cell lies entirely inside an inflated obstacle.
+     */
+    public boolean isCovered(int cell) {
+        return (covered[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns the obstacles touching a cell. The first coverCount(cell) of them cover the whole cell
+     * and need no exact test. Entries past the end of the touching obstacles are null.
+     */
+    public Obstacle[] candidates(int cell) {
+        Obstacle[] list = candidates[cell];
+        return list == null ? NONE : list;
+    }
+
+    /**
+     * Returns the number of leading candidates that cover the whole cell.
+     */
+    public int coverCount(int cell) {
+        return coverCount[cell];
+    }
+
+    /**
+     * Rasterises an obstacle into the cells it touches.
+     *
+     * @param obstacle The obstacle that was added or moved to its current position.
+     */
+    public void add(Obstacle obstacle) {
+        int[] range = cellRange(obstacle);
+        for (int cy = range[1]; cy <= range[3]; cy++) {
+            for (int cx = range[0]; cx <= range[2]; cx++) {
+                int cell = cy * cols + cx;
+                int state = classify(obstacle, cx, cy);
+                if (state == OUTSIDE) {
+                    continue;
+                }
+                Obstacle[] list = candidates[cell];
+                int size = list == null ? 0 : length(list);
+                if (list == null || size == list.length) {
+                    list = Arrays.copyOf(list == null ? NONE : list, Math.max(2, size * 2));
+                    candidates[cell] = list;
+                }
+                if (state == INSIDE) {
+                    int first = coverCount[cell];
+                    list[size] = list[first]; // Move the first boundary candidate to the end
+                    list[first] = obstacle;
+                    coverCount[cell]++;
+                    covered[cell >>> 6] |= 1L << cell;
+                } else {
+                    list[size] = obstacle;
+                }
+                occupied[cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+
+    /**
+     * Removes an obstacle from the cells it touches. Must be called before the obstacle is moved.
+     *
+     * @param obstacle The obstacle that is being moved or deleted, still at its old position.
+     */
+    public void remove(Obstacle obstacle) {
+        int[] range = cellRange(obstacle);
+        for (int cy = range[1]; cy <= range[3]; cy++) {
+            for (int cx = range[0]; cx <= range[2]; cx++) {
+                int cell = cy * cols + cx;
+                Obstacle[] list = candidates[cell];
+                if (list == null) {
+                    continue;
+                }
+                int size = length(list);
+                int index = -1;
+                for (int i = 0; i < size; i++) {
+                    if (list[i] == obstacle) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0) {
+                    continue;
+                }
+                int cover = coverCount[cell];
+                if (index < cover) { // Keep covering candidates at the front
+                    list[index] = list[cover - 1];
+                    list[cover - 1] = list[size - 1];
+                    coverCount[cell]--;
+                } else {
+                    list[index] = list[size - 1];
+                }
+                list[size - 1] = null;
+                if (size == 1) {
+                    candidates[cell] = null;
+                    occupied[cell >>> 6] &= ~(1L << cell);
+                }
+                if (coverCount[cell] == 0) {
+                    covered[cell >>> 6] &= ~(1L << cell);
+                }
+            }
+        }
+    }
+
+    private static final int OUTSIDE = 0;
+    private static final int BOUNDARY = 1;
+    private static final int INSIDE = 2;
+
+    /**
+     * Classifies a cell against one inflated obstacle.
+     */
+    private int classify(Obstacle obstacle, int cx, int cy) {
+        double x0 = cx * cellSize;
+        double y0 = cy * cellSize;
+        double x1 = x0 + cellSize;
+        double y1 = y0 + cellSize;
+        if (obstacle.getRad() == 0) { // Line obstacle, inflated into a capsule
+            double[] seg = Arena.lineSegment(obstacle);
+            double halfDiag = cellSize * Math.sqrt(0.5);
+            double centre = Math.sqrt(segmentDistanceSq(x0 + cellSize / 2, y0 + cellSize / 2, seg));
+            if (centre - halfDiag > robotRad) {
+                return OUTSIDE;
+            }
+            // The capsule is convex, so the cell is inside when all four corners are
+            double r2 = robotRad * robotRad;
+            if (segmentDistanceSq(x0, y0, seg) <= r2 && segmentDistanceSq(x1, y0, seg) <= r2
+                    && segmentDistanceSq(x0, y1, seg) <= r2 && segmentDistanceSq(x1, y1, seg) <= r2) {
+                return INSIDE;
+            }
+            return BOUNDARY;
+        }
+        // Circle obstacle, inflated the same way as Robot.hitting
+        double reach2 = (obstacle.getRad() + robotRad) * (obstacle.getRad() + robotRad) + 200;
+        double ox = obstacle.getX();
+        double oy = obstacle.getY();
+        double nx = Math.max(x0, Math.min(ox, x1)) - ox; // Nearest point of the cell
+        double ny = Math.max(y0, Math.min(oy, y1)) - oy;
+        if (nx * nx + ny * ny >= reach2) {
+            return OUTSIDE;
+        }
+        double fx = Math.max(Math.abs(x0 - ox), Math.abs(x1 - ox)); // Farthest corner of the cell
+        double fy = Math.max(Math.abs(y0 - oy), Math.abs(y1 - oy));
+        return fx * fx + fy * fy < reach2 ? INSIDE : BOUNDARY;
+    }
+
+    /**
+     * Returns the range of cells {minX, minY, maxX, maxY} an inflated obstacle can touch, clamped to the grid.
+     */
+    private int[] cellRange(Obstacle obstacle) {
+        double minX, minY, maxX, maxY;
+        if (obstacle.getRad() == 0) {
+            double[] seg = Arena.lineSegment(obstacle);
+            minX = Math.min(seg[0], seg[2]) - robotRad;
+            minY = Math.min(seg[1], seg[3]) - robotRad;
+            maxX = Math.max(seg[0], seg[2]) + robotRad;
+            maxY = Math.max(seg[1], seg[3]) + robotRad;
+        } else {
+            double reach = Math.sqrt((obstacle.getRad() + robotRad) * (obstacle.getRad() + robotRad) + 200);
+            minX = obstacle.getX() - reach;
+            minY = obstacle.getY() - reach;
+            maxX = obstacle.getX() + reach;
+            maxY = obstacle.getY() + reach;
+        }
+        return new int[] {
+            clamp((int) Math.floor(minX / cellSize), cols),
+            clamp((int) Math.floor(minY / cellSize), rows),
+            clamp((int) Math.floor(maxX / cellSize), cols),
+            clamp((int) Math.floor(maxY / cellSize), rows)
+        };
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * Returns the number of non-null entries at the front of a candidate list.
+     */
+    private static int length(Obstacle[] list) {
+        int size = 0;
+        while (size < list.length && list[size] != null) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the squared distance from a point to a segment {x1, y1, x2, y2}.
+     */
+    static double segmentDistanceSq(double px, double py, double[] seg) {
+        double dx = seg[2] - seg[0];
+        double dy = seg[3] - seg[1];
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - seg[0]) * dx + (py - seg[1]) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double cx = seg[0] + t * dx - px;
+        double cy = seg[1] + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * QualityController keeps the simulation real-time and the display responsive by trading away optional work.
+ * It measures tick, draw and overlay times every frame and turns quality down when a frame runs over budget
+ * and back up when there is time to spare.
+ */
+package robot_simulator;
+
+/**
+ * Class for the quality controller - decides per Timeline frame how many ticks to run, whether to draw,
+ * whether to refresh the robot location overlay, and the level of detail and telemetry sampling to use.
+ * <p>
+ * The target is: one simulation tick per tick period of wall-clock time, and at least minFps drawn frames.
+ * Quality is lowered one step at a time, cheapest loss first: overlay refresh rate, telemetry sampling,
+ * level of detail, then draw frequency (never below minFps). It is raised again in the reverse order.
+ */
+public class QualityController {
+    static final int MAX_CATCH_UP = 5; // Most ticks run in one frame to catch up, further debt is dropped
+    static final int SLOW_FRAMES = 3; // Frames over budget before lowering quality
+    static final int FAST_FRAMES = 60; // Frames well under budget before raising quality
+    static final double SMOOTHING = 0.2; // Weight of the newest sample in the averaged timings
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY; // As many ticks as fit in each frame
+
+    private static final int[] OVERLAY_STEPS = {1, 2, 4, 8, 16}; // Frames between overlay refreshes
+    private static final int[] TELEMETRY_STEPS = {1, 2, 4, 8}; // State record strides
+    private static final int MAX_BIAS = DetailLevel.HEATMAP.ordinal();
+
+    private final long tickPeriod; // Wall-clock nanoseconds per simulation tick at normal speed
+    private final long frameBudget; // Nanoseconds of work allowed per Timeline frame
+    private final int maxDrawEvery; // Largest number of frames between draws that still meets minFps
+
+    // Quality knobs, 0 is best
+    private int overlayStep = 0;
+    private int telemetryStep = 0;
+    private int detailBias = 0;
+    private int drawEvery = 1;
+
+    // Averaged timings, nanoseconds
+    private double tickNanos = 0;
+    private double drawNanos = 0;
+    private double overlayNanos = 0;
+
+    private double speed = 1; // Simulated time per wall-clock time, MAX_SPEED to fill every frame with ticks
+    private long frameStart = 0; // Time the current frame started
+    private long lastFrame = 0; // Time the last frame started, 0 before the first
+    private long debt = 0; // Wall-clock time not yet simulated
+    private long frame = 0; // Frames since the controller started
+    private int ticksDue = 0; // Ticks beginFrame took out of the debt for this frame
+    private int ticksThisFrame = 0;
+    private int slowFrames = 0, fastFrames = 0;
+    private long droppedTicks = 0; // Ticks given up because the simulation could not keep up
+
+    /**
+     * Creates a controller.
+     *
+     * @param tickPeriodMillis  The wall-clock time per simulation tick, and the Timeline frame period.
+     * @param minFps            The lowest acceptable number of drawn frames per second.
+     */
+    public QualityController(double tickPeriodMillis, double minFps) {
+        this.tickPeriod = (long) (tickPeriodMillis * 1_000_000);
+        this.frameBudget = (long) (tickPeriod * 0.8); // Leave room for JavaFX layout and rendering
+        this.maxDrawEvery = Math.max(1, (int) (1000 / (minFps * tickPeriodMillis)));
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Sets how fast the simulation runs compared to the clock. Faster speeds run several ticks per frame;
+     * drawing stays governed by the frame budget.
+     *
+     * @param speed The speed multiplier, such as 1, 2 or 10, or MAX_SPEED.
+     */
+    public void setSpeed(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+        this.speed = speed;
+        debt = 0;
+    }
+
+    /**
+     * Forgets the timing of the previous frame, for example after the simulation was paused.
+     */
+    public void reset() {
+        lastFrame = 0;
+        debt = 0;
+    }
+
+    /**
+     * Starts a frame and returns the number of ticks to run in it so the simulation keeps up with the clock.
+     * At MAX_SPEED the caller should instead run ticks while hasTimeForTick() is true.
+     *
+     * @param now The current System.nanoTime().
+     * @return The number of ticks due, between 0 and MAX_CATCH_UP times the speed.
+     */
+    public int beginFrame(long now) {
+        frame++;
+        frameStart = now;
+        ticksThisFrame = 0;
+        ticksDue = 0;
+        if (speed == MAX_SPEED) {
+            lastFrame = now;
+            return Integer.MAX_VALUE;
+        }
+        if (lastFrame == 0) {
+            debt = tickPeriod; // First frame runs one tick
+        } else {
+            debt += (long) ((now - lastFrame) * speed);
+        }
+        lastFrame = now;
+        long due = debt / tickPeriod;
+        long cap = (long) Math.ceil(MAX_CATCH_UP * speed);
+        if (due > cap) {
+            droppedTicks += due - cap;
+            debt -= (due - cap) * tickPeriod; // Cannot keep up, slow the simulation rather than spiral
+            due = cap;
+        }
+        debt -= due * tickPeriod;
+        ticksDue = (int) due;
+        return ticksDue;
+    }
+
+    /**
+     * Returns whether another tick fits in this frame's budget, leaving time for the draw.
+     * Always true for the first tick of a frame. Due ticks it stops are run in later frames, see endFrame.
+     *
+     * @param now The current System.nanoTime().
+     */
+    public boolean hasTimeForTick(long now) {
+        double drawShare = shouldDraw() ? drawNanos : 0;
+        return ticksThisFrame == 0 || now - frameStart + tickNanos + drawShare <= frameBudget;
+    }
+
+    /**
+     * Records the time one tick took.
+     */
+    public void tickTook(long nanos) {
+        ticksThisFrame++;
+        tickNanos = average(tickNanos, nanos);
+    }
+
+    /**
+     * Returns whether this frame should be drawn.
+     */
+    public boolean shouldDraw() {
+        return frame % drawEvery == 0;
+    }
+
+    /**
+     * Records the time drawing took.
+     */
+    public void drawTook(long nanos) {
+        drawNanos = average(drawNanos, nanos);
+    }
+
+    /**
+     * Returns whether the robot location overlay should be refreshed this frame.
+     */
+    public boolean shouldRefreshOverlay() {
+        return frame % OVERLAY_STEPS[overlayStep] == 0;
+    }
+
+    /**
+     * Records the time refreshing the overlay took.
+     */
+    public void overlayTook(long nanos) {
+        overlayNanos = average(overlayNanos, nanos);
+    }
+
+    /**
+     * Ends a frame: returns the due ticks that did not fit to the debt, so later frames run them or count them
+     * as dropped, then adjusts quality from the averaged timings and applies it to the arena.
+     *
+     * @param arena The arena, whose detail bias and telemetry sampling are set. Turn its own adjustment of the
+     *              bias off with setAdaptiveDetail(false) when the controller takes it over.
+     */
+    public void endFrame(Arena arena) {
+        if (ticksThisFrame < ticksDue) {
+            debt += (long) (ticksDue - ticksThisFrame) * tickPeriod;
+        }
+        // At MAX_SPEED ticks fill the frame by design, so judge the frame as if it ran one
+        int ticks = speed == MAX_SPEED ? 1 : Math.max(1, ticksThisFrame);
+        double work = ticks * tickNanos + drawNanos / drawEvery
+                + overlayNanos / OVERLAY_STEPS[overlayStep];
+        if (work > frameBudget) {
+            fastFrames = 0;
+            if (++slowFrames >= SLOW_FRAMES) {
+                slowFrames = 0;
+                lower();
+            }
+        } else if (work < frameBudget / 2.0) {
+            slowFrames = 0;
+            if (++fastFrames >= FAST_FRAMES) {
+                fastFrames = 0;
+                raise();
+            }
+        } else {
+            slowFrames = 0;
+            fastFrames = 0;
+        }
+        if (arena.getDetailBias() != detailBias) {
+            arena.setDetailBias(detailBias);
+        }
+        if (arena.getTelemetry() != null) {
+            arena.getTelemetry().setStateStride(TELEMETRY_STEPS[telemetryStep]);
+        }
+    }
+
+    /**
+     * Lowers quality by one step, cheapest loss first.
+     */
+    private void lower() {
+        if (overlayStep < OVERLAY_STEPS.length - 1) {
+            overlayStep++;
+        } else if (telemetryStep < TELEMETRY_STEPS.length - 1) {
+            telemetryStep++;
+        } else if (detailBias < MAX_BIAS) {
+            detailBias++;
+        } else if (drawEvery < maxDrawEvery) {
+            drawEvery++;
+        } else {
+            return;
+        }
+        EventLog.debug(EventLog.Category.SIMULATION, "Quality lowered: " + describe());
+    }
+
+    /**
+     * Raises quality by one step, in the reverse order of lower().
+     */
+    private void raise() {
+        if (drawEvery > 1) {
+            drawEvery--;
+        } else if (detailBias > 0) {
+            detailBias--;
+        } else if (telemetryStep > 0) {
+            telemetryStep--;
+        } else if (overlayStep > 0) {
+            overlayStep--;
+        } else {
+            return;
+        }
+        EventLog.debug(EventLog.Category.SIMULATION, "Quality raised: " + describe());
+    }
+
+    /**
+     * Returns the number of ticks given up since the start because frames could not keep up.
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    /**
+     * Returns a short summary of the current quality settings and timings.
+     */
+    public String describe() {
+        return String.format("speed %s, draw every %d, overlay every %d, telemetry stride %d, detail bias %d"
+                        + " (tick %.2f ms, draw %.2f ms, overlay %.2f ms)",
+                speed == MAX_SPEED ? "max" : speed + "x", drawEvery, OVERLAY_STEPS[overlayStep],
+                TELEMETRY_STEPS[telemetryStep], detailBias,
+                tickNanos / 1e6, drawNanos / 1e6, overlayNanos / 1e6);
+    }
+
+    private static double average(double current, long sample) {
+        return current == 0 ? sample : current + SMOOTHING * (sample - current);
+    }
+}
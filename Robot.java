@@ -5,6 +5,8 @@
  */
 package robot_simulator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -13,9 +15,18 @@ import java.io.Serializable;
 public abstract class Robot extends Objects implements Serializable {
     private static final long serialVersionUID = 1L; // Serialization ID
 
-    static int RobotCounter = 0; // Counter for the number of robots, also used as a unique ID
+    static int RobotCounter = 0; // Next robot ID, only ever increases so IDs are never reused
     protected Direction direction; // The direction the robot is heading
     protected double RobotSpeed; // The speed at which the robot moves
+    protected int heading; // The way the robot is actually facing, in Heading units - turns towards direction
+
+    transient boolean destroyed = false; // Set once the robot has been removed from the arena
+    transient int eventVersion; // Bumped when the collision scheduler's predictions for the robot go stale
+    transient long checkPass, obstaclePass; // Last collision scheduler pass that queued the robot for each test
+    transient boolean eventActive; // Checked every tick by the collision scheduler rather than predicted
+
+    static final int TURN_RATE = Heading.STEPS / 64; // Largest smooth turn per tick (5.6 degrees)
+    static final int SNAP_TURN = Heading.STEPS / 4; // Turns of 90 degrees or more, such as bounces, happen at once
 
     /**
      * Constructs a robot at a specified position and size with a given speed.
@@ -29,9 +40,21 @@ public abstract class Robot extends Objects implements Serializable {
         super(x, y, rad); // Call the parent class constructor
         ID = RobotCounter++; // Assign a unique ID based on the counter
         direction = Direction.randomDirection(); // Assign a random initial direction
+        heading = Heading.fromDirection(direction); // Start facing the initial direction
         this.RobotSpeed = RobotSpeed;
     }
 
+    /**
+     * Restores a saved robot. Files saved before headings existed face their saved direction.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        direction = (Direction) fields.get("direction", null);
+        RobotSpeed = fields.get("RobotSpeed", 0.0);
+        heading = fields.defaulted("heading") ? Heading.fromDirection(direction) : fields.get("heading", 0);
+        RobotCounter = Math.max(RobotCounter, ID + 1); // New robots must not take a loaded robot's ID
+    }
+
     /**
      * Resets the RobotCounter to zero.
      * This is used to start fresh counting for robot IDs.
@@ -62,6 +85,15 @@ public abstract class Robot extends Objects implements Serializable {
         return direction;
     }
 
+    /**
+     * Returns the heading the robot is facing, in Heading units.
+     *
+     * @return The heading of the robot.
+     */
+    public int getHeading() {
+        return heading;
+    }
+
     /**
      * Returns the speed of the robot.
      *
@@ -77,7 +109,7 @@ public abstract class Robot extends Objects implements Serializable {
      * @param myArena The arena where the robot is moving.
      */
     protected void checkRobot(Arena myArena) {
-        direction = myArena.CheckRobotAngle(x, y, rad, direction, ID);
+        direction = myArena.CheckRobotAngle(this);
     }
 
     /**
@@ -86,15 +118,7 @@ public abstract class Robot extends Objects implements Serializable {
      * @return The angle in radians.
      */
     public double getRadAngle() {
-        return direction.getAngle() * Math.PI / 180;
-    }
-
-    /**
-     * Decrements the RobotCounter by 1.
-     * This is used to update the count when a robot is removed.
-     */
-    public static void delete_robot() {
-        RobotCounter = RobotCounter - 1;
+        return Heading.toRadians(heading);
     }
 
     /**
@@ -106,12 +130,37 @@ public abstract class Robot extends Objects implements Serializable {
     }
 
     /**
-     * Moves the robot based on its speed and direction.
+     * Bounces off a robot it touched during the checks, called by the touched robot's behaviour.
+     *
+     * @param before The direction the robot was heading before its check.
+     */
+    protected void bounce(Direction before) {
+        direction = before.getOpposite();
+    }
+
+    /**
+     * Turns the heading towards the direction, smoothly for small turns and at once for large ones.
+     */
+    void turn() {
+        turn(TURN_RATE);
+    }
+
+    /**
+     * Turns the heading towards the direction by at most rate, or at once for turns of 90 degrees or more.
+     *
+     * @param rate The largest smooth turn, in Heading units.
+     */
+    void turn(int rate) {
+        heading = Heading.turnToward(heading, Heading.fromDirection(direction), rate, SNAP_TURN);
+    }
+
+    /**
+     * Moves the robot based on its speed and heading, first turning the heading towards the direction.
      * Updates the x and y coordinates of the robot accordingly.
      */
     protected void adjustRobot() {
-        double radAngle = direction.getAngle() * Math.PI / 180; // Convert the angle to radians
-        x += RobotSpeed * Math.cos(radAngle); // Update the x-coordinate
-        y += RobotSpeed * Math.sin(radAngle); // Update the y-coordinate
+        turn();
+        x += RobotSpeed * Heading.cos(heading); // Update the x-coordinate
+        y += RobotSpeed * Heading.sin(heading); // Update the y-coordinate
     }
 }
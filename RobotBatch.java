@@ -0,0 +1,127 @@
+/**
+ * RobotBatch holds the robots of one behaviour for a pass of the tick, in arrays,
+ * with what the checks need to find their neighbours and what the moves need to run the kernels.
+ */
+package robot_simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for a batch of robots - the arena fills one per behaviour and reuses it every pass.
+ * The robots of a batch are all of its behaviour's class, in the order they appear in the arena.
+ */
+public class RobotBatch {
+    final RobotBehaviour behaviour; // The behaviour the robots belong to
+    int count = 0; // Number of robots in the batch
+    Robot[] robots = new Robot[0];
+    int[] index = new int[0]; // Each robot's index in the arena's RobotState, for the kernel checks
+    boolean[] touching = new boolean[0]; // Check output: touching a wall or robot, when checked with a grid
+    double[] x = new double[0]; // Scratch positions and movement for the kernel moves
+    double[] y = new double[0];
+    double[] vx = new double[0];
+    double[] vy = new double[0];
+
+    // How the pass finds neighbours: a grid of the objects out of date by up to slack, or null to test every robot.
+    // Checks also count robots that would meet within sweep; moves run for sweep ticks when they use the grid.
+    SpatialGrid grid;
+    double slack;
+    double sweep;
+    final List<Objects> near = new ArrayList<>(); // Scratch list for the neighbourhood queries
+
+    /**
+     * Creates an empty batch for a behaviour.
+     *
+     * @param behaviour The behaviour the robots belong to.
+     */
+    RobotBatch(RobotBehaviour behaviour) {
+        this.behaviour = behaviour;
+    }
+
+    public RobotBehaviour getBehaviour() {
+        return behaviour;
+    }
+
+    /**
+     * Returns the number of robots in the batch.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns a robot of the batch.
+     *
+     * @param i The robot's position in the batch.
+     * @return The robot.
+     */
+    public Robot get(int i) {
+        return robots[i];
+    }
+
+    /**
+     * Returns whether a robot was touching a wall or another robot when checked. Only set by checks that use a grid.
+     *
+     * @param i The robot's position in the batch.
+     * @return True if the robot was touching something.
+     */
+    public boolean isTouching(int i) {
+        return touching[i];
+    }
+
+    /**
+     * Marks a robot as touching something, so the collision scheduler keeps checking it every tick.
+     *
+     * @param i        The robot's position in the batch.
+     * @param touching True if the robot is touching something.
+     */
+    public void setTouching(int i, boolean touching) {
+        this.touching[i] = touching;
+    }
+
+    /**
+     * Sets how the next pass finds neighbours.
+     *
+     * @param grid  An index of the objects, or null to test every robot.
+     * @param slack How far any robot may have moved since the grid was built.
+     * @param sweep The time over which robots that would meet also count as touching, or a move runs.
+     */
+    void useGrid(SpatialGrid grid, double slack, double sweep) {
+        this.grid = grid;
+        this.slack = slack;
+        this.sweep = sweep;
+    }
+
+    /**
+     * Adds a robot to the batch.
+     *
+     * @param robot The robot.
+     * @param index The robot's index in the arena's RobotState.
+     */
+    void add(Robot robot, int index) {
+        if (count == robots.length) {
+            int size = Math.max(16, count + (count >> 1));
+            robots = Arrays.copyOf(robots, size);
+            this.index = Arrays.copyOf(this.index, size);
+            touching = Arrays.copyOf(touching, size);
+            x = Arrays.copyOf(x, size);
+            y = Arrays.copyOf(y, size);
+            vx = Arrays.copyOf(vx, size);
+            vy = Arrays.copyOf(vy, size);
+        }
+        robots[count] = robot;
+        this.index[count] = index;
+        touching[count] = false;
+        count++;
+    }
+
+    /**
+     * Empties the batch, letting its robots be collected.
+     */
+    void clear() {
+        Arrays.fill(robots, 0, count, null);
+        count = 0;
+        grid = null;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * RobotBehaviour is the service interface for a kind of robot: how its robots are checked, moved, drawn
+ * and touched. The arena runs every kind through it, so a new kind needs no changes to the arena.
+ */
+package robot_simulator;
+
+import java.util.List;
+
+/**
+ * Interface for robot behaviours - one per robot class. Each tick the arena groups its robots by behaviour
+ * and calls each behaviour once with a RobotBatch of its robots, so every loop runs over a single class.
+ * <p>
+ * Behaviours are found with ServiceLoader: a jar names its implementations in
+ * META-INF/services/robot_simulator.RobotBehaviour. A robot class without a behaviour of its own uses the
+ * behaviour of its nearest superclass; plain robots use the defaults below, which are the arena's standard rules.
+ */
+public interface RobotBehaviour {
+
+    /**
+     * Returns the robot class this behaviour runs.
+     *
+     * @return The robot class.
+     */
+    Class<? extends Robot> robotClass();
+
+    /**
+     * Checks the robots against the walls and each other before they move. Contacts are queued with
+     * Arena.contact and answered by the touched robots' behaviours once every batch has been checked.
+     * Default: Arena.checkStandard.
+     *
+     * @param arena    The arena.
+     * @param batch    The robots to check.
+     * @param toRemove Collects robots to remove once the checks are done.
+     */
+    default void checkAll(Arena arena, RobotBatch batch, List<Objects> toRemove) {
+        arena.checkStandard(batch);
+    }
+
+    /**
+     * Moves the robots for one tick. Default: Arena.stepStandard.
+     *
+     * @param arena The arena.
+     * @param batch The robots to move.
+     */
+    default void stepAll(Arena arena, RobotBatch batch) {
+        arena.stepStandard(batch);
+    }
+
+    /**
+     * Answers the robots that touched a robot of this kind during the checks.
+     * Default: each robot that touched bounces off.
+     *
+     * @param arena    The arena.
+     * @param contacts The contacts, each a robot and the robot of this kind it touched.
+     */
+    default void onContact(Arena arena, ContactBatch contacts) {
+        for (int i = 0; i < contacts.size(); i++) {
+            contacts.getRobot(i).bounce(contacts.getBefore(i));
+        }
+    }
+
+    /**
+     * Returns whether a robot keeps a straight line at constant speed until it next touches something,
+     * once its heading has reached its direction. The collision scheduler predicts such robots rather than
+     * checking them every tick. Default: true.
+     *
+     * @param arena The arena.
+     * @param robot The robot, of this behaviour's class.
+     * @return True if the robot's path can be predicted.
+     */
+    default boolean isBallistic(Arena arena, Robot robot) {
+        return true;
+    }
+
+    /**
+     * Draws a robot at full detail. Default: its body and wheels.
+     *
+     * @param arena The arena.
+     * @param robot The robot, of this behaviour's class.
+     */
+    default void draw(Arena arena, Robot robot) {
+        arena.showCircle(robot.getX(), robot.getY(), robot.getRad(), robot.getColor(), robot.getRadAngle());
+    }
+}
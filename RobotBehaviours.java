@@ -0,0 +1,68 @@
+/**
+ * RobotBehaviours finds the behaviour of each robot class: the built-in robots' own behaviours,
+ * then any behaviours found on the class path with ServiceLoader, which may replace them.
+ */
+package robot_simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of robot behaviours. The behaviour of a robot class is looked up once, walking up its superclasses
+ * to the nearest class with a behaviour, and kept with the class, so finding it each tick costs no more than a field.
+ */
+public final class RobotBehaviours {
+    static final RobotBehaviour STANDARD = () -> Robot.class; // The arena's standard rules, for plain robots
+
+    private static final Map<Class<?>, RobotBehaviour> registered = new HashMap<>(); // Behaviours by robot class
+    private static final ClassValue<RobotBehaviour> byClass = new ClassValue<RobotBehaviour>() {
+        @Override
+        protected RobotBehaviour computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                RobotBehaviour behaviour = registered.get(c);
+                if (behaviour != null) {
+                    return behaviour;
+                }
+            }
+            return STANDARD;
+        }
+    };
+
+    static {
+        register(STANDARD);
+        register(new WeakRobot.Behaviour());
+        register(new AvoiderRobot.Behaviour());
+        register(new BeamRobot.Behaviour());
+        try {
+            for (RobotBehaviour behaviour : ServiceLoader.load(RobotBehaviour.class)) {
+                register(behaviour);
+                EventLog.info(EventLog.Category.SIMULATION, "Loaded behaviour " + behaviour.getClass().getName()
+                        + " for " + behaviour.robotClass().getSimpleName());
+            }
+        } catch (ServiceConfigurationError e) {
+            EventLog.error(EventLog.Category.SIMULATION, "Could not load robot behaviours", e);
+        }
+    }
+
+    private RobotBehaviours() {
+    }
+
+    /**
+     * Registers a behaviour for its robot class, replacing any earlier one.
+     */
+    private static void register(RobotBehaviour behaviour) {
+        registered.put(behaviour.robotClass(), behaviour);
+    }
+
+    /**
+     * Returns the behaviour of a robot.
+     *
+     * @param robot The robot.
+     * @return The behaviour registered for its class or nearest superclass, or the standard behaviour.
+     */
+    public static RobotBehaviour of(Robot robot) {
+        return byClass.get(robot.getClass());
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * RobotKernels is the set of data-parallel loops used by the simulation tick:
+ * moving robots, testing them against the walls and testing them against one robot.
+ */
+package robot_simulator;
+
+/**
+ * Interface for the robot kernels. Two implementations exist: ScalarRobotKernels, which runs everywhere,
+ * and VectorRobotKernels, which uses the incubating Vector API and is picked only when it is available.
+ */
+public interface RobotKernels {
+
+    byte LEFT = 1;   // Wall flag: past the left wall
+    byte RIGHT = 2;  // Wall flag: past the right wall
+    byte TOP = 4;    // Wall flag: past the top wall
+    byte BOTTOM = 8; // Wall flag: past the bottom wall
+
+    /**
+     * Adds each robot's movement to its position.
+     *
+     * @param x  The x-coordinates, updated in place.
+     * @param y  The y-coordinates, updated in place.
+     * @param vx The x movement of each robot.
+     * @param vy The y movement of each robot.
+     * @param n  The number of robots.
+     */
+    void move(double[] x, double[] y, double[] vx, double[] vy, int n);
+
+    /**
+     * Flags the walls each robot is past, using the same limits as Arena.CheckRobotAngle.
+     *
+     * @param x    The x-coordinates.
+     * @param y    The y-coordinates.
+     * @param rad  The radii.
+     * @param n    The number of robots.
+     * @param minX The left wall.
+     * @param minY The top wall, robots must stay rad below it.
+     * @param maxX The right wall.
+     * @param maxY The bottom wall.
+     * @param out  Receives a combination of LEFT, RIGHT, TOP and BOTTOM for each robot.
+     */
+    void walls(double[] x, double[] y, double[] rad, int n,
+               double minX, double minY, double maxX, double maxY, byte[] out);
+
+    /**
+     * Finds every robot hitting a circle, with the same buffer as Robot.hitting.
+     *
+     * @param px   The x-coordinate of the circle.
+     * @param py   The y-coordinate of the circle.
+     * @param prad The radius of the circle.
+     * @param x    The x-coordinates.
+     * @param y    The y-coordinates.
+     * @param rad  The radii.
+     * @param n    The number of robots.
+     * @param out  Receives the indices of the robots hitting the circle, in order; needs room for n.
+     * @return The number of robots hitting the circle.
+     */
+    int hitting(double px, double py, double prad, double[] x, double[] y, double[] rad, int n, int[] out);
+
+    /**
+     * Returns the kernels for a mode name: "scalar", "vector", or "auto" for vector when available.
+     * Returns null for "off", which keeps the per-object code path.
+     *
+     * @param mode The mode name, usually from the robot.kernels system property.
+     * @return The kernels, or null if they are switched off.
+     */
+    static RobotKernels select(String mode) {
+        if (mode == null || mode.equalsIgnoreCase("auto") || mode.equalsIgnoreCase("vector")) {
+            try {
+                // Loaded by name, so the simulator still runs without --add-modules jdk.incubator.vector
+                return (RobotKernels) Class.forName("robot_simulator.VectorRobotKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                EventLog.info(EventLog.Category.SIMULATION, "Vector API not available, using scalar kernels.");
+                return new ScalarRobotKernels();
+            }
+        }
+        if (mode.equalsIgnoreCase("off")) {
+            return null;
+        }
+        return new ScalarRobotKernels();
+    }
+}
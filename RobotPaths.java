@@ -0,0 +1,192 @@
+/**
+ * RobotPaths draws every robot in view with a handful of JavaFX Path nodes - one for the bodies of each colour,
+ * one for all the wheels and one for all the beams - instead of a Circle and two Lines per robot.
+ */
+package robot_simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcTo;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+
+/**
+ * Class for the merged robot paths. Each frame the arena adds the robots in view, then shows the paths.
+ * The paths and their elements are kept from frame to frame and moved in place, so a frame with the same
+ * robots in view as the last makes no nodes and no elements; the scene graph still holds every shape, so
+ * the result stays a retained scene for picking and accessibility tools.
+ */
+public class RobotPaths {
+    static final double WHEEL_WIDTH = 3; // Stroke widths, as in showCircle and showBeam
+    static final double BEAM_WIDTH = 5;
+
+    /**
+     * One Path and the elements it has used, reused frame to frame.
+     */
+    private static final class Layer {
+        final Path path = new Path();
+        final List<PathElement> elements = new ArrayList<>(); // Every element made so far
+        int used = 0; // Elements used this frame
+
+        /**
+         * Returns the next element of this frame, made with the given kind if there are no spare ones.
+         * Every layer adds its elements in a fixed pattern, so a spare element is always of the right kind.
+         */
+        PathElement next(int kind) {
+            if (used == elements.size()) {
+                elements.add(kind == MOVE ? new MoveTo() : kind == LINE ? new LineTo()
+                        : kind == ARC ? new ArcTo() : new ClosePath());
+            }
+            return elements.get(used++);
+        }
+
+        /**
+         * Hands the path this frame's elements, which it already holds when their number has not changed.
+         */
+        void finish() {
+            if (path.getElements().size() != used) {
+                path.getElements().setAll(elements.subList(0, used));
+            }
+        }
+    }
+
+    private static final int MOVE = 0, LINE = 1, ARC = 2, CLOSE = 3; // Kinds of element
+
+    private final List<Layer> bodies = new ArrayList<>(); // One layer per body colour, few enough to search in order
+    private final List<Color> colours = new ArrayList<>(); // The colour of each body layer
+    private final Layer wheels = new Layer();
+    private final Layer beams = new Layer();
+
+    /**
+     * Creates empty paths.
+     */
+    public RobotPaths() {
+        wheels.path.setStrokeWidth(WHEEL_WIDTH);
+        beams.path.setStrokeWidth(BEAM_WIDTH);
+    }
+
+    /**
+     * Starts a frame, with no robots added.
+     */
+    public void begin() {
+        for (int i = 0; i < bodies.size(); i++) {
+            bodies.get(i).used = 0;
+        }
+        wheels.used = 0;
+        beams.used = 0;
+    }
+
+    /**
+     * Adds a robot's body, as two half circles.
+     *
+     * @param x      The x-coordinate of the centre.
+     * @param y      The y-coordinate of the centre.
+     * @param rad    The radius.
+     * @param colour The fill colour.
+     */
+    public void addBody(double x, double y, double rad, Color colour) {
+        Layer layer = body(colour);
+        MoveTo move = (MoveTo) layer.next(MOVE);
+        move.setX(x + rad);
+        move.setY(y);
+        for (int half = 0; half < 2; half++) {
+            ArcTo arc = (ArcTo) layer.next(ARC);
+            arc.setRadiusX(rad);
+            arc.setRadiusY(rad);
+            arc.setX(half == 0 ? x - rad : x + rad);
+            arc.setY(y);
+        }
+        layer.next(CLOSE);
+    }
+
+    /**
+     * Adds a robot's two wheels, which run along the top and bottom of the body, turned to the heading.
+     *
+     * @param x       The x-coordinate of the robot.
+     * @param y       The y-coordinate of the robot.
+     * @param rad     The radius of the robot.
+     * @param heading The heading, in Heading units.
+     */
+    public void addWheels(double x, double y, double rad, int heading) {
+        double cos = Heading.cos(heading);
+        double sin = Heading.sin(heading);
+        for (int side = -1; side <= 1; side += 2) {
+            line(wheels, x - rad * cos - side * rad * sin, y - rad * sin + side * rad * cos,
+                    x + rad * cos - side * rad * sin, y + rad * sin + side * rad * cos);
+        }
+    }
+
+    /**
+     * Adds a beam.
+     *
+     * @param x1 The x-coordinate of the start.
+     * @param y1 The y-coordinate of the start.
+     * @param x2 The x-coordinate of the end.
+     * @param y2 The y-coordinate of the end.
+     */
+    public void addBeam(double x1, double y1, double x2, double y2) {
+        line(beams, x1, y1, x2, y2);
+    }
+
+    /**
+     * Ends the frame, adding the paths with anything in them to a group: bodies, then wheels and beams over them.
+     *
+     * @param group The group to draw in.
+     */
+    public void show(Group group) {
+        for (int i = 0; i < bodies.size(); i++) {
+            show(bodies.get(i), group);
+        }
+        show(wheels, group);
+        show(beams, group);
+    }
+
+    /**
+     * Returns the number of elements in the paths this frame.
+     */
+    public int size() {
+        int size = wheels.used + beams.used;
+        for (int i = 0; i < bodies.size(); i++) {
+            size += bodies.get(i).used;
+        }
+        return size;
+    }
+
+    private void show(Layer layer, Group group) {
+        layer.finish();
+        if (layer.used > 0) {
+            group.getChildren().add(layer.path);
+        }
+    }
+
+    private static void line(Layer layer, double x1, double y1, double x2, double y2) {
+        MoveTo move = (MoveTo) layer.next(MOVE);
+        move.setX(x1);
+        move.setY(y1);
+        LineTo line = (LineTo) layer.next(LINE);
+        line.setX(x2);
+        line.setY(y2);
+    }
+
+    /**
+     * Returns the body layer of a colour, making it the first time the colour is drawn.
+     */
+    private Layer body(Color colour) {
+        for (int i = 0; i < colours.size(); i++) {
+            if (colours.get(i).equals(colour)) {
+                return bodies.get(i);
+            }
+        }
+        Layer layer = new Layer();
+        layer.path.setFill(colour);
+        layer.path.setStroke(null);
+        bodies.add(layer);
+        colours.add(colour);
+        return layer;
+    }
+}
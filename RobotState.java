@@ -0,0 +1,78 @@
+/**
+ * RobotState holds the state of every robot in primitive arrays (structure of arrays),
+ * so the movement and collision kernels can process the whole population in tight loops.
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for the robot state arrays - gathered from the robots at the start of a kernel pass
+ * and written back to them at the end.
+ */
+public class RobotState {
+    int count = 0; // Number of robots loaded
+    Robot[] robots = new Robot[0]; // The robot each index was loaded from
+    double[] x = new double[0]; // Positions
+    double[] y = new double[0];
+    double[] rad = new double[0]; // Radii
+    double[] vx = new double[0]; // Movement this tick
+    double[] vy = new double[0];
+    byte[] flags = new byte[0]; // Kernel output: wall flags, or robots that move themselves
+    int[] contacts = new int[0]; // Kernel output: indices of the robots hitting the circle being tested
+
+    /**
+     * Returns the number of robots loaded.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gathers every robot in a list of objects into the arrays.
+     *
+     * @param objects The objects in the arena, non robots are skipped.
+     */
+    public void load(List<Objects> objects) {
+        ensureCapacity(objects.size());
+        int n = 0;
+        for (int i = 0; i < objects.size(); i++) {
+            Objects object = objects.get(i);
+            if (object instanceof Robot) {
+                Robot robot = (Robot) object;
+                robots[n] = robot;
+                x[n] = robot.getX();
+                y[n] = robot.getY();
+                rad[n] = robot.getRad();
+                vx[n] = 0;
+                vy[n] = 0;
+                n++;
+            }
+        }
+        for (int i = n; i < count; i++) {
+            robots[i] = null; // Let removed robots be collected
+        }
+        count = n;
+    }
+
+    /**
+     * Makes room for at least the given number of robots, keeping the loaded ones.
+     *
+     * @param capacity The number of robots needed.
+     */
+    public void ensureCapacity(int capacity) {
+        if (robots.length >= capacity) {
+            return;
+        }
+        int size = Math.max(16, capacity + (capacity >> 1));
+        robots = Arrays.copyOf(robots, size);
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        rad = Arrays.copyOf(rad, size);
+        vx = Arrays.copyOf(vx, size);
+        vy = Arrays.copyOf(vy, size);
+        flags = Arrays.copyOf(flags, size);
+        contacts = Arrays.copyOf(contacts, size);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * ScalarRobotKernels is the portable implementation of the robot kernels, written as plain counted loops.
+ */
+package robot_simulator;
+
+/**
+ * Class for the scalar robot kernels.
+ */
+public class ScalarRobotKernels implements RobotKernels {
+
+    @Override
+    public void move(double[] x, double[] y, double[] vx, double[] vy, int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] += vx[i];
+            y[i] += vy[i];
+        }
+    }
+
+    @Override
+    public void walls(double[] x, double[] y, double[] rad, int n,
+                      double minX, double minY, double maxX, double maxY, byte[] out) {
+        for (int i = 0; i < n; i++) {
+            int flags = 0;
+            if (x[i] < minX + rad[i]) flags |= LEFT;
+            if (x[i] > maxX - rad[i]) flags |= RIGHT;
+            if (y[i] < minY + rad[i]) flags |= TOP;
+            if (y[i] > maxY - rad[i]) flags |= BOTTOM;
+            out[i] = (byte) flags;
+        }
+    }
+
+    @Override
+    public int hitting(double px, double py, double prad, double[] x, double[] y, double[] rad, int n, int[] out) {
+        int hits = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = px - x[i];
+            double dy = py - y[i];
+            double reach = prad + rad[i];
+            if (dx * dx + dy * dy < reach * reach + 200) { // Same buffer as Robot.hitting
+                out[hits++] = i;
+            }
+        }
+        return hits;
+    }
+}
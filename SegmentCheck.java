@@ -0,0 +1,58 @@
+/**
+ * SegmentCheck compares the cached segment test of LineObstacle with the plain one in Arena on random lines
+ * and circles, so a change to either is caught if it makes them disagree.
+ * Run it with "java robot_simulator.SegmentCheck [checks]"; it exits with status 1 on any disagreement.
+ */
+package robot_simulator;
+
+import java.util.Random;
+
+/**
+ * Class for the segment check - a plain main, like KernelBenchmark, that draws lines of any length and rotation,
+ * some of no length, and circles around them from a fixed seed, then asks LineObstacle.touches and
+ * Arena.isRobotCollidingWithLine whether each circle touches each line.
+ */
+public final class SegmentCheck {
+    static final int DEFAULT_CHECKS = 1_000_000; // Circles tested
+    static final int CIRCLES_PER_LINE = 100; // Circles tested against each line, so the cached geometry is reused
+    static final double SIZE = 1000; // Lines and circles lie in a square of this size
+    static final long SEED = 43; // Seed for the lines and circles
+
+    public static void main(String[] args) {
+        int checks = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHECKS;
+        Random random = new Random(SEED);
+        LineObstacle line = null;
+        int touching = 0;
+        int disagree = 0;
+        for (int i = 0; i < checks; i++) {
+            if (i % CIRCLES_PER_LINE == 0) {
+                double x1 = random.nextDouble() * SIZE;
+                double y1 = random.nextDouble() * SIZE;
+                boolean point = random.nextInt(20) == 0; // One line in 20 has no length
+                double x2 = point ? x1 : x1 + (random.nextDouble() - 0.5) * SIZE / 2;
+                double y2 = point ? y1 : y1 + (random.nextDouble() - 0.5) * SIZE / 2;
+                line = new LineObstacle(x1, y1, x2, y2);
+            }
+            double rad = 1 + random.nextDouble() * 30;
+            double cx = line.getMinX() - 40 + random.nextDouble() * (line.getMaxX() - line.getMinX() + 80);
+            double cy = line.getMinY() - 40 + random.nextDouble() * (line.getMaxY() - line.getMinY() + 80);
+            boolean cached = line.touches(cx, cy, rad);
+            boolean plain = Arena.isRobotCollidingWithLine(cx, cy, rad,
+                    line.getX(), line.getY(), line.getX2(), line.getY2());
+            if (cached) {
+                touching++;
+            }
+            if (cached != plain) {
+                disagree++;
+                if (disagree <= 10) {
+                    System.out.printf("Disagree: line (%s, %s)-(%s, %s), circle (%s, %s) radius %s, cached %b%n",
+                            line.getX(), line.getY(), line.getX2(), line.getY2(), cx, cy, rad, cached);
+                }
+            }
+        }
+        System.out.printf("%d checks, %d touching, %d disagreeing%n", checks, touching, disagree);
+        if (disagree > 0) {
+            System.exit(1);
+        }
+    }
+}
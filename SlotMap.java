@@ -0,0 +1,315 @@
+/**
+ * SlotMap stores the objects of the arena in a dense array and hands out generational handles,
+ * so objects can be looked up, removed and iterated without searching the list.
+ */
+package robot_simulator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Class for the slot map - a list whose add, remove and lookup by handle are O(1).
+ * <p>
+ * Values live in a dense array, so iteration is as fast as for an ArrayList. Removing a value moves the
+ * last value into its place, so the list is not kept in insertion order: after a removal the arena checks, draws
+ * and saves the last object where the removed one was. The order only decides which of two overlapping objects is
+ * drawn on top and which of two touching weak robots is checked first. Each value is held once.
+ * Every value has a slot, and a handle is the slot number together with the slot's generation; the generation is
+ * bumped when the slot is freed, so a handle to a removed value never finds the value that reuses the slot.
+ * Handles are valid for the life of the map; they are not saved with it.
+ *
+ * @param <T> The type of value stored.
+ */
+public class SlotMap<T> extends AbstractList<T> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final long NO_HANDLE = -1L; // Returned for values that are not in the map
+
+    private transient Object[] values = new Object[16]; // Dense values
+    private transient int[] denseSlot = new int[16]; // Slot of each dense value
+    private transient int[] slotDense = new int[16]; // Dense index of each live slot, next free slot otherwise
+    private transient int[] generation = new int[16]; // Generation of each slot
+    private transient int slots = 0; // Slots handed out so far
+    private transient int freeSlot = -1; // First free slot, -1 if none
+    private transient int size = 0;
+    private transient IdentityHashMap<T, Integer> slotOf = new IdentityHashMap<>(); // Slot of each value
+
+    /**
+     * Creates an empty map.
+     */
+    public SlotMap() {
+    }
+
+    /**
+     * Creates a map holding the values of a collection, in order.
+     *
+     * @param values The values to add.
+     */
+    public SlotMap(Collection<? extends T> values) {
+        addAll(values);
+    }
+
+    /**
+     * Adds a value and returns its handle. A value already in the map keeps its handle.
+     *
+     * @param value The value to add.
+     * @return The handle of the value.
+     */
+    public long insert(T value) {
+        Integer existing = slotOf.get(value);
+        if (existing != null) {
+            return handle(existing);
+        }
+        int slot;
+        if (freeSlot >= 0) {
+            slot = freeSlot;
+            freeSlot = slotDense[slot];
+        } else {
+            if (slots == slotDense.length) {
+                slotDense = Arrays.copyOf(slotDense, slots * 2);
+                generation = Arrays.copyOf(generation, slots * 2);
+            }
+            slot = slots++;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            denseSlot = Arrays.copyOf(denseSlot, size * 2);
+        }
+        values[size] = value;
+        denseSlot[size] = slot;
+        slotDense[slot] = size;
+        size++;
+        slotOf.put(value, slot);
+        modCount++;
+        return handle(slot);
+    }
+
+    /**
+     * Returns the value for a handle.
+     *
+     * @param handle A handle returned by insert or handleOf.
+     * @return The value, or null if it has been removed.
+     */
+    @SuppressWarnings("unchecked")
+    public T lookup(long handle) {
+        int slot = liveSlot(handle);
+        return slot < 0 ? null : (T) values[slotDense[slot]];
+    }
+
+    /**
+     * Returns the handle of a value.
+     *
+     * @param value The value.
+     * @return The handle, or NO_HANDLE if the value is not in the map.
+     */
+    public long handleOf(Object value) {
+        Integer slot = slotOf.get(value);
+        return slot == null ? NO_HANDLE : handle(slot);
+    }
+
+    /**
+     * Removes the value for a handle.
+     *
+     * @param handle The handle of the value.
+     * @return The removed value, or null if it was already removed.
+     */
+    public T removeHandle(long handle) {
+        int slot = liveSlot(handle);
+        return slot < 0 ? null : remove(slotDense[slot]);
+    }
+
+    /**
+     * Adds a value at the end of the list.
+     *
+     * @throws IllegalArgumentException If the value is already in the map, which holds each value once.
+     */
+    @Override
+    public boolean add(T value) {
+        if (slotOf.containsKey(value)) {
+            throw new IllegalArgumentException("Value is already in the map");
+        }
+        insert(value);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return slotOf.containsKey(value);
+    }
+
+    @Override
+    public int indexOf(Object value) {
+        Integer slot = slotOf.get(value);
+        return slot == null ? -1 : slotDense[slot];
+    }
+
+    @Override
+    public int lastIndexOf(Object value) {
+        return indexOf(value); // Values are never stored twice
+    }
+
+    /**
+     * Removes the value at an index, moving the last value into its place.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove(int index) {
+        T value = get(index);
+        int slot = denseSlot[index];
+        int last = --size;
+        if (index != last) {
+            values[index] = values[last];
+            denseSlot[index] = denseSlot[last];
+            slotDense[denseSlot[index]] = index;
+        }
+        values[last] = null;
+        slotOf.remove(value);
+        generation[slot]++; // Invalidate handles to the removed value
+        slotDense[slot] = freeSlot;
+        freeSlot = slot;
+        modCount++;
+        return value;
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> values) {
+        boolean changed = false;
+        for (Object value : values) {
+            changed |= remove(value);
+        }
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        while (size > 0) {
+            remove(size - 1); // Removing from the end moves nothing
+        }
+    }
+
+    /**
+     * Iterates in dense order. Removing through the iterator visits the value moved into the gap next.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int cursor = 0; // Index of the next value
+            private int lastReturned = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (cursor >= size) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = cursor++;
+                return get(lastReturned);
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                SlotMap.this.remove(lastReturned);
+                cursor = lastReturned; // The last value now sits here and has not been visited
+                lastReturned = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    private long handle(int slot) {
+        return ((long) generation[slot] << 32) | slot;
+    }
+
+    /**
+     * Returns the slot of a handle, or -1 if the handle is stale or invalid.
+     */
+    private int liveSlot(long handle) {
+        if (handle < 0) {
+            return -1;
+        }
+        int slot = (int) handle;
+        if (slot >= slots || generation[slot] != (int) (handle >>> 32) || !isLive(slot)) {
+            return -1;
+        }
+        return slot;
+    }
+
+    private boolean isLive(int slot) {
+        int index = slotDense[slot];
+        return index >= 0 && index < size && denseSlot[index] == slot;
+    }
+
+    /**
+     * Saves the values only, in dense order.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeObject(values[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        values = new Object[Math.max(16, count)];
+        denseSlot = new int[values.length];
+        slotDense = new int[values.length];
+        generation = new int[values.length];
+        freeSlot = -1;
+        slotOf = new IdentityHashMap<>();
+        for (int i = 0; i < count; i++) {
+            insert((T) in.readObject());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * SnapshotBuffer publishes the state of the world from the simulation thread to any number of reader threads,
+ * so they can draw, stream or inspect it without sharing the arena's objects and without holding up a tick.
+ */
+package robot_simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for the snapshot buffer - a front and back WorldSnapshot. After each tick the simulation captures the world
+ * into the back snapshot and publishes it with one volatile write, making it the front. Readers acquire the front,
+ * a complete tick that no longer changes, and release it when done.
+ * <p>
+ * The old front is only captured into again once every reader has released it; until then the simulation uses
+ * another spare, so a slow reader costs a third snapshot rather than a wait. Neither side takes a lock.
+ * publish belongs to one thread, usually the simulation thread; acquire may be called from any thread.
+ */
+public class SnapshotBuffer {
+    private volatile WorldSnapshot front; // Last published snapshot, null before the first
+    private final List<WorldSnapshot> snapshots = new ArrayList<>(); // Every snapshot made, publishing thread only
+
+    /**
+     * Captures the arena into a snapshot no reader holds and makes it the front.
+     *
+     * @param arena The arena, read on the simulation thread.
+     */
+    public void publish(Arena arena) {
+        WorldSnapshot back = spare();
+        back.capture(arena);
+        swap(back);
+    }
+
+    /**
+     * Copies a snapshot, such as one received from a server, into a snapshot no reader holds and makes it the front.
+     *
+     * @param source The snapshot, read on the publishing thread.
+     */
+    public void publish(WorldSnapshot source) {
+        WorldSnapshot back = spare();
+        back.copy(source);
+        swap(back);
+    }
+
+    /**
+     * Makes a freshly written snapshot the front, and drops the buffer's reference to the old front.
+     */
+    private void swap(WorldSnapshot back) {
+        back.refs.set(1); // The buffer's own reference, dropped when the next snapshot replaces it
+        WorldSnapshot old = front;
+        front = back;
+        if (old != null) {
+            old.release();
+        }
+    }
+
+    /**
+     * Returns a snapshot nobody is reading, making one when every snapshot is held.
+     */
+    private WorldSnapshot spare() {
+        for (int i = 0; i < snapshots.size(); i++) {
+            WorldSnapshot snapshot = snapshots.get(i);
+            if (snapshot.refs.get() == 0) {
+                return snapshot; // Readers only take a snapshot while its count is above zero
+            }
+        }
+        WorldSnapshot snapshot = new WorldSnapshot();
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Returns the latest published snapshot, held until it is released. Safe from any thread, never blocks.
+     *
+     * @return The snapshot, or null if nothing has been published yet.
+     */
+    public WorldSnapshot acquire() {
+        while (true) {
+            WorldSnapshot snapshot = front;
+            if (snapshot == null) {
+                return null;
+            }
+            int refs = snapshot.refs.get();
+            if (refs > 0 && snapshot.refs.compareAndSet(refs, refs + 1)) {
+                return snapshot; // Still published or still read, so not being captured into
+            }
+            // Replaced and released since front was read, so a newer front is there to take
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * SnapshotClient connects to a SnapshotServer and rebuilds the world it streams, so a remote run can be
+ * drawn locally. The Canvas uses it to watch a simulation running in another process.
+ */
+package robot_simulator;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class for the snapshot client - a reader thread decodes the server's keyframes and deltas, see SnapshotServer
+ * for the format, into a WorldSnapshot and publishes each frame to a SnapshotBuffer. Viewers acquire the latest
+ * frame from the buffer on any thread, so a slow viewer never holds up the reader.
+ */
+public class SnapshotClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final double quantum; // World units per position step, from the server
+    private final Thread reader;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer(); // Frames for viewers
+
+    // The world as received, reader thread only; positions, headings and beams in the server's steps
+    private final WorldSnapshot world = new WorldSnapshot();
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+    private int[] headings = new int[0];
+    private int[] beams = new int[0];
+    private boolean keyed = false; // Whether a keyframe has arrived
+
+    private final AtomicLong frames = new AtomicLong(); // Frames received
+    private volatile boolean closing = false;
+    private volatile boolean connected = true;
+    private volatile IOException failure = null; // Why the stream ended, if not closed
+
+    /**
+     * Connects to a server, checks it speaks the same format, and starts reading frames.
+     *
+     * @param host The server's host name or address.
+     * @param port The server's port.
+     * @throws IOException If the server cannot be reached or is not a snapshot server.
+     */
+    public SnapshotClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        try {
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            if (in.readInt() != SnapshotServer.MAGIC) {
+                throw new IOException(host + ":" + port + " is not a snapshot server");
+            }
+            int version = in.readInt();
+            if (version != SnapshotServer.VERSION) {
+                throw new IOException("Snapshot stream version " + version + ", expected " + SnapshotServer.VERSION);
+            }
+            quantum = in.readDouble();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        reader = new Thread(this::readLoop, "snapshot-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Returns the buffer the received frames are published to. acquire returns null until the first arrives.
+     */
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    public long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * Returns whether the stream is still open.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Returns why the stream ended, or null if it is open or was closed here.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Disconnects from the server.
+     */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        socket.close();
+    }
+
+    /**
+     * Reads frames until the stream ends.
+     */
+    private void readLoop() {
+        try {
+            while (true) {
+                byte kind = in.readByte();
+                long tick = in.readLong();
+                if (kind == SnapshotServer.KEYFRAME) {
+                    readKeyframe();
+                } else if (kind == SnapshotServer.DELTA && keyed) {
+                    readDelta();
+                } else {
+                    throw new IOException("Unexpected frame kind " + kind);
+                }
+                world.tick = tick;
+                snapshots.publish(world);
+                frames.incrementAndGet();
+            }
+        } catch (EOFException | SocketException e) {
+            // The server went away, or the client closed
+            if (!closing) {
+                failure = e;
+            }
+        } catch (IOException e) {
+            if (!closing) {
+                failure = e;
+                EventLog.error(EventLog.Category.STREAM, "Snapshot stream failed: " + e.getMessage());
+            }
+        } finally {
+            connected = false;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    private void readKeyframe() throws IOException {
+        world.width = in.readDouble();
+        world.height = in.readDouble();
+        int count = in.readInt();
+        world.reserve(count, 0, 0);
+        if (xs.length < count) {
+            xs = new int[count];
+            ys = new int[count];
+            headings = new int[count];
+            beams = new int[count];
+        }
+        world.robotCount = count;
+        for (int i = 0; i < count; i++) {
+            world.robotId[i] = in.readInt();
+            xs[i] = in.readInt();
+            ys[i] = in.readInt();
+            headings[i] = in.readShort();
+            world.robotRad[i] = in.readDouble();
+            world.robotColour[i] = in.readInt();
+            beams[i] = in.readInt();
+            setRobot(i);
+        }
+        int circles = in.readInt();
+        world.reserve(0, circles, 0);
+        world.circleCount = circles;
+        for (int i = 0; i < circles; i++) {
+            world.circleX[i] = in.readDouble();
+            world.circleY[i] = in.readDouble();
+            world.circleRad[i] = in.readDouble();
+        }
+        int lines = in.readInt();
+        world.reserve(0, 0, lines);
+        world.lineCount = lines;
+        for (int i = 0; i < lines * 4; i++) {
+            world.lines[i] = in.readDouble();
+        }
+        keyed = true;
+    }
+
+    private void readDelta() throws IOException {
+        for (int i = 0; i < world.robotCount; i++) {
+            xs[i] += readVarint(in);
+            ys[i] += readVarint(in);
+            headings[i] = Math.floorMod(headings[i] + readVarint(in), Heading.STEPS);
+            beams[i] += readVarint(in);
+            setRobot(i);
+        }
+    }
+
+    /**
+     * Turns a robot's received steps back into world units.
+     */
+    private void setRobot(int i) {
+        world.robotX[i] = xs[i] * quantum;
+        world.robotY[i] = ys[i] * quantum;
+        world.robotAngle[i] = Heading.toRadians(headings[i]);
+        world.beamLength[i] = beams[i] * quantum;
+    }
+
+    /**
+     * Reads an int written by SnapshotServer.writeVarint.
+     */
+    static int readVarint(DataInputStream in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (shift > 28) {
+                throw new IOException("Varint too long");
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
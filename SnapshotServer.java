@@ -0,0 +1,428 @@
+/**
+ * SnapshotServer streams the world to remote viewers over TCP, so a long headless run can be watched from a desktop
+ * without copying save files around. Run it with
+ * "java robot_simulator.SnapshotServer saved.dat [port] [ticks per frame] [ticks per second]".
+ */
+package robot_simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class for the snapshot server - an acceptor thread and one sender thread per viewer, reading published
+ * snapshots from a SnapshotBuffer. The simulation only bumps a frame counter and wakes the senders, so it never
+ * waits for the network. A sender busy writing to a slow viewer misses the frames published meanwhile and sends
+ * the latest when it is free; the frames it missed are counted as dropped.
+ * <p>
+ * The stream is big-endian. It starts with MAGIC, VERSION and the quantum as a double, then carries frames, each a
+ * kind byte and the tick as a long. A KEYFRAME holds the whole world:
+ * <pre>
+ * width, height (double), robot count (int),
+ *   per robot: ID (int), x, y (int, in quanta), heading (short, Heading units), radius (double),
+ *              colour (int, ARGB), beam length (int, in quanta),
+ * circle count (int), per circle: x, y, radius (double),
+ * line count (int), per line: x1, y1, x2, y2 (double)
+ * </pre>
+ * A DELTA holds, for each robot of the last keyframe in the same order, the change in x, y, heading and beam length
+ * since the last frame, each a zigzag varint. A keyframe is sent first, and again whenever the arena's size,
+ * obstacles, or robots' IDs, radii or colours differ from what the viewer holds. Changes are measured against the
+ * quantised values already sent, so rounding never builds up.
+ */
+public class SnapshotServer implements Closeable {
+    static final int MAGIC = 0x524F4253; // "ROBS"
+    static final int VERSION = 1;
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    static final int DEFAULT_PORT = 4711;
+    static final double DEFAULT_QUANTUM = 1 / 16.0; // World units per position step sent
+    private static final long IDLE_NANOS = 100_000_000; // Longest a sender sleeps without a wake-up
+
+    private volatile SnapshotBuffer snapshots; // Where frames are read from, null until attached to an arena
+    private final ServerSocket server;
+    private final int interval; // Ticks between frames
+    private final double quantum;
+    private final Thread acceptor;
+    private volatile Sender[] senders = new Sender[0]; // Connected viewers, replaced whole so the tick reads no lock
+    private volatile long frames = 0; // Frames made available, only written by the simulation thread
+    private volatile boolean closing = false;
+
+    private final AtomicLong sent = new AtomicLong(); // Frames written to viewers
+    private final AtomicLong keyframes = new AtomicLong(); // Of which keyframes
+    private final AtomicLong dropped = new AtomicLong(); // Frames viewers missed while busy
+    private final AtomicLong bytes = new AtomicLong(); // Bytes written to viewers
+
+    /**
+     * Opens the server socket and starts accepting viewers. Frames are sent once the server is attached to an arena
+     * with Arena.setSnapshotServer, which publishes a snapshot for it every interval ticks.
+     *
+     * @param address   The address to listen on, InetAddress.getLoopbackAddress() for this machine only.
+     * @param port      The port to listen on, 0 for any free port.
+     * @param interval  Ticks between frames.
+     * @param quantum   World units per position step sent.
+     * @throws IOException If the port cannot be opened.
+     */
+    public SnapshotServer(InetAddress address, int port, int interval, double quantum) throws IOException {
+        if (interval < 1 || !(quantum > 0)) {
+            throw new IllegalArgumentException("interval and quantum must be positive");
+        }
+        this.interval = interval;
+        this.quantum = quantum;
+        this.server = new ServerSocket(port, 50, address);
+        this.acceptor = new Thread(this::acceptLoop, "snapshot-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Reads frames from a buffer, set by Arena.setSnapshotServer and again for a newly loaded arena.
+     * Viewers get a keyframe if the world differs.
+     *
+     * @param snapshots The buffer to read frames from.
+     */
+    public void setSnapshots(SnapshotBuffer snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getViewerCount() {
+        return senders.length;
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getKeyframes() {
+        return keyframes.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns whether a frame is due at a tick.
+     */
+    public boolean isFrameTick(long tick) {
+        return tick % interval == 0;
+    }
+
+    /**
+     * Tells the viewers a new snapshot has been published. Called by the simulation thread; never blocks.
+     */
+    public void frameReady() {
+        frames++; // Only the simulation thread writes it
+        Sender[] current = senders;
+        for (int i = 0; i < current.length; i++) {
+            LockSupport.unpark(current[i].thread);
+        }
+    }
+
+    /**
+     * Accepts viewers until the server is closed, starting a sender for each.
+     */
+    private void acceptLoop() {
+        while (!closing) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Sender sender = new Sender(socket);
+                add(sender);
+                sender.thread.start();
+                EventLog.info(EventLog.Category.STREAM, "Viewer connected from " + socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                if (!closing) {
+                    EventLog.error(EventLog.Category.STREAM, "Could not accept a viewer: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private synchronized void add(Sender sender) {
+        Sender[] current = Arrays.copyOf(senders, senders.length + 1);
+        current[current.length - 1] = sender;
+        senders = current;
+    }
+
+    private synchronized void remove(Sender sender) {
+        Sender[] current = senders;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == sender) {
+                Sender[] fewer = Arrays.copyOf(current, current.length - 1);
+                System.arraycopy(current, i + 1, fewer, i, current.length - i - 1);
+                senders = fewer;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops accepting viewers and disconnects the connected ones.
+     */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        server.close();
+        for (Sender sender : senders) {
+            sender.socket.close();
+            LockSupport.unpark(sender.thread);
+        }
+    }
+
+    /**
+     * One viewer: its connection, its thread and a copy of what it holds, in quanta, to send changes against.
+     */
+    private final class Sender implements Runnable {
+        final Socket socket;
+        final DataOutputStream out;
+        final Thread thread;
+        long seen = -1; // Last frame sent
+
+        boolean keyed = false; // Whether a keyframe has been sent
+        double width, height;
+        int count = 0;
+        int[] ids = new int[0];
+        int[] xs = new int[0];
+        int[] ys = new int[0];
+        int[] headings = new int[0];
+        int[] beams = new int[0];
+        double[] rads = new double[0];
+        int[] colours = new int[0];
+        final WorldSnapshot obstacles = new WorldSnapshot(); // Obstacles of the last keyframe
+
+        Sender(Socket socket) throws IOException {
+            this.socket = socket;
+            OutputStream counted = new FilterOutputStream(socket.getOutputStream()) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len); // Whole buffers at a time, so counting here costs nothing per byte
+                    bytes.addAndGet(len);
+                }
+            };
+            this.out = new DataOutputStream(new BufferedOutputStream(counted, 1 << 16));
+            this.thread = new Thread(this, "snapshot-viewer-" + socket.getPort());
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeDouble(quantum);
+                out.flush();
+                while (!closing) {
+                    long frame = frames;
+                    if (frame == seen) {
+                        LockSupport.parkNanos(this, IDLE_NANOS); // Woken by frameReady
+                        continue;
+                    }
+                    if (seen >= 0 && frame > seen + 1) {
+                        dropped.addAndGet(frame - seen - 1);
+                    }
+                    seen = frame;
+                    SnapshotBuffer buffer = snapshots;
+                    WorldSnapshot snapshot = buffer == null ? null : buffer.acquire();
+                    if (snapshot == null) {
+                        continue;
+                    }
+                    try {
+                        write(snapshot);
+                        out.flush();
+                        sent.incrementAndGet();
+                    } finally {
+                        snapshot.release();
+                    }
+                }
+            } catch (SocketException e) {
+                // The viewer went away, or the server closed
+            } catch (IOException e) {
+                EventLog.warn(EventLog.Category.STREAM, "Viewer " + socket.getRemoteSocketAddress() + " failed: "
+                        + e.getMessage());
+            } finally {
+                remove(this);
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Already closed
+                }
+                EventLog.info(EventLog.Category.STREAM, "Viewer " + socket.getRemoteSocketAddress() + " disconnected.");
+            }
+        }
+
+        /**
+         * Writes a snapshot as a delta when the viewer holds the same robots and obstacles, otherwise as a keyframe.
+         */
+        private void write(WorldSnapshot snapshot) throws IOException {
+            if (!keyed || !sameWorld(snapshot)) {
+                writeKeyframe(snapshot);
+                return;
+            }
+            out.writeByte(DELTA);
+            out.writeLong(snapshot.tick);
+            for (int i = 0; i < count; i++) {
+                int x = quantise(snapshot.robotX[i]);
+                int y = quantise(snapshot.robotY[i]);
+                int heading = Heading.fromRadians(snapshot.robotAngle[i]);
+                int beam = quantise(snapshot.beamLength[i]);
+                writeVarint(out, x - xs[i]);
+                writeVarint(out, y - ys[i]);
+                // The shorter way round, so a small turn through zero stays small
+                writeVarint(out, Math.floorMod(heading - headings[i] + Heading.STEPS / 2, Heading.STEPS)
+                        - Heading.STEPS / 2);
+                writeVarint(out, beam - beams[i]);
+                xs[i] = x;
+                ys[i] = y;
+                headings[i] = heading;
+                beams[i] = beam;
+            }
+        }
+
+        private void writeKeyframe(WorldSnapshot snapshot) throws IOException {
+            count = snapshot.robotCount;
+            if (ids.length < count) {
+                ids = new int[count];
+                xs = new int[count];
+                ys = new int[count];
+                headings = new int[count];
+                beams = new int[count];
+                rads = new double[count];
+                colours = new int[count];
+            }
+            width = snapshot.width;
+            height = snapshot.height;
+            out.writeByte(KEYFRAME);
+            out.writeLong(snapshot.tick);
+            out.writeDouble(width);
+            out.writeDouble(height);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                ids[i] = snapshot.robotId[i];
+                xs[i] = quantise(snapshot.robotX[i]);
+                ys[i] = quantise(snapshot.robotY[i]);
+                headings[i] = Heading.fromRadians(snapshot.robotAngle[i]);
+                rads[i] = snapshot.robotRad[i];
+                colours[i] = snapshot.robotColour[i];
+                beams[i] = quantise(snapshot.beamLength[i]);
+                out.writeInt(ids[i]);
+                out.writeInt(xs[i]);
+                out.writeInt(ys[i]);
+                out.writeShort(headings[i]);
+                out.writeDouble(rads[i]);
+                out.writeInt(colours[i]);
+                out.writeInt(beams[i]);
+            }
+            obstacles.copy(snapshot);
+            out.writeInt(snapshot.circleCount);
+            for (int i = 0; i < snapshot.circleCount; i++) {
+                out.writeDouble(snapshot.circleX[i]);
+                out.writeDouble(snapshot.circleY[i]);
+                out.writeDouble(snapshot.circleRad[i]);
+            }
+            out.writeInt(snapshot.lineCount);
+            for (int i = 0; i < snapshot.lineCount * 4; i++) {
+                out.writeDouble(snapshot.lines[i]);
+            }
+            keyed = true;
+            keyframes.incrementAndGet();
+        }
+
+        /**
+         * Returns whether a snapshot has the arena size, robots and obstacles of the last keyframe,
+         * so it can be sent as a delta.
+         */
+        private boolean sameWorld(WorldSnapshot snapshot) {
+            if (snapshot.width != width || snapshot.height != height || snapshot.robotCount != count
+                    || snapshot.circleCount != obstacles.circleCount || snapshot.lineCount != obstacles.lineCount) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                if (snapshot.robotId[i] != ids[i] || snapshot.robotRad[i] != rads[i]
+                        || snapshot.robotColour[i] != colours[i]) {
+                    return false;
+                }
+            }
+            return Arrays.equals(snapshot.circleX, 0, snapshot.circleCount, obstacles.circleX, 0, snapshot.circleCount)
+                    && Arrays.equals(snapshot.circleY, 0, snapshot.circleCount, obstacles.circleY, 0, snapshot.circleCount)
+                    && Arrays.equals(snapshot.circleRad, 0, snapshot.circleCount, obstacles.circleRad, 0,
+                            snapshot.circleCount)
+                    && Arrays.equals(snapshot.lines, 0, snapshot.lineCount * 4, obstacles.lines, 0,
+                            snapshot.lineCount * 4);
+        }
+
+        private int quantise(double value) {
+            return (int) Math.round(value / quantum);
+        }
+    }
+
+    /**
+     * Writes an int as a zigzag varint: small values of either sign take one byte, seven bits to a byte.
+     */
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    /**
+     * Returns the address to listen on: the robot.serve.address property, such as 0.0.0.0 to let other machines
+     * watch, or this machine only when it is not set.
+     *
+     * @throws IOException If the address cannot be resolved.
+     */
+    public static InetAddress listenAddress() throws IOException {
+        String address = System.getProperty("robot.serve.address");
+        return address == null || address.isBlank() ? InetAddress.getLoopbackAddress() : InetAddress.getByName(address);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: SnapshotServer <saved.dat> [port] [ticks per frame] [ticks per second, 0 for flat out]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        int interval = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : 100;
+
+        Arena arena = Arena.readFile(args[0]);
+        try (SnapshotServer server = new SnapshotServer(listenAddress(), port, interval, DEFAULT_QUANTUM)) {
+            arena.setSnapshotServer(server);
+            EventLog.info(EventLog.Category.STREAM, "Serving " + args[0] + " on port " + server.getPort() + ".");
+            long period = rate > 0 ? (long) (1e9 / rate) : 0;
+            long next = System.nanoTime();
+            while (true) {
+                arena.tick();
+                if (period > 0) {
+                    next += period;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    } else {
+                        next = System.nanoTime(); // Behind; carry on from now rather than race to catch up
+                    }
+                }
+            }
+        }
+    }
+}
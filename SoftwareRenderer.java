@@ -0,0 +1,232 @@
+/**
+ * SoftwareRenderer draws a WorldSnapshot into an ARGB pixel buffer without JavaFX,
+ * so frames can be made on machines without a display and on threads other than the FX thread.
+ */
+package robot_simulator;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import javafx.scene.paint.Color;
+
+/**
+ * Class for the software renderer - fills circles and thick lines into an int[] that backs a BufferedImage.
+ * It draws what the arena's JavaFX nodes show: robot bodies in their type colour, wheels turned to the
+ * heading, beams, and line and circle obstacles. A renderer is not thread safe; use one per thread.
+ * <p>
+ * The image shows the world from the origin, 0, 0 unless moved with setOrigin, so a renderer can also draw a view.
+ */
+public class SoftwareRenderer {
+    static final int BACKGROUND = 0xFFFFFFFF; // White
+    static final int INK = 0xFF000000; // Wheels, beams and line obstacles
+    static final int OBSTACLE = argb(Color.RED); // Circle obstacles
+    static final double WHEEL_WIDTH = 3; // Stroke widths, as in Arena's nodes
+    static final double BEAM_WIDTH = 5;
+    static final double LINE_WIDTH = 5;
+
+    private final int width, height; // Image size, in pixels
+    private final double scale; // Pixels per world unit
+    private double originX, originY; // World point at the top left of the image
+    private final BufferedImage image;
+    private final int[] pixels; // The image's own pixel array, row by row
+
+    /**
+     * Creates a renderer with an image of the given size.
+     *
+     * @param width  The image width, in pixels.
+     * @param height The image height, in pixels.
+     * @param scale  Pixels per world unit.
+     */
+    public SoftwareRenderer(int width, int height, double scale) {
+        this.width = width;
+        this.height = height;
+        this.scale = scale;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Moves the world point drawn at the top left of the image.
+     *
+     * @param x The world x at the left edge.
+     * @param y The world y at the top edge.
+     */
+    public void setOrigin(double x, double y) {
+        originX = x;
+        originY = y;
+    }
+
+    /**
+     * Fills the image with a colour, 0 to make it transparent.
+     *
+     * @param colour The ARGB colour.
+     */
+    public void clear(int colour) {
+        Arrays.fill(pixels, colour);
+    }
+
+    /**
+     * Returns the pixel buffer the renderer draws into, ARGB, width * height, row by row.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Draws a snapshot, replacing the previous frame.
+     *
+     * @param snapshot The world to draw.
+     * @return The image drawn into, which the next call draws over.
+     */
+    public BufferedImage render(WorldSnapshot snapshot) {
+        Arrays.fill(pixels, BACKGROUND);
+        for (int i = 0; i < snapshot.circleCount; i++) {
+            fillCircle(snapshot.circleX[i], snapshot.circleY[i], snapshot.circleRad[i], OBSTACLE);
+        }
+        double[] lines = snapshot.lines;
+        for (int i = 0; i < snapshot.lineCount * 4; i += 4) {
+            drawLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3], LINE_WIDTH, INK);
+        }
+        for (int i = 0; i < snapshot.robotCount; i++) {
+            drawRobot(snapshot, i);
+        }
+        return image;
+    }
+
+    /**
+     * Draws one robot: beam robots as a body and beam, other robots as a body and two wheels.
+     */
+    private void drawRobot(WorldSnapshot snapshot, int i) {
+        double x = snapshot.robotX[i];
+        double y = snapshot.robotY[i];
+        double rad = snapshot.robotRad[i];
+        double angle = snapshot.robotAngle[i];
+        int heading = Heading.fromRadians(angle);
+        double cos = Heading.cos(heading);
+        double sin = Heading.sin(heading);
+        fillCircle(x, y, rad, snapshot.robotColour[i]);
+        if (snapshot.beamLength[i] > 0) {
+            double length = snapshot.beamLength[i];
+            drawLine(x, y, x + length * cos, y + length * sin, BEAM_WIDTH, INK);
+            return;
+        }
+        drawWheels(x, y, rad, cos, sin);
+    }
+
+    /**
+     * Draws a robot's two wheels, which run along the top and bottom of the body, turned with it.
+     */
+    void drawWheels(double x, double y, double rad, double cos, double sin) {
+        for (int side = -1; side <= 1; side += 2) {
+            double startX = x + (-rad) * cos - (side * rad) * sin;
+            double startY = y + (-rad) * sin + (side * rad) * cos;
+            double endX = x + rad * cos - (side * rad) * sin;
+            double endY = y + rad * sin + (side * rad) * cos;
+            drawLine(startX, startY, endX, endY, WHEEL_WIDTH, INK);
+        }
+    }
+
+    /**
+     * Fills the pixels whose centres lie inside a circle, one horizontal span per row.
+     */
+    void fillCircle(double cx, double cy, double r, int colour) {
+        cx = (cx - originX) * scale;
+        cy = (cy - originY) * scale;
+        r = Math.max(r * scale, 0.5); // Tiny robots still show as a pixel
+        int top = Math.max(0, (int) Math.ceil(cy - r - 0.5));
+        int bottom = Math.min(height - 1, (int) Math.floor(cy + r - 0.5));
+        for (int py = top; py <= bottom; py++) {
+            double dy = py + 0.5 - cy;
+            double half = Math.sqrt(Math.max(0, r * r - dy * dy));
+            int left = Math.max(0, (int) Math.ceil(cx - half - 0.5));
+            int right = Math.min(width - 1, (int) Math.floor(cx + half - 0.5));
+            if (left <= right) {
+                Arrays.fill(pixels, py * width + left, py * width + right + 1, colour);
+            }
+        }
+    }
+
+    /**
+     * Fills the pixels whose centres lie within half the stroke width of a segment.
+     */
+    void drawLine(double x1, double y1, double x2, double y2, double strokeWidth, int colour) {
+        x1 = (x1 - originX) * scale;
+        y1 = (y1 - originY) * scale;
+        x2 = (x2 - originX) * scale;
+        y2 = (y2 - originY) * scale;
+        double half = Math.max(strokeWidth * scale, 1) / 2;
+        int minX = Math.max(0, (int) Math.floor(Math.min(x1, x2) - half));
+        int maxX = Math.min(width - 1, (int) Math.ceil(Math.max(x1, x2) + half));
+        int minY = Math.max(0, (int) Math.floor(Math.min(y1, y2) - half));
+        int maxY = Math.min(height - 1, (int) Math.ceil(Math.max(y1, y2) + half));
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSq = dx * dx + dy * dy;
+        double invLengthSq = lengthSq == 0 ? 0 : 1 / lengthSq;
+        double halfSq = half * half;
+        for (int py = minY; py <= maxY; py++) {
+            double ry = py + 0.5 - y1;
+            int row = py * width;
+            for (int px = minX; px <= maxX; px++) {
+                double rx = px + 0.5 - x1;
+                double t = Math.max(0, Math.min(1, (rx * dx + ry * dy) * invLengthSq));
+                double ex = rx - t * dx;
+                double ey = ry - t * dy;
+                if (ex * ex + ey * ey <= halfSq) {
+                    pixels[row + px] = colour;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a square sprite from an atlas, centred on a world point. Transparent sprite pixels are skipped.
+     *
+     * @param atlas       The atlas pixels, ARGB, row by row.
+     * @param atlasWidth  The atlas width, in pixels.
+     * @param left        The sprite's left column in the atlas.
+     * @param size        The sprite's width and height, in pixels.
+     * @param x           The world x of the sprite's centre.
+     * @param y           The world y of the sprite's centre.
+     */
+    void drawSprite(int[] atlas, int atlasWidth, int left, int size, double x, double y) {
+        int px = (int) Math.floor((x - originX) * scale - size / 2.0 + 0.5); // Image column of the sprite's left edge
+        int py = (int) Math.floor((y - originY) * scale - size / 2.0 + 0.5);
+        int fromX = Math.max(0, -px);
+        int toX = Math.min(size, width - px);
+        int fromY = Math.max(0, -py);
+        int toY = Math.min(size, height - py);
+        for (int sy = fromY; sy < toY; sy++) {
+            int source = sy * atlasWidth + left;
+            int target = (py + sy) * width + px;
+            for (int sx = fromX; sx < toX; sx++) {
+                int colour = atlas[source + sx];
+                if (colour != 0) {
+                    pixels[target + sx] = colour;
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a JavaFX colour to an ARGB int.
+     */
+    static int argb(Color colour) {
+        return (int) Math.round(colour.getOpacity() * 255) << 24
+                | (int) Math.round(colour.getRed() * 255) << 16
+                | (int) Math.round(colour.getGreen() * 255) << 8
+                | (int) Math.round(colour.getBlue() * 255);
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * SpatialGrid is a uniform grid index over the objects in the arena.
+ * It answers rectangle queries and casts rays cell by cell, so the cost of a query depends on the area it covers
+ * rather than on the number of objects in the arena.
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for the spatial grid index.
+ * <p>
+ * The grid is rebuilt in bulk (counting sort into a flat array per cell) rather than updated object by object,
+ * which keeps it cheap enough to rebuild once per tick. Objects overlapping several cells are stored in each of them.
+ */
+public class SpatialGrid {
+    private final double cellSize; // Width and height of a cell
+    private final int cols, rows; // Grid size
+
+    private Objects[] items = new Objects[0]; // Indexed objects
+    private double[] minX = new double[0], minY = new double[0]; // Bounding box of each indexed object
+    private double[] maxX = new double[0], maxY = new double[0];
+    private int count = 0; // Number of indexed objects
+    private double maxRad = 0; // Largest radius of any indexed object
+
+    private final int[] cellStart; // Start of each cell's entries in cellItems, cellStart[cells] is the end
+    private int[] cellItems = new int[0]; // Item indices grouped by cell
+    private final int[] cursor; // Fill position of each cell during a rebuild
+
+    /**
+     * Result of a ray cast.
+     */
+    public static final class RayHit {
+        public Objects object; // The first object hit, or null if the ray hit nothing or a wall
+        public double distance; // Distance from the ray origin to the hit
+        public boolean wall; // True if the ray ended on a wall
+    }
+
+    /**
+     * Creates an empty grid covering an arena.
+     *
+     * @param width    The arena width.
+     * @param height   The arena height.
+     * @param cellSize The width and height of a cell.
+     */
+    public SpatialGrid(double width, double height, double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellStart = new int[cols * rows + 1];
+        this.cursor = new int[cols * rows];
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Returns the largest radius of the indexed objects, used to widen neighbourhood queries.
+     */
+    public double getMaxRad() {
+        return maxRad;
+    }
+
+    /**
+     * Re-indexes every object at its current position.
+     *
+     * @param objects The objects to index.
+     */
+    public void rebuild(List<Objects> objects) {
+        count = objects.size();
+        if (items.length < count) {
+            int capacity = Math.max(16, count + (count >> 1));
+            items = new Objects[capacity];
+            minX = new double[capacity];
+            minY = new double[capacity];
+            maxX = new double[capacity];
+            maxY = new double[capacity];
+        }
+        maxRad = 0;
+        Arrays.fill(cellStart, 0);
+
+        // Bounding boxes, and count the entries of each cell
+        for (int i = 0; i < count; i++) {
+            Objects object = objects.get(i);
+            items[i] = object;
+            if (object instanceof Obstacle && object.getRad() == 0) {
+                double[] seg = Arena.lineSegment(object);
+                minX[i] = Math.min(seg[0], seg[2]);
+                minY[i] = Math.min(seg[1], seg[3]);
+                maxX[i] = Math.max(seg[0], seg[2]);
+                maxY[i] = Math.max(seg[1], seg[3]);
+            } else {
+                minX[i] = object.getX() - object.getRad();
+                minY[i] = object.getY() - object.getRad();
+                maxX[i] = object.getX() + object.getRad();
+                maxY[i] = object.getY() + object.getRad();
+                maxRad = Math.max(maxRad, object.getRad());
+            }
+            for (int cy = row(minY[i]); cy <= row(maxY[i]); cy++) {
+                for (int cx = col(minX[i]); cx <= col(maxX[i]); cx++) {
+                    cellStart[cy * cols + cx + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int entries = cellStart[cols * rows];
+        if (cellItems.length < entries) {
+            cellItems = new int[Math.max(16, entries + (entries >> 1))];
+        }
+
+        // Fill each cell, using a running cursor per cell
+        System.arraycopy(cellStart, 0, cursor, 0, cols * rows);
+        for (int i = 0; i < count; i++) {
+            for (int cy = row(minY[i]); cy <= row(maxY[i]); cy++) {
+                for (int cx = col(minX[i]); cx <= col(maxX[i]); cx++) {
+                    cellItems[cursor[cy * cols + cx]++] = i;
+                }
+            }
+        }
+        Arrays.fill(items, count, items.length, null); // Let removed objects be collected
+    }
+
+    /**
+     * Adds every object whose bounding box overlaps a rectangle to a list. Each object is added once.
+     *
+     * @param qMinX The left edge of the rectangle.
+     * @param qMinY The top edge of the rectangle.
+     * @param qMaxX The right edge of the rectangle.
+     * @param qMaxY The bottom edge of the rectangle.
+     * @param out   The list the objects are added to.
+     */
+    public void query(double qMinX, double qMinY, double qMaxX, double qMaxY, List<Objects> out) {
+        int c0 = col(qMinX), c1 = col(qMaxX);
+        int r0 = row(qMinY), r1 = row(qMaxY);
+        for (int cy = r0; cy <= r1; cy++) {
+            for (int cx = c0; cx <= c1; cx++) {
+                int cell = cy * cols + cx;
+                for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                    int i = cellItems[e];
+                    if (maxX[i] < qMinX || minX[i] > qMaxX || maxY[i] < qMinY || minY[i] > qMaxY) {
+                        continue;
+                    }
+                    // Report the object only from the first cell where it overlaps the query
+                    if (cx == Math.max(c0, col(minX[i])) && cy == Math.max(r0, row(minY[i]))) {
+                        out.add(items[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Casts a ray and finds the first robot or obstacle it hits, walking the grid cell by cell (DDA).
+     * The ray stops early at the arena walls given by the bounds.
+     *
+     * @param ox     The x-coordinate of the ray origin.
+     * @param oy     The y-coordinate of the ray origin.
+     * @param dx     The x component of the unit ray direction.
+     * @param dy     The y component of the unit ray direction.
+     * @param range  The maximum length of the ray.
+     * @param ignore An object to ignore, usually the robot casting the ray.
+     * @param wallMinX The left wall.
+     * @param wallMinY The top wall.
+     * @param wallMaxX The right wall.
+     * @param wallMaxY The bottom wall.
+     * @param hit    Receives the result.
+     * @return True if the ray hit an object or a wall within range.
+     */
+    public boolean raycast(double ox, double oy, double dx, double dy, double range, Objects ignore,
+                           double wallMinX, double wallMinY, double wallMaxX, double wallMaxY, RayHit hit) {
+        // Clip the ray against the walls first, nothing beyond them can be seen
+        double limit = range;
+        boolean wall = false;
+        double tWall = wallDistance(ox, dx, wallMinX, wallMaxX);
+        if (tWall < limit) {
+            limit = tWall;
+            wall = true;
+        }
+        tWall = wallDistance(oy, dy, wallMinY, wallMaxY);
+        if (tWall < limit) {
+            limit = tWall;
+            wall = true;
+        }
+
+        Objects best = null;
+        double bestT = limit;
+
+        int cx = col(ox);
+        int cy = row(oy);
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        // Distance along the ray to the next vertical and horizontal cell boundary
+        double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY
+                : ((dx > 0 ? (cx + 1) * cellSize : cx * cellSize) - ox) / dx;
+        double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY
+                : ((dy > 0 ? (cy + 1) * cellSize : cy * cellSize) - oy) / dy;
+        double tDeltaX = dx == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dx);
+        double tDeltaY = dy == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dy);
+        double tEnter = 0;
+
+        while (tEnter <= bestT) {
+            // Border cells also hold everything beyond the grid edge, so clamp rather than stop at the edge
+            int cell = Math.max(0, Math.min(rows - 1, cy)) * cols + Math.max(0, Math.min(cols - 1, cx));
+            for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                Objects object = items[cellItems[e]];
+                if (object == ignore) {
+                    continue;
+                }
+                double t = object instanceof Obstacle && object.getRad() == 0
+                        ? raySegment(ox, oy, dx, dy, Arena.lineSegment(object))
+                        : rayCircle(ox, oy, dx, dy, object.getX(), object.getY(), object.getRad());
+                if (t < bestT) {
+                    bestT = t;
+                    best = object;
+                }
+            }
+            // Step to the next cell along the ray
+            if (tMaxX < tMaxY) {
+                tEnter = tMaxX;
+                tMaxX += tDeltaX;
+                cx += stepX;
+            } else {
+                tEnter = tMaxY;
+                tMaxY += tDeltaY;
+                cy += stepY;
+            }
+            boolean awayX = (cx < 0 && stepX < 0) || (cx >= cols && stepX > 0) || ((cx < 0 || cx >= cols) && dx == 0);
+            boolean awayY = (cy < 0 && stepY < 0) || (cy >= rows && stepY > 0) || ((cy < 0 || cy >= rows) && dy == 0);
+            if ((awayX && (awayY || dy == 0)) || (awayY && dx == 0)) {
+                break; // Leaving the grid for good
+            }
+        }
+
+        hit.object = best;
+        hit.distance = bestT;
+        hit.wall = best == null && wall;
+        return best != null || wall;
+    }
+
+    /**
+     * Returns the distance along one axis until the ray leaves [min, max].
+     */
+    private static double wallDistance(double origin, double d, double min, double max) {
+        if (d > 0) {
+            return Math.max(0, (max - origin) / d);
+        } else if (d < 0) {
+            return Math.max(0, (min - origin) / d);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the distance along a unit ray to a circle, 0 if the origin is inside it, or infinity if it misses.
+     */
+    static double rayCircle(double ox, double oy, double dx, double dy, double cx, double cy, double rad) {
+        double fx = ox - cx;
+        double fy = oy - cy;
+        double b = fx * dx + fy * dy;
+        double c = fx * fx + fy * fy - rad * rad;
+        if (c <= 0) {
+            return 0; // Origin is inside the circle
+        }
+        double disc = b * b - c;
+        if (b > 0 || disc < 0) {
+            return Double.POSITIVE_INFINITY; // Circle is behind the ray or missed
+        }
+        return -b - Math.sqrt(disc);
+    }
+
+    /**
+     * Returns the distance along a unit ray to a segment {x1, y1, x2, y2}, or infinity if it misses.
+     */
+    static double raySegment(double ox, double oy, double dx, double dy, double[] seg) {
+        double sx = seg[2] - seg[0];
+        double sy = seg[3] - seg[1];
+        double denom = dx * sy - dy * sx;
+        if (denom == 0) {
+            return Double.POSITIVE_INFINITY; // Parallel
+        }
+        double qx = seg[0] - ox;
+        double qy = seg[1] - oy;
+        double t = (qx * sy - qy * sx) / denom; // Along the ray
+        double u = (qx * dy - qy * dx) / denom; // Along the segment
+        if (t < 0 || u < 0 || u > 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return t;
+    }
+
+    private int col(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * SpriteAtlas keeps robots pre-rendered at every heading, so a crowded view is drawn by copying pixels
+ * rather than by building a circle and two rotated wheel lines per robot each frame.
+ */
+package robot_simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for the sprite atlas - one strip of sprites per robot look, a look being a body colour, a radius and
+ * whether it has wheels. Each strip holds HEADINGS sprites side by side, drawn once by a SoftwareRenderer
+ * the first time the look is needed. The sprites are drawn at one scale; changing it starts the atlas again,
+ * as does clear, for when the way robots are drawn changes.
+ */
+public class SpriteAtlas {
+    static final int HEADINGS = 32; // Sprites per look, so a drawn heading is never more than 5.6 degrees out
+    static final int MAX_LOOKS = 64; // Looks kept before the atlas starts again
+
+    /**
+     * One look's strip of sprites.
+     */
+    private static final class Look {
+        final int colour; // Body colour, ARGB
+        final double rad; // Body radius, in world units
+        final boolean wheels; // False for beam robots, whose beam is drawn on its own
+        final int size; // Width and height of each sprite, in pixels
+        final int[] pixels; // HEADINGS sprites side by side, ARGB, transparent around the robot
+
+        Look(int colour, double rad, boolean wheels, double scale) {
+            this.colour = colour;
+            this.rad = rad;
+            this.wheels = wheels;
+            // Wheel ends sit on the corners of the body's square, half a wheel width further out
+            size = 2 * (int) Math.ceil((rad * Math.sqrt(2) + SoftwareRenderer.WHEEL_WIDTH / 2) * scale) + 2;
+            SoftwareRenderer renderer = new SoftwareRenderer(size * HEADINGS, size, scale);
+            double centre = size / 2.0 / scale;
+            for (int i = 0; i < HEADINGS; i++) {
+                int heading = i * (Heading.STEPS / HEADINGS);
+                double x = i * size / scale + centre;
+                renderer.fillCircle(x, centre, rad, colour);
+                if (wheels) {
+                    renderer.drawWheels(x, centre, rad, Heading.cos(heading), Heading.sin(heading));
+                }
+            }
+            pixels = renderer.getPixels();
+        }
+    }
+
+    private final List<Look> looks = new ArrayList<>(); // Looks drawn so far, few enough to search in order
+    private double scale = 1; // Pixels per world unit the sprites are drawn at
+
+    /**
+     * Sets the scale sprites are drawn at, dropping every sprite drawn at another scale.
+     *
+     * @param scale Pixels per world unit.
+     */
+    public void setScale(double scale) {
+        if (scale != this.scale) {
+            this.scale = scale;
+            looks.clear();
+        }
+    }
+
+    /**
+     * Drops every sprite, so each look is drawn again when next needed.
+     */
+    public void clear() {
+        looks.clear();
+    }
+
+    /**
+     * Returns the number of looks drawn so far.
+     */
+    public int size() {
+        return looks.size();
+    }
+
+    /**
+     * Copies a robot's sprite into a frame, drawing the robot's look first if it is new.
+     *
+     * @param frame   The renderer to draw into, at the atlas's scale.
+     * @param x       The robot's x-coordinate.
+     * @param y       The robot's y-coordinate.
+     * @param rad     The robot's radius.
+     * @param heading The robot's heading, in Heading units.
+     * @param colour  The body colour, ARGB.
+     * @param wheels  Whether the robot has wheels.
+     */
+    public void draw(SoftwareRenderer frame, double x, double y, double rad, int heading, int colour, boolean wheels) {
+        Look look = look(colour, rad, wheels);
+        int i = Math.floorMod(heading + Heading.STEPS / HEADINGS / 2, Heading.STEPS) / (Heading.STEPS / HEADINGS);
+        frame.drawSprite(look.pixels, look.size * HEADINGS, i * look.size, look.size, x, y);
+    }
+
+    /**
+     * Finds a look, drawing its sprites if it has not been needed yet.
+     */
+    private Look look(int colour, double rad, boolean wheels) {
+        for (int i = 0; i < looks.size(); i++) {
+            Look look = looks.get(i);
+            if (look.colour == colour && look.rad == rad && look.wheels == wheels) {
+                return look;
+            }
+        }
+        if (looks.size() == MAX_LOOKS) {
+            looks.clear(); // Robots of many sizes; start again rather than grow without end
+        }
+        Look look = new Look(colour, rad, wheels, scale);
+        looks.add(look);
+        return look;
+    }
+}
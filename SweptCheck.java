@@ -0,0 +1,265 @@
+/**
+ * SweptCheck runs the same world at a time step of 1 and at larger steps and checks that the swept moves never
+ * carry a robot into an obstacle or through a wall, and that robots overlap each other no more often than at a
+ * step of 1. Run it with "java robot_simulator.SweptCheck [time] [steps...]"; it exits with status 1 on a failure.
+ */
+package robot_simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class for the swept check - a plain main, like KernelBenchmark, that builds a world from a fixed seed, runs it
+ * for the same simulated time at each step and follows every robot's move of every tick.
+ * <p>
+ * A move passes into an obstacle when the straight path from where the robot started the tick to where it ended
+ * comes closer to the obstacle than the robot's radius, so a robot jumping over a line counts as well as one
+ * ending inside a circle. Beam robots sense with their beam and move by their own rules, so they are counted
+ * apart from the robots that move by the swept tests. Overlaps are pairs of robots closer than the sum of their
+ * radii at the end of a tick, per unit of simulated time.
+ */
+public final class SweptCheck {
+    static final double DEFAULT_TIME = 2000; // Simulated time run at each step
+    static final double[] DEFAULT_STEPS = {10, 20}; // Steps compared with a step of 1
+    static final double WIDTH = 1200, HEIGHT = 800; // Size of the built world
+    static final int ROBOTS_PER_TYPE = 75; // 300 robots in the built world, a quarter of each type
+    static final int OBSTACLES_PER_TYPE = 20; // Circle and line obstacles in the built world
+    static final long SEED = 42; // Seed for the built world's places and directions
+    static final double TOLERANCE = 1e-6; // Rounding allowed in a distance before it counts as passing into
+
+    private final double[] path = new double[4]; // Scratch {x1, y1, x2, y2} of a robot's move
+
+    /**
+     * Counts from one run.
+     */
+    static final class Result {
+        long ticks; // Ticks run
+        long robotPasses; // Moves by robots other than beam robots that passed into an obstacle or a wall
+        long beamPasses; // The same, for beam robots
+        long overlaps; // Overlapping robot pairs summed over the ticks
+        double time; // Simulated time run
+
+        double overlapRate() {
+            return overlaps / time;
+        }
+    }
+
+    /**
+     * Builds the world: ROBOTS_PER_TYPE robots of each type with the editor's sizes and speeds, and
+     * OBSTACLES_PER_TYPE circle and line obstacles, every robot placed clear of the obstacles.
+     */
+    static Arena buildWorld() {
+        Arena arena = new Arena(WIDTH, HEIGHT);
+        Random random = new Random(SEED);
+        List<Obstacle> obstacles = new ArrayList<>();
+        for (int i = 0; i < OBSTACLES_PER_TYPE; i++) {
+            obstacles.add(new Obstacle(place(random, WIDTH), place(random, HEIGHT), 30));
+            obstacles.add(LineObstacle.rotated(place(random, WIDTH), place(random, HEIGHT), 120, random.nextInt(180)));
+        }
+        for (Obstacle obstacle : obstacles) {
+            arena.insert(obstacle);
+        }
+        for (int i = 0; i < ROBOTS_PER_TYPE; i++) {
+            arena.insert(clear(new NormalRobot(0, 0, 10, 2), obstacles, random));
+            arena.insert(clear(new WeakRobot(0, 0, 10, 3), obstacles, random));
+            arena.insert(clear(new AvoiderRobot(0, 0, 10, 3), obstacles, random));
+            arena.insert(clear(new BeamRobot(0, 0, 10, 0.75), obstacles, random));
+        }
+        return arena;
+    }
+
+    /**
+     * Returns a coordinate at least 50 units inside the arena, as the editor places objects.
+     */
+    private static double place(Random random, double size) {
+        return 50 + random.nextInt((int) size - 100);
+    }
+
+    /**
+     * Places a robot where it touches no obstacle and points it in a seeded direction.
+     */
+    private static Robot clear(Robot robot, List<Obstacle> obstacles, Random random) {
+        boolean touching;
+        do {
+            robot.setXY(place(random, WIDTH), Math.max(place(random, HEIGHT), 65 + 50));
+            touching = false;
+            for (Obstacle obstacle : obstacles) {
+                double reach = robot.getRad() + obstacle.getRad() + 5;
+                touching |= ObstacleRaster.segmentDistanceSq(robot.getX(), robot.getY(),
+                        Arena.lineSegment(obstacle)) <= reach * reach && obstacle.getRad() == 0
+                        || Math.hypot(robot.getX() - obstacle.getX(), robot.getY() - obstacle.getY()) <= reach
+                        && obstacle.getRad() > 0;
+            }
+        } while (touching);
+        robot.direction = Direction.values()[random.nextInt(Direction.values().length)];
+        robot.heading = Heading.fromDirection(robot.direction);
+        return robot;
+    }
+
+    /**
+     * Runs a new world at a time step for a simulated time, checking every move.
+     */
+    Result run(double step, double time) {
+        Arena arena = buildWorld();
+        arena.setTimeStep(step);
+        List<Obstacle> obstacles = new ArrayList<>();
+        List<Robot> robots = new ArrayList<>();
+        for (Objects object : arena.getObjects()) {
+            if (object instanceof Obstacle) {
+                obstacles.add((Obstacle) object);
+            }
+        }
+        double[] startX = new double[0], startY = new double[0];
+        Result result = new Result();
+        while (result.time < time) {
+            robots.clear();
+            for (Objects object : arena.getObjects()) {
+                if (object instanceof Robot) {
+                    robots.add((Robot) object);
+                }
+            }
+            if (startX.length < robots.size()) {
+                startX = new double[robots.size()];
+                startY = new double[robots.size()];
+            }
+            for (int i = 0; i < robots.size(); i++) {
+                startX[i] = robots.get(i).getX();
+                startY[i] = robots.get(i).getY();
+            }
+            arena.tick();
+            result.ticks++;
+            result.time += step;
+            for (int i = 0; i < robots.size(); i++) {
+                Robot robot = robots.get(i);
+                if (!robot.destroyed && passesInto(robot, startX[i], startY[i], obstacles)) {
+                    if (robot instanceof BeamRobot) {
+                        result.beamPasses++;
+                    } else {
+                        result.robotPasses++;
+                    }
+                }
+            }
+            result.overlaps += overlaps(arena);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a robot's move this tick came closer to an obstacle than its radius, or ended outside the
+     * walls.
+     */
+    private boolean passesInto(Robot robot, double fromX, double fromY, List<Obstacle> obstacles) {
+        double x = robot.getX(), y = robot.getY(), rad = robot.getRad();
+        if (x < rad - TOLERANCE || x > WIDTH - rad + TOLERANCE
+                || y < rad + SweptCollision.TOP_WALL - TOLERANCE || y > HEIGHT - rad + TOLERANCE) {
+            return true;
+        }
+        path[0] = fromX;
+        path[1] = fromY;
+        path[2] = x;
+        path[3] = y;
+        for (int i = 0; i < obstacles.size(); i++) {
+            Obstacle obstacle = obstacles.get(i);
+            double limit;
+            double distanceSq;
+            if (obstacle.getRad() == 0) {
+                limit = rad - TOLERANCE;
+                distanceSq = segmentsDistanceSq(path, Arena.lineSegment(obstacle));
+            } else {
+                limit = rad + obstacle.getRad() - TOLERANCE;
+                distanceSq = ObstacleRaster.segmentDistanceSq(obstacle.getX(), obstacle.getY(), path);
+            }
+            if (distanceSq < limit * limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the squared distance between two segments {x1, y1, x2, y2}, 0 if they cross.
+     */
+    static double segmentsDistanceSq(double[] a, double[] b) {
+        if (crosses(a, b)) {
+            return 0;
+        }
+        return Math.min(Math.min(ObstacleRaster.segmentDistanceSq(a[0], a[1], b),
+                        ObstacleRaster.segmentDistanceSq(a[2], a[3], b)),
+                Math.min(ObstacleRaster.segmentDistanceSq(b[0], b[1], a),
+                        ObstacleRaster.segmentDistanceSq(b[2], b[3], a)));
+    }
+
+    private static boolean crosses(double[] a, double[] b) {
+        double d1 = side(b, a[0], a[1]), d2 = side(b, a[2], a[3]);
+        double d3 = side(a, b[0], b[1]), d4 = side(a, b[2], b[3]);
+        return (d1 > 0 && d2 < 0 || d1 < 0 && d2 > 0) && (d3 > 0 && d4 < 0 || d3 < 0 && d4 > 0);
+    }
+
+    private static double side(double[] s, double px, double py) {
+        return (s[2] - s[0]) * (py - s[1]) - (s[3] - s[1]) * (px - s[0]);
+    }
+
+    /**
+     * Returns the number of robot pairs closer than the sum of their radii.
+     */
+    private static int overlaps(Arena arena) {
+        List<Objects> objects = arena.getObjects();
+        int count = 0;
+        for (int i = 0; i < objects.size(); i++) {
+            if (!(objects.get(i) instanceof Robot)) {
+                continue;
+            }
+            Objects a = objects.get(i);
+            for (int j = i + 1; j < objects.size(); j++) {
+                Objects b = objects.get(j);
+                if (b instanceof Robot) {
+                    double reach = a.getRad() + b.getRad();
+                    double dx = a.getX() - b.getX(), dy = a.getY() - b.getY();
+                    if (dx * dx + dy * dy < reach * reach) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void print(double step, Result result) {
+        System.out.printf("step %-4s %6d ticks, %d robot and %d beam robot moves into an obstacle or wall,"
+                        + " %.4f overlaps per unit of time%n",
+                step == (long) step ? String.valueOf((long) step) : String.valueOf(step), result.ticks,
+                result.robotPasses, result.beamPasses, result.overlapRate());
+    }
+
+    public static void main(String[] args) {
+        double time = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_TIME;
+        double[] steps = DEFAULT_STEPS;
+        if (args.length > 1) {
+            steps = new double[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                steps[i - 1] = Double.parseDouble(args[i]);
+            }
+        }
+
+        SweptCheck check = new SweptCheck();
+        Result base = check.run(1, time);
+        print(1, base);
+        boolean failed = false;
+        for (double step : steps) {
+            Result result = check.run(step, time);
+            print(step, result);
+            if (result.robotPasses > 0) {
+                System.out.println("Robots passed into an obstacle or a wall at step " + step);
+                failed = true;
+            }
+            if (result.overlapRate() > base.overlapRate()) {
+                System.out.println("Robots overlap more often at step " + step + " than at step 1");
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * SweptCollision finds when a moving robot first touches a wall, an obstacle or another moving robot,
+ * rather than whether it touches one at a single position.
+ * It is used by the collision scheduler to predict contacts and by the arena to move robots in large steps.
+ */
+package robot_simulator;
+
+/**
+ * Utility class for swept contact tests. Motion is a straight line p + t * v; each method returns the
+ * earliest time t >= 0 at which the contact rule used by Arena holds, or infinity if it never does.
+ * A contact that already holds at t = 0 returns 0.
+ * <p>
+ * Contact is judged by the same rules as the discrete tests: robots touch when the squared distance
+ * between centres is under (r1 + r2)^2 + CONTACT_BUFFER (Robot.hitting), line obstacles when the
+ * distance to the segment is at most the radius (Arena.isRobotCollidingWithLine), and walls when
+ * the centre is closer than the radius (Arena.wallFlags).
+ */
+public final class SweptCollision {
+    static final double CONTACT_BUFFER = 200; // Robot.hitting adds this to the squared contact distance
+    static final double TOP_WALL = 65; // The top wall is below the button bar, as in Arena.wallFlags
+
+    private SweptCollision() {
+    }
+
+    /**
+     * Returns the earliest time at which p + t * v leaves the open range (min, max), or infinity.
+     * 0 if p is already outside.
+     */
+    static double wallTime(double p, double v, double min, double max) {
+        if (p < min || p > max) {
+            return 0;
+        }
+        if (v < 0) {
+            return (p - min) / -v;
+        }
+        if (v > 0) {
+            return (max - p) / v;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * As wallTime, but a coordinate already outside the range only touches if it is moving further out.
+     * Used to stop moves at the wall they would leave the arena through.
+     */
+    static double outwardWallTime(double p, double v, double min, double max) {
+        if (v < 0) {
+            return Math.max(0, (p - min) / -v);
+        }
+        if (v > 0) {
+            return Math.max(0, (max - p) / v);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the earliest time at which a robot moving from (x, y) with velocity (vx, vy) touches a wall
+     * of an arena of the given size.
+     *
+     * @param rad The robot's radius.
+     */
+    public static double wallTime(double x, double y, double vx, double vy, double rad, double width, double height) {
+        return Math.min(wallTime(x, vx, rad, width - rad), wallTime(y, vy, rad + TOP_WALL, height - rad));
+    }
+
+    /**
+     * Returns the earliest time at which |d + t * dv|^2 < rSq, or infinity if the gap never closes
+     * that far. d is the offset between two moving circles and dv their relative velocity.
+     */
+    static double circleTime(double dx, double dy, double dvx, double dvy, double rSq) {
+        double c = dx * dx + dy * dy - rSq;
+        if (c < 0) {
+            return 0;
+        }
+        double a = dvx * dvx + dvy * dvy;
+        double b = dx * dvx + dy * dvy; // half the linear coefficient
+        if (a == 0 || b >= 0) {
+            return Double.POSITIVE_INFINITY; // not closing
+        }
+        double disc = b * b - a * c;
+        if (disc < 0) {
+            return Double.POSITIVE_INFINITY; // passes by
+        }
+        return (-b - Math.sqrt(disc)) / a;
+    }
+
+    /**
+     * Returns the earliest time at which two moving robots touch, as Robot.hitting judges it.
+     */
+    public static double robotTime(double x1, double y1, double vx1, double vy1, double rad1,
+                                   double x2, double y2, double vx2, double vy2, double rad2) {
+        double radius = rad1 + rad2;
+        return circleTime(x2 - x1, y2 - y1, vx2 - vx1, vy2 - vy1, radius * radius + CONTACT_BUFFER);
+    }
+
+    /**
+     * Returns the earliest time at which a robot moving from (px, py) with velocity (vx, vy)
+     * touches an obstacle, as Arena's obstacle test judges it.
+     */
+    public static double obstacleTime(double px, double py, double vx, double vy, double rad, Objects obstacle) {
+        if (obstacle.getRad() == 0) {
+            double[] seg = Arena.lineSegment(obstacle);
+            return segmentTime(px, py, vx, vy, rad, seg[0], seg[1], seg[2], seg[3]);
+        }
+        double radius = rad + obstacle.getRad();
+        return circleTime(obstacle.getX() - px, obstacle.getY() - py, -vx, -vy, radius * radius + CONTACT_BUFFER);
+    }
+
+    /**
+     * As obstacleTime, but a robot already touching the obstacle only counts while it moves deeper in.
+     * One moving out is left to leave: a straight path cannot enter a circle or a segment's outline twice.
+     */
+    public static double obstacleApproachTime(double px, double py, double vx, double vy, double rad,
+                                              Objects obstacle) {
+        double t = obstacleTime(px, py, vx, vy, rad, obstacle);
+        if (t > 0) {
+            return t;
+        }
+        double nearX = obstacle.getX(), nearY = obstacle.getY(); // Nearest point of the obstacle
+        if (obstacle.getRad() == 0) {
+            double[] seg = Arena.lineSegment(obstacle);
+            double ux = seg[2] - seg[0], uy = seg[3] - seg[1];
+            double lengthSq = ux * ux + uy * uy;
+            double along = lengthSq == 0 ? 0 : ((px - seg[0]) * ux + (py - seg[1]) * uy) / lengthSq;
+            along = Math.max(0, Math.min(1, along));
+            nearX = seg[0] + along * ux;
+            nearY = seg[1] + along * uy;
+        }
+        return (px - nearX) * vx + (py - nearY) * vy < 0 ? 0 : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the earliest time at which a point moving from (px, py) with velocity (vx, vy)
+     * comes within distance r of the segment (x1, y1)-(x2, y2), or infinity.
+     */
+    public static double segmentTime(double px, double py, double vx, double vy, double r,
+                                     double x1, double y1, double x2, double y2) {
+        double ux = x2 - x1, uy = y2 - y1;
+        double lengthSq = ux * ux + uy * uy;
+        double rSq = r * r;
+        // The rounded ends
+        double t = Math.min(circleTime(x1 - px, y1 - py, -vx, -vy, rSq), circleTime(x2 - px, y2 - py, -vx, -vy, rSq));
+        if (lengthSq == 0 || t == 0) {
+            return t;
+        }
+        // The sides: signed distance from the line, reaching r while the projection is on the segment
+        double length = Math.sqrt(lengthSq);
+        double nx = -uy / length, ny = ux / length;
+        double side = (px - x1) * nx + (py - y1) * ny;
+        double closing = vx * nx + vy * ny;
+        double along = ((px - x1) * ux + (py - y1) * uy) / lengthSq;
+        if (Math.abs(side) <= r && along >= 0 && along <= 1) {
+            return 0;
+        }
+        double ts = Double.POSITIVE_INFINITY;
+        if (side > r && closing < 0) {
+            ts = (side - r) / -closing;
+        } else if (side < -r && closing > 0) {
+            ts = (-r - side) / closing;
+        }
+        if (ts < t) {
+            double at = ((px + ts * vx - x1) * ux + (py + ts * vy - y1) * uy) / lengthSq;
+            if (at >= 0 && at <= 1) {
+                t = ts;
+            }
+        }
+        return t;
+    }
+}
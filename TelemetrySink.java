@@ -0,0 +1,392 @@
+/**
+ * TelemetrySink streams robot state and simulation events to a file for offline analysis.
+ * Records are placed in a lock-free ring buffer by the simulation tick and written out by a background thread.
+ */
+package robot_simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class for the telemetry sink - a single-producer ring buffer drained by a writer thread.
+ * The producer is the simulation tick; it never performs I/O and never takes a lock.
+ */
+public class TelemetrySink implements Closeable {
+
+    /**
+     * Output encodings supported by the sink.
+     */
+    public enum Format {
+        NDJSON, // One JSON object per line
+        BINARY  // Compact big-endian records, see writeBinary
+    }
+
+    /**
+     * What the tick does when the ring buffer is full.
+     */
+    public enum Backpressure {
+        DROP,   // Discard the new record and count it as dropped
+        BLOCK,  // Wait for the writer to free a slot
+        SAMPLE  // Thin out state records while the buffer is filling up, drop only when full
+    }
+
+    static final byte STATE = 1;     // Periodic robot position record
+    static final byte COLLISION = 2; // A robot touched a wall, obstacle or robot
+    static final byte DESTROYED = 3; // A robot was removed from the arena
+
+    private static final int WALL_ID = -1; // ID used as the "other" object for wall contacts
+
+    private final String fname; // The file written to
+    private final Format format;
+    private final Backpressure backpressure;
+    private final int interval; // Ticks between state records for each robot
+    private int stateStride = 1; // Multiplies the interval while the simulation is short of time
+    private final OutputStream out;
+
+    // Ring buffer slots, stored as parallel arrays so recording a record allocates nothing
+    private final int mask;
+    private final byte[] kinds;
+    private final long[] ticks;
+    private final int[] ids;
+    private final String[] types;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] headings;
+    private final int[] otherIds;
+    private final String[] otherTypes;
+
+    private final AtomicLong head = new AtomicLong(); // Next slot the writer will read
+    private final AtomicLong tail = new AtomicLong(); // Next slot the tick will write
+    private final AtomicLong dropped = new AtomicLong(); // Records lost to backpressure
+    private int sampleStride = 1; // SAMPLE mode: keep one state record in this many
+    private long sampleCounter = 0;
+
+    private final Thread writer;
+    private volatile boolean closing = false;
+    private volatile IOException failure = null; // First write error, reported on close
+
+    /**
+     * Opens a telemetry file and starts the writer thread.
+     *
+     * @param fname        The file to write to.
+     * @param format       The output encoding.
+     * @param backpressure The policy used when the ring buffer is full.
+     * @param interval     The number of ticks between state records (at least 1).
+     * @param capacity     The ring buffer size, rounded up to a power of two.
+     * @throws IOException If the file cannot be opened.
+     */
+    public TelemetrySink(String fname, Format format, Backpressure backpressure, int interval, int capacity)
+            throws IOException {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be at least 1");
+        }
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1; // Round up to a power of two
+        this.fname = fname;
+        this.format = format;
+        this.backpressure = backpressure;
+        this.interval = interval;
+        this.out = new BufferedOutputStream(new FileOutputStream(fname), 1 << 16);
+        this.mask = size - 1;
+        this.kinds = new byte[size];
+        this.ticks = new long[size];
+        this.ids = new int[size];
+        this.types = new String[size];
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.headings = new int[size];
+        this.otherIds = new int[size];
+        this.otherTypes = new String[size];
+
+        this.writer = new Thread(this::drainLoop, "robot-telemetry-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Returns whether state records are due on the given tick.
+     *
+     * @param tick The current tick number.
+     * @return True if robots should be recorded on this tick.
+     */
+    public boolean isStateTick(long tick) {
+        return tick % ((long) interval * stateStride) == 0;
+    }
+
+    public int getStateStride() {
+        return stateStride;
+    }
+
+    /**
+     * Records state on only one in every stride state ticks, to shed load. Events are always recorded.
+     *
+     * @param stride The stride, at least 1.
+     */
+    public void setStateStride(int stride) {
+        this.stateStride = Math.max(1, stride);
+    }
+
+    /**
+     * Records the position and heading of a robot.
+     *
+     * @param tick  The current tick number.
+     * @param robot The robot to record.
+     */
+    public void state(long tick, Robot robot) {
+        if (backpressure == Backpressure.SAMPLE && !sampleState()) {
+            return;
+        }
+        long slot = claim();
+        if (slot < 0) {
+            return;
+        }
+        fill(slot, STATE, tick, robot, Heading.toDegrees(robot.getHeading()), WALL_ID, null);
+    }
+
+    /**
+     * Records a collision between a robot and another object.
+     *
+     * @param tick  The current tick number.
+     * @param robot The robot that made contact.
+     * @param other The object it hit, or null for a wall.
+     */
+    public void collision(long tick, Objects robot, Objects other) {
+        long slot = claim();
+        if (slot < 0) {
+            return;
+        }
+        if (other == null) {
+            fill(slot, COLLISION, tick, robot, 0, WALL_ID, "Wall");
+        } else {
+            fill(slot, COLLISION, tick, robot, 0, other.getObjectID(), other.getType());
+        }
+    }
+
+    /**
+     * Records the destruction of a robot.
+     *
+     * @param tick  The current tick number.
+     * @param robot The robot being removed.
+     */
+    public void destroyed(long tick, Objects robot) {
+        long slot = claim();
+        if (slot < 0) {
+            return;
+        }
+        fill(slot, DESTROYED, tick, robot, 0, WALL_ID, null);
+    }
+
+    public String getFileName() {
+        return fname;
+    }
+
+    /**
+     * Opens a new sink with the same format, backpressure, interval and capacity, writing to another file.
+     * Used to go on recording in a new file when tick numbers start again, such as after a load.
+     *
+     * @param fname The file to write to.
+     * @return The new sink; this one is left open.
+     * @throws IOException If the file cannot be opened.
+     */
+    public TelemetrySink reopen(String fname) throws IOException {
+        return new TelemetrySink(fname, format, backpressure, interval, mask + 1);
+    }
+
+    /**
+     * Returns the number of records discarded because of backpressure.
+     *
+     * @return The dropped record count.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops accepting records, writes everything still in the buffer and closes the file.
+     *
+     * @throws IOException If any write failed while the sink was running.
+     */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reserves the next free slot according to the backpressure policy.
+     *
+     * @return The slot sequence number, or -1 if the record must be dropped.
+     */
+    private long claim() {
+        if (closing) {
+            return -1;
+        }
+        long t = tail.get();
+        while (t - head.get() > mask) { // Buffer is full
+            if (backpressure != Backpressure.BLOCK || closing) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+            LockSupport.parkNanos(50_000); // Give the writer time to catch up
+        }
+        return t;
+    }
+
+    /**
+     * Decides whether a state record is kept in SAMPLE mode.
+     * The stride doubles while the buffer is over three quarters full and halves once it drains below a quarter.
+     *
+     * @return True if this state record should be written.
+     */
+    private boolean sampleState() {
+        long used = tail.get() - head.get();
+        int capacity = mask + 1;
+        if (used > capacity - (capacity >> 2) && sampleStride < 1024) {
+            sampleStride <<= 1;
+        } else if (used < (capacity >> 2) && sampleStride > 1) {
+            sampleStride >>= 1;
+        }
+        return sampleCounter++ % sampleStride == 0;
+    }
+
+    /**
+     * Fills a claimed slot and publishes it to the writer.
+     */
+    private void fill(long seq, byte kind, long tick, Objects object, int heading, int otherId, String otherType) {
+        int i = (int) (seq & mask);
+        kinds[i] = kind;
+        ticks[i] = tick;
+        ids[i] = object.getObjectID();
+        types[i] = object.getType();
+        xs[i] = object.getX();
+        ys[i] = object.getY();
+        headings[i] = heading;
+        otherIds[i] = otherId;
+        otherTypes[i] = otherType;
+        tail.lazySet(seq + 1); // Publish after the slot is written
+    }
+
+    /**
+     * Writer thread body - drains the ring buffer until the sink is closed.
+     */
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(128);
+        DataOutputStream data = new DataOutputStream(out);
+        Map<String, Integer> typeCodes = new HashMap<>(); // BINARY: type names already sent to the file
+        try {
+            while (true) {
+                long h = head.get();
+                long t = tail.get();
+                if (h == t) {
+                    if (closing) {
+                        break;
+                    }
+                    out.flush();
+                    LockSupport.parkNanos(1_000_000); // Nothing to write, check again shortly
+                    continue;
+                }
+                for (; h < t; h++) {
+                    int i = (int) (h & mask);
+                    if (format == Format.NDJSON) {
+                        writeJson(line, i);
+                    } else {
+                        writeBinary(data, typeCodes, i);
+                    }
+                    types[i] = null;
+                    otherTypes[i] = null;
+                }
+                head.lazySet(t); // Hand the slots back to the tick
+            }
+        } catch (IOException e) {
+            failure = e;
+            closing = true;
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes one slot as an NDJSON line.
+     */
+    private void writeJson(StringBuilder line, int i) throws IOException {
+        line.setLength(0);
+        line.append("{\"kind\":\"");
+        line.append(kinds[i] == STATE ? "state" : kinds[i] == COLLISION ? "collision" : "destroyed");
+        line.append("\",\"tick\":").append(ticks[i]);
+        line.append(",\"id\":").append(ids[i]);
+        line.append(",\"type\":\"").append(types[i]).append('"');
+        line.append(",\"x\":").append(xs[i]);
+        line.append(",\"y\":").append(ys[i]);
+        if (kinds[i] == STATE) {
+            line.append(",\"heading\":").append(headings[i]);
+        } else if (kinds[i] == COLLISION) {
+            line.append(",\"otherId\":").append(otherIds[i]);
+            line.append(",\"otherType\":\"").append(otherTypes[i]).append('"');
+        }
+        line.append("}\n");
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes one slot as a binary record.
+     * Layout: kind (byte), tick (long), id (int), type code (short), x (double), y (double),
+     * then heading (short) for state records or other id (int) and other type code (short) for collisions.
+     * A type name is introduced once with a kind 0 record: code (short) followed by the UTF name.
+     */
+    private void writeBinary(DataOutputStream data, Map<String, Integer> typeCodes, int i) throws IOException {
+        int type = typeCode(data, typeCodes, types[i]);
+        int otherType = kinds[i] == COLLISION ? typeCode(data, typeCodes, otherTypes[i]) : 0;
+        data.writeByte(kinds[i]);
+        data.writeLong(ticks[i]);
+        data.writeInt(ids[i]);
+        data.writeShort(type);
+        data.writeDouble(xs[i]);
+        data.writeDouble(ys[i]);
+        if (kinds[i] == STATE) {
+            data.writeShort(headings[i]);
+        } else if (kinds[i] == COLLISION) {
+            data.writeInt(otherIds[i]);
+            data.writeShort(otherType);
+        }
+    }
+
+    /**
+     * Returns the code for a type name, writing a definition record the first time it is seen.
+     */
+    private int typeCode(DataOutputStream data, Map<String, Integer> typeCodes, String type) throws IOException {
+        Integer code = typeCodes.get(type);
+        if (code == null) {
+            code = typeCodes.size();
+            typeCodes.put(type, code);
+            data.writeByte(0);
+            data.writeShort(code);
+            data.writeUTF(type);
+        }
+        return code;
+    }
+}
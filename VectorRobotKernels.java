@@ -0,0 +1,108 @@
+/**
+ * VectorRobotKernels implements the robot kernels with the incubating Java Vector API,
+ * processing as many robots per instruction as the CPU's preferred vector width allows.
+ * Compiling and running it needs {@code --add-modules jdk.incubator.vector}; without the module
+ * RobotKernels.select falls back to ScalarRobotKernels.
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Class for the Vector API robot kernels. Each loop runs a vector body followed by a scalar tail.
+ * Masks are only tested with anyTrue; the few vectors with a lane set are finished lane by lane with
+ * the scalar test, as VectorMask.toLong is not intrinsic for every species and would allocate per vector.
+ */
+public class VectorRobotKernels implements RobotKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void move(double[] x, double[] y, double[] vx, double[] vy, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, x, i).add(DoubleVector.fromArray(SPECIES, vx, i)).intoArray(x, i);
+            DoubleVector.fromArray(SPECIES, y, i).add(DoubleVector.fromArray(SPECIES, vy, i)).intoArray(y, i);
+        }
+        for (; i < n; i++) {
+            x[i] += vx[i];
+            y[i] += vy[i];
+        }
+    }
+
+    @Override
+    public void walls(double[] x, double[] y, double[] rad, int n,
+                      double minX, double minY, double maxX, double maxY, byte[] out) {
+        Arrays.fill(out, 0, n, (byte) 0); // Few robots touch a wall, only their lanes are written below
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+            DoubleVector vr = DoubleVector.fromArray(SPECIES, rad, i);
+            VectorMask<Double> any = vx.compare(VectorOperators.LT, vr.add(minX))
+                    .or(vx.compare(VectorOperators.GT, vr.neg().add(maxX)))
+                    .or(vy.compare(VectorOperators.LT, vr.add(minY)))
+                    .or(vy.compare(VectorOperators.GT, vr.neg().add(maxY)));
+            if (any.anyTrue()) {
+                for (int lane = i; lane < i + SPECIES.length(); lane++) {
+                    out[lane] = wallFlags(x[lane], y[lane], rad[lane], minX, minY, maxX, maxY);
+                }
+            }
+        }
+        for (; i < n; i++) {
+            out[i] = wallFlags(x[i], y[i], rad[i], minX, minY, maxX, maxY);
+        }
+    }
+
+    /**
+     * The wall test for one robot.
+     */
+    private static byte wallFlags(double x, double y, double rad, double minX, double minY, double maxX, double maxY) {
+        int flags = 0;
+        if (x < minX + rad) flags |= LEFT;
+        if (x > maxX - rad) flags |= RIGHT;
+        if (y < minY + rad) flags |= TOP;
+        if (y > maxY - rad) flags |= BOTTOM;
+        return (byte) flags;
+    }
+
+    @Override
+    public int hitting(double px, double py, double prad, double[] x, double[] y, double[] rad, int n, int[] out) {
+        int hits = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).neg().add(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).neg().add(py);
+            DoubleVector reach = DoubleVector.fromArray(SPECIES, rad, i).add(prad);
+            VectorMask<Double> hit = dx.mul(dx).add(dy.mul(dy))
+                    .compare(VectorOperators.LT, reach.mul(reach).add(200)); // Same buffer as Robot.hitting
+            if (hit.anyTrue()) {
+                for (int lane = i; lane < i + SPECIES.length(); lane++) {
+                    if (hitting(px, py, prad, x[lane], y[lane], rad[lane])) {
+                        out[hits++] = lane;
+                    }
+                }
+            }
+        }
+        for (; i < n; i++) {
+            if (hitting(px, py, prad, x[i], y[i], rad[i])) {
+                out[hits++] = i;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * The contact test for one pair of robots.
+     */
+    private static boolean hitting(double px, double py, double prad, double x, double y, double rad) {
+        double dx = px - x;
+        double dy = py - y;
+        double reach = prad + rad;
+        return dx * dx + dy * dy < reach * reach + 200;
+    }
+}
@@ -5,6 +5,7 @@
 package robot_simulator;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Class for the WeakRobot - inherits from the Robot class.
@@ -70,4 +71,38 @@ public class WeakRobot extends Robot implements Serializable {
     public String getType() {
         return "Weak Robot";
     }
+
+    /**
+     * Behaviour of weak robots - they are destroyed by any robot that touches them, which carries on
+     * without bouncing, and by hitting an obstacle. Contacts are answered in the order the robots were checked,
+     * and a robot destroyed by an earlier contact destroys nothing, so of two weak robots touching each other
+     * the one checked first survives, as when touched robots were removed during the checks.
+     */
+    static final class Behaviour implements RobotBehaviour {
+        @Override
+        public Class<? extends Robot> robotClass() {
+            return WeakRobot.class;
+        }
+
+        @Override
+        public void checkAll(Arena arena, RobotBatch batch, List<Objects> toRemove) {
+            arena.checkStandard(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                WeakRobot robot = (WeakRobot) batch.get(i);
+                if (robot.isHitObstacle()) {
+                    toRemove.add(robot);
+                    arena.reportDestroyed(robot);
+                }
+            }
+        }
+
+        @Override
+        public void onContact(Arena arena, ContactBatch contacts) {
+            for (int i = 0; i < contacts.size(); i++) {
+                if (!contacts.getRobot(i).destroyed) { // First contact wins
+                    arena.removeDestroyed(contacts.getOther(i)); // Once, however many robots touched it
+                }
+            }
+        }
+    }
 }
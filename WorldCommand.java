@@ -0,0 +1,20 @@
+/**
+ * WorldCommand is one edit to the arena's objects, such as adding a robot or moving the selection,
+ * sent from the UI and applied by the thread that runs the simulation between two ticks.
+ */
+package robot_simulator;
+
+/**
+ * Interface for world commands. A command is built on the thread that asks for the edit and carries everything
+ * it needs with it - new objects, a copy of the selection, offsets - so applying it reads no UI state.
+ */
+@FunctionalInterface
+public interface WorldCommand {
+
+    /**
+     * Applies the edit. Called on the simulation thread, never during a tick.
+     *
+     * @param arena The arena to edit.
+     */
+    void apply(Arena arena);
+}
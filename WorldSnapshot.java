@@ -0,0 +1,183 @@
+/**
+ * WorldSnapshot is a copy of what is needed to draw the arena at one tick, taken on the simulation thread
+ * so it can be drawn or encoded on another thread while the simulation carries on.
+ */
+package robot_simulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class for the world snapshot - the robots and obstacles of the arena as plain arrays.
+ * A snapshot can be captured into again; its arrays grow as needed and are otherwise reused.
+ * Snapshots published by a SnapshotBuffer are counted while read, and reused once every reader has released them.
+ */
+public class WorldSnapshot {
+    final AtomicInteger refs = new AtomicInteger(); // Readers holding the snapshot, plus one while it is published
+    long tick; // Tick the snapshot was taken at
+    double width, height; // Size of the arena
+
+    // Robots
+    int robotCount;
+    int[] robotId = new int[16];
+    double[] robotX = new double[16];
+    double[] robotY = new double[16];
+    double[] robotRad = new double[16];
+    double[] robotAngle = new double[16]; // Heading in radians
+    double[] beamLength = new double[16]; // Beam length for beam robots, 0 for other robots
+    int[] robotColour = new int[16]; // Body colour, ARGB
+
+    // Circle obstacles
+    int circleCount;
+    double[] circleX = new double[4];
+    double[] circleY = new double[4];
+    double[] circleRad = new double[4];
+
+    // Line obstacles, {x1, y1, x2, y2} per line
+    int lineCount;
+    double[] lines = new double[16];
+
+    /**
+     * Copies the state of an arena into a new snapshot.
+     *
+     * @param arena The arena, read on the calling thread.
+     * @return The snapshot.
+     */
+    public static WorldSnapshot of(Arena arena) {
+        return new WorldSnapshot().capture(arena);
+    }
+
+    /**
+     * Copies the state of an arena into this snapshot, replacing what it held.
+     *
+     * @param arena The arena, read on the calling thread.
+     * @return This snapshot.
+     */
+    public WorldSnapshot capture(Arena arena) {
+        tick = arena.getTickCount();
+        width = arena.getX();
+        height = arena.getY();
+        robotCount = 0;
+        circleCount = 0;
+        lineCount = 0;
+        List<Objects> objects = arena.getObjects();
+        for (int i = 0, n = objects.size(); i < n; i++) {
+            Objects object = objects.get(i);
+            if (object instanceof Robot) {
+                addRobot((Robot) object);
+            } else if (object instanceof Obstacle) {
+                if (object.getRad() == 0) {
+                    addLine(Arena.lineSegment(object));
+                } else {
+                    addCircle(object);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Hands back a snapshot acquired from a SnapshotBuffer. It must not be read afterwards, as the simulation
+     * may capture the next tick into it.
+     */
+    public void release() {
+        refs.decrementAndGet();
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getRobotCount() {
+        return robotCount;
+    }
+
+    /**
+     * Copies another snapshot into this one, replacing what it held.
+     *
+     * @param source The snapshot to copy, which must not change during the copy.
+     * @return This snapshot.
+     */
+    public WorldSnapshot copy(WorldSnapshot source) {
+        tick = source.tick;
+        width = source.width;
+        height = source.height;
+        reserve(source.robotCount, source.circleCount, source.lineCount);
+        robotCount = source.robotCount;
+        System.arraycopy(source.robotId, 0, robotId, 0, robotCount);
+        System.arraycopy(source.robotX, 0, robotX, 0, robotCount);
+        System.arraycopy(source.robotY, 0, robotY, 0, robotCount);
+        System.arraycopy(source.robotRad, 0, robotRad, 0, robotCount);
+        System.arraycopy(source.robotAngle, 0, robotAngle, 0, robotCount);
+        System.arraycopy(source.beamLength, 0, beamLength, 0, robotCount);
+        System.arraycopy(source.robotColour, 0, robotColour, 0, robotCount);
+        circleCount = source.circleCount;
+        System.arraycopy(source.circleX, 0, circleX, 0, circleCount);
+        System.arraycopy(source.circleY, 0, circleY, 0, circleCount);
+        System.arraycopy(source.circleRad, 0, circleRad, 0, circleCount);
+        lineCount = source.lineCount;
+        System.arraycopy(source.lines, 0, lines, 0, lineCount * 4);
+        return this;
+    }
+
+    /**
+     * Grows the arrays, keeping what they hold, so they fit at least the given numbers of objects.
+     *
+     * @param robots  Robots to fit.
+     * @param circles Circle obstacles to fit.
+     * @param lines   Line obstacles to fit.
+     */
+    void reserve(int robots, int circles, int lines) {
+        if (robots > robotX.length) {
+            int capacity = Math.max(robots, robotX.length * 2);
+            robotId = Arrays.copyOf(robotId, capacity);
+            robotX = Arrays.copyOf(robotX, capacity);
+            robotY = Arrays.copyOf(robotY, capacity);
+            robotRad = Arrays.copyOf(robotRad, capacity);
+            robotAngle = Arrays.copyOf(robotAngle, capacity);
+            beamLength = Arrays.copyOf(beamLength, capacity);
+            robotColour = Arrays.copyOf(robotColour, capacity);
+        }
+        if (circles > circleX.length) {
+            int capacity = Math.max(circles, circleX.length * 2);
+            circleX = Arrays.copyOf(circleX, capacity);
+            circleY = Arrays.copyOf(circleY, capacity);
+            circleRad = Arrays.copyOf(circleRad, capacity);
+        }
+        if (lines * 4 > this.lines.length) {
+            this.lines = Arrays.copyOf(this.lines, Math.max(lines * 4, this.lines.length * 2));
+        }
+    }
+
+    private void addRobot(Robot robot) {
+        reserve(robotCount + 1, 0, 0);
+        int i = robotCount++;
+        robotId[i] = robot.getObjectID();
+        robotX[i] = robot.getX();
+        robotY[i] = robot.getY();
+        robotRad[i] = robot.getRad();
+        robotAngle[i] = robot.getRadAngle();
+        if (robot instanceof BeamRobot) {
+            beamLength[i] = ((BeamRobot) robot).getBeamLength();
+            robotColour[i] = SoftwareRenderer.argb(Arena.robotColor("CORAL"));
+        } else {
+            beamLength[i] = 0;
+            robotColour[i] = SoftwareRenderer.argb(Arena.robotColor(robot.getColor()));
+        }
+    }
+
+    private void addCircle(Objects obstacle) {
+        reserve(0, circleCount + 1, 0);
+        int i = circleCount++;
+        circleX[i] = obstacle.getX();
+        circleY[i] = obstacle.getY();
+        circleRad[i] = obstacle.getRad();
+    }
+
+    private void addLine(double[] segment) {
+        reserve(0, 0, lineCount + 1);
+        System.arraycopy(segment, 0, lines, lineCount * 4, 4);
+        lineCount++;
+    }
+}